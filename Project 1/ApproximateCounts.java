@@ -0,0 +1,252 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+
+/**
+ * Counts the rows it is given in a fixed amount of memory, however many rows and distinct values there are, and answers
+ * the TreeCounts queries approximately: the number of trees per species and borough comes from a CountMinSketch and the
+ * number of distinct tree ids and zip codes from a HyperLogLog each. The totals per borough are exact.
+ * Only the first MAX_SPECIES species names are remembered for matching queries; trees of later species are counted in
+ * the totals only.
+ */
+public class ApproximateCounts implements TreeCounts, TreeRowSink {
+
+	// Species names kept for matching queries, which bounds the memory of the dictionary and its substring index.
+	static final int MAX_SPECIES = 1024;
+	static final double DEFAULT_EPSILON = 0.0001;
+	static final double DEFAULT_CONFIDENCE = 0.99;
+
+	private StringDictionary speciesNames = new StringDictionary();
+	private SpeciesIndex speciesIndex = new SpeciesIndex();
+
+	private CountMinSketch speciesCounts;
+	private HyperLogLog treeIds;
+	private HyperLogLog zipcodes;
+	// The totals are longs like the sketch's, since the feeds this is for can have more than 2^31 rows. The int getters
+	// of TreeCounts clamp them to Integer.MAX_VALUE.
+	private long[] boroughCounts = new long[TreeStore.BOROUGHS.length];
+	private long total;
+	// Rows whose species was not remembered because MAX_SPECIES names were already known.
+	private long unlistedRows;
+
+	/**
+	 * ApproximateCounts constructor.
+	 * Creates counters whose species counts are at most epsilon times the number of trees too high with the given
+	 * confidence (i.e.: 0.99), and whose distinct counts use 2^precision registers.
+	 *
+	 * @param epsilon
+	 * @param confidence
+	 * @param precision
+	 * @throws IllegalArgumentException
+	 */
+	public ApproximateCounts(double epsilon, double confidence, int precision) throws IllegalArgumentException {
+		speciesCounts = new CountMinSketch(epsilon, 1 - confidence);
+		treeIds = new HyperLogLog(precision);
+		zipcodes = new HyperLogLog(precision);
+	}
+
+	@Override
+	public int encodeSpecies(CSVTokenizer tokenizer, int field) {
+		if (speciesNames.size() < MAX_SPECIES) {
+			int code = tokenizer.encode(field, speciesNames);
+			if (code == speciesIndex.size()) {
+				speciesIndex.add(code, speciesNames.decode(code));
+			}
+			return code;
+		}
+		return speciesNames.lookup(tokenizer.getString(field));
+	}
+
+	@Override
+	public void addRow(int id, int diam, int statusCode, int healthCode, int speciesCode,
+					   int zip, int boroughCode, double x, double y) {
+		total++;
+		boroughCounts[boroughCode]++;
+		if (speciesCode >= 0) {
+			speciesCounts.add(key(speciesCode, boroughCode), 1);
+		}
+		else {
+			unlistedRows++;
+		}
+		treeIds.add(id);
+		zipcodes.add(zip);
+	}
+
+	/**
+	 * Returns the sketch key of a species and borough. Species codes are dense and below MAX_SPECIES, so every species
+	 * and borough has its own key and two of them only share a counter where the sketch's hashes collide.
+	 */
+	private long key(int speciesCode, int boroughCode) {
+		return (long) speciesCode * TreeStore.BOROUGHS.length + boroughCode;
+	}
+
+	/**
+	 * Returns the estimated number of trees of the given species codes in the given borough (or every borough if
+	 * boroughCode is -1). An estimate is never too low, and never more than the number of trees there.
+	 */
+	private long estimate(int[] codes, int boroughCode) {
+		long estimate = 0;
+		for (int code : codes) {
+			for (int borough = 0; borough < boroughCounts.length; borough++) {
+				if (boroughCode < 0 || borough == boroughCode) {
+					estimate += speciesCounts.estimate(key(code, borough));
+				}
+			}
+		}
+		return Math.min(estimate, (boroughCode < 0) ? total : boroughCounts[boroughCode]);
+	}
+
+	/**
+	 * Returns the given count, or Integer.MAX_VALUE if it does not fit in an int.
+	 */
+	private static int clamp(long count) {
+		return (int) Math.min(count, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns the estimated number of trees of the species matching speciesName in the given borough, or in the city if
+	 * boroName is null, without limiting it to an int.
+	 *
+	 * @param speciesName
+	 * @param boroName
+	 * @return long
+	 */
+	public long getEstimate(String speciesName, String boroName) {
+		if (boroName == null) {
+			return estimate(speciesIndex.match(speciesName), -1);
+		}
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		// If the method is called with a non-existent borough name, return 0.
+		if (boroughCode < 0) {
+			return 0;
+		}
+		return estimate(speciesIndex.match(speciesName), boroughCode);
+	}
+
+	/**
+	 * Returns the number of trees in the given borough, or in the city if boroName is null, without limiting it to an int.
+	 *
+	 * @param boroName
+	 * @return long
+	 */
+	public long getTotal(String boroName) {
+		if (boroName == null) {
+			return total;
+		}
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		// If the method is called with a non-existent borough name, return 0.
+		if (boroughCode < 0) {
+			return 0;
+		}
+		return boroughCounts[boroughCode];
+	}
+
+	/**
+	 * Returns how much too high the count of the species matching speciesName in one borough (or in the city if
+	 * boroName is null) can be, with the confidence of getConfidence.
+	 * Every matching species (and every borough for the city) adds up one estimate, and with it one error bound. The
+	 * bound of the sum holds with the confidence of a single estimate: the sum of the estimates is at most the smallest
+	 * sum of the same keys' counters in one table row, and that sum is too high by more than the bound with probability
+	 * at most 1/e in each row.
+	 *
+	 * @param speciesName
+	 * @param boroName
+	 * @return number of trees
+	 */
+	public double getErrorBound(String speciesName, String boroName) {
+		int estimates = speciesIndex.match(speciesName).length * ((boroName == null) ? boroughCounts.length : 1);
+		return estimates * speciesCounts.getErrorBound();
+	}
+
+	/**
+	 * Getter that returns the probability that a true count is within getErrorBound of its estimate.
+	 *
+	 * @return double between 0 and 1
+	 */
+	public double getConfidence() {
+		return 1 - speciesCounts.getDelta();
+	}
+
+	/**
+	 * Getter that returns the estimated number of distinct tree ids.
+	 *
+	 * @return long
+	 */
+	public long getDistinctTreeIds() {
+		return treeIds.estimate();
+	}
+
+	/**
+	 * Getter that returns the estimated number of distinct zip codes.
+	 *
+	 * @return long
+	 */
+	public long getDistinctZipcodes() {
+		return zipcodes.estimate();
+	}
+
+	/**
+	 * Getter that returns the relative standard error of the distinct counts.
+	 *
+	 * @return double
+	 */
+	public double getDistinctError() {
+		return treeIds.getStandardError();
+	}
+
+	public long getUnlistedRows() {
+		return unlistedRows;
+	}
+
+	/**
+	 * Getter that returns the number of bytes the sketches take, which does not depend on the number of rows.
+	 *
+	 * @return long
+	 */
+	public long getSketchBytes() {
+		return speciesCounts.getMemoryBytes() + treeIds.getMemoryBytes() + zipcodes.getMemoryBytes();
+	}
+
+	CountMinSketch getSpeciesSketch() {
+		return speciesCounts;
+	}
+
+	@Override
+	public int getTotalNumberOfTrees() {
+		return clamp(total);
+	}
+
+	@Override
+	public int getCountByTreeSpecies(String speciesName) {
+		return clamp(getEstimate(speciesName, null));
+	}
+
+	@Override
+	public int getCountByBorough(String boroName) {
+		return clamp(getTotal(boroName));
+	}
+
+	@Override
+	public int getCountByTreeSpeciesBorough(String speciesName, String boroName) {
+		return clamp(getEstimate(speciesName, boroName));
+	}
+
+	@Override
+	public ArrayList<String> getMatchingSpecies(String speciesName) {
+		ArrayList<String> speciesMatches = new ArrayList<String>();
+		for (int code : speciesIndex.match(speciesName)) {
+			speciesMatches.add(speciesNames.decode(code));
+		}
+		return speciesMatches;
+	}
+
+} // class
@@ -0,0 +1,345 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+
+public class BitmapIndex {
+
+	// Changes the index takes in before it asks to be rebuilt: this many, or one per REBUILD_FRACTION indexed rows if that is more.
+	private static final int REBUILD_MIN_CHANGES = 1024;
+	private static final int REBUILD_FRACTION = 16;
+
+	private static final LatencyHistogram COUNT_LATENCY = TreeMetrics.latency("BitmapIndex.count");
+	private static final LatencyHistogram COUNT_BY_BOROUGH_LATENCY = TreeMetrics.latency("BitmapIndex.countByBorough");
+	private static final LatencyHistogram ROWS_LATENCY = TreeMetrics.latency("BitmapIndex.rows");
+
+	private TreeStore store;
+	private int size;
+
+	// One bitmap of rows per value of every low cardinality column: bitmaps[code] has the rows whose column holds that code.
+	private RowBitmap allRows = new RowBitmap();
+	private RowBitmap[] boroughBitmaps = newBitmaps(TreeStore.BOROUGHS.length);
+	private RowBitmap[] statusBitmaps = newBitmaps(TreeStore.STATUSES.length);
+	private RowBitmap[] healthBitmaps = newBitmaps(TreeStore.HEALTHS.length);
+	private RowBitmap[] speciesBitmaps;
+	private HashMap<Integer, RowBitmap> zipcodeBitmaps = new HashMap<Integer, RowBitmap>();
+
+	// The diameter column sorted, with the row every diameter belongs to, so a range of diameters is a slice of rows.
+	// The sorted column is not changed after it is built: rows changed since are in changedRows and their diameters
+	// are read from the store, and staleRows has the rows whose entry in the sorted column is out of date.
+	private int[] sortedDiameters;
+	private int[] rowsByDiameter;
+	private RowBitmap changedRows = new RowBitmap();
+	private RowBitmap staleRows = new RowBitmap();
+	// changedRows as an array, made by the first query after it changed (queries on a frozen store run on many threads).
+	private volatile int[] changedRowArray;
+
+	/**
+	 * BitmapIndex constructor.
+	 * Indexes every row the store has right now. The store keeps the index up to date as rows are added, changed or
+	 * deleted later, see remove and add.
+	 *
+	 * @param store
+	 */
+	public BitmapIndex(TreeStore store) {
+		this.store = store;
+		this.size = store.size();
+		speciesBitmaps = newBitmaps(store.getSpeciesNames().size());
+
+		// One pass over the rows fills in every bitmap in row order.
+		long[] diameterRows = new long[size];
+		for (int row = 0; row < size; row++) {
+			allRows.add(row);
+			boroughBitmaps[store.getBoroughCode(row)].add(row);
+			statusBitmaps[store.getStatusCode(row)].add(row);
+			healthBitmaps[store.getHealthCode(row)].add(row);
+			speciesBitmaps[store.getSpeciesCode(row)].add(row);
+			RowBitmap zipcode = zipcodeBitmaps.get(store.getZipcode(row));
+			if (zipcode == null) {
+				zipcode = new RowBitmap();
+				zipcodeBitmaps.put(store.getZipcode(row), zipcode);
+			}
+			zipcode.add(row);
+			// Diameters are never negative, so (diameter, row) pairs sort correctly as longs.
+			diameterRows[row] = ((long) store.getDiameter(row) << 32) | row;
+		}
+
+		Arrays.parallelSort(diameterRows);
+		sortedDiameters = new int[size];
+		rowsByDiameter = new int[size];
+		for (int i = 0; i < size; i++) {
+			sortedDiameters[i] = (int) (diameterRows[i] >>> 32);
+			rowsByDiameter[i] = (int) diameterRows[i];
+		}
+	} // BitmapIndex constructor
+
+	private static RowBitmap[] newBitmaps(int count) {
+		RowBitmap[] bitmaps = new RowBitmap[count];
+		for (int i = 0; i < count; i++) {
+			bitmaps[i] = new RowBitmap();
+		}
+		return bitmaps;
+	}
+
+	/**
+	 * Takes a row out of the index, before the store changes or deletes it.
+	 *
+	 * @param row
+	 */
+	void remove(int row) {
+		allRows.remove(row);
+		boroughBitmaps[store.getBoroughCode(row)].remove(row);
+		statusBitmaps[store.getStatusCode(row)].remove(row);
+		healthBitmaps[store.getHealthCode(row)].remove(row);
+		speciesBitmaps[store.getSpeciesCode(row)].remove(row);
+		zipcodeBitmaps.get(store.getZipcode(row)).remove(row);
+		if (!changedRows.remove(row)) {
+			staleRows.add(row);
+		}
+		changedRowArray = null;
+	}
+
+	/**
+	 * Puts a row that the store has just added or changed into the index.
+	 *
+	 * @param row
+	 */
+	void add(int row) {
+		allRows.add(row);
+		boroughBitmaps[store.getBoroughCode(row)].add(row);
+		statusBitmaps[store.getStatusCode(row)].add(row);
+		healthBitmaps[store.getHealthCode(row)].add(row);
+		// The row might be of a species that is new since the index was built.
+		int speciesCode = store.getSpeciesCode(row);
+		if (speciesCode >= speciesBitmaps.length) {
+			int count = speciesBitmaps.length;
+			speciesBitmaps = Arrays.copyOf(speciesBitmaps, Math.max(speciesCode + 1, count * 2));
+			for (int code = count; code < speciesBitmaps.length; code++) {
+				speciesBitmaps[code] = new RowBitmap();
+			}
+		}
+		speciesBitmaps[speciesCode].add(row);
+		RowBitmap zipcode = zipcodeBitmaps.get(store.getZipcode(row));
+		if (zipcode == null) {
+			zipcode = new RowBitmap();
+			zipcodeBitmaps.put(store.getZipcode(row), zipcode);
+		}
+		zipcode.add(row);
+		changedRows.add(row);
+		changedRowArray = null;
+	}
+
+	/**
+	 * Checks whether the index has taken in so many changes that rebuilding it would make the diameter queries faster.
+	 *
+	 * @return boolean
+	 */
+	boolean needsRebuild() {
+		return changedRows.cardinality() + staleRows.cardinality() > Math.max(REBUILD_MIN_CHANGES, size / REBUILD_FRACTION);
+	}
+
+	/**
+	 * Getter that returns the number of rows in the index.
+	 *
+	 * @return integer
+	 */
+	public int size() {
+		return allRows.cardinality();
+	}
+
+	/**
+	 * Returns the rows that match every filter of the query.
+	 * Each filter becomes one bitmap (the union of the bitmaps of its values), and the bitmaps are intersected from the
+	 * smallest to the largest so the intermediate results stay small.
+	 * The result may be one of the index's own bitmaps (i.e.: every row when the query has no filters), so it must not
+	 * be changed; count, countByBorough and rows only read it.
+	 *
+	 * @param query
+	 * @return RowBitmap
+	 */
+	RowBitmap evaluate(TreeQuery query) {
+		ArrayList<RowBitmap> filters = new ArrayList<RowBitmap>();
+		if (!query.getSpecies().isEmpty()) {
+			ArrayList<RowBitmap> matches = new ArrayList<RowBitmap>();
+			boolean[] seen = new boolean[speciesBitmaps.length];
+			for (String name : query.getSpecies()) {
+				for (int code : store.matchSpecies(name)) {
+					// A species can match more than one name of the query, only add it once.
+					if (code < speciesBitmaps.length && !seen[code]) {
+						seen[code] = true;
+						matches.add(speciesBitmaps[code]);
+					}
+				}
+			}
+			filters.add(RowBitmap.or(matches.toArray(new RowBitmap[0])));
+		}
+		if (!query.getBoroughs().isEmpty()) {
+			filters.add(union(boroughBitmaps, TreeStore.BOROUGHS, query.getBoroughs()));
+		}
+		if (!query.getStatuses().isEmpty()) {
+			filters.add(union(statusBitmaps, TreeStore.STATUSES, query.getStatuses()));
+		}
+		if (!query.getHealths().isEmpty()) {
+			filters.add(union(healthBitmaps, TreeStore.HEALTHS, query.getHealths()));
+		}
+		if (!query.getZipcodes().isEmpty()) {
+			ArrayList<RowBitmap> matches = new ArrayList<RowBitmap>();
+			for (Integer zip : new LinkedHashSet<Integer>(query.getZipcodes())) {
+				RowBitmap zipcode = zipcodeBitmaps.get(zip);
+				if (zipcode != null) {
+					matches.add(zipcode);
+				}
+			}
+			filters.add(RowBitmap.or(matches.toArray(new RowBitmap[0])));
+		}
+		if (query.getMinDiameter() > 0 || query.getMaxDiameter() < Integer.MAX_VALUE) {
+			filters.add(diameterRange(query.getMinDiameter(), query.getMaxDiameter()));
+		}
+
+		if (filters.isEmpty()) {
+			return allRows;
+		}
+		filters.sort((a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+		RowBitmap result = filters.get(0);
+		for (int i = 1; i < filters.size() && result.cardinality() > 0; i++) {
+			result = result.and(filters.get(i));
+		}
+		return result;
+	} // evaluate method
+
+	/**
+	 * Returns the union of the bitmaps of the given values of a column whose values are the given allowed values.
+	 * Values that are not allowed match no rows.
+	 *
+	 * @param bitmaps
+	 * @param allowed
+	 * @param values
+	 * @return RowBitmap
+	 */
+	private static RowBitmap union(RowBitmap[] bitmaps, String[] allowed, ArrayList<String> values) {
+		RowBitmap matches = new RowBitmap();
+		boolean[] seen = new boolean[allowed.length];
+		for (String value : values) {
+			int code = TreeStore.codeOf(allowed, value);
+			if (code >= 0 && !seen[code]) {
+				seen[code] = true;
+				matches = matches.or(bitmaps[code]);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the rows whose diameter is between min and max (both included), found by binary search in the sorted
+	 * diameter column.
+	 *
+	 * @param min
+	 * @param max
+	 * @return RowBitmap
+	 */
+	RowBitmap diameterRange(int min, int max) {
+		if (min > max) {
+			return new RowBitmap();
+		}
+		int from = lowerBound(sortedDiameters, min);
+		int to = (max == Integer.MAX_VALUE) ? size : lowerBound(sortedDiameters, max + 1);
+		// The slice is in diameter order, the bitmap needs it in row order.
+		int[] rows = Arrays.copyOfRange(rowsByDiameter, from, to);
+		Arrays.sort(rows);
+		RowBitmap matches = RowBitmap.of(rows, 0, rows.length);
+		int[] changed = changedRowArray;
+		if (changed == null) {
+			changed = changedRows.toArray();
+			changedRowArray = changed;
+		}
+		if (changed.length == 0 && staleRows.cardinality() == 0) {
+			return matches;
+		}
+		// Leave out the rows that changed since the index was built and check their current diameters instead.
+		matches = matches.andNot(staleRows);
+		for (int row : changed) {
+			int diameter = store.getDiameter(row);
+			if (diameter >= min && diameter <= max) {
+				matches.add(row);
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the first position of the sorted array whose value is at least key.
+	 *
+	 * @param sorted
+	 * @param key
+	 * @return integer
+	 */
+	private int lowerBound(int[] sorted, int key) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (sorted[mid] < key) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Counts the trees that match the query.
+	 *
+	 * @param query
+	 * @return integer
+	 */
+	public int count(TreeQuery query) {
+		long start = System.nanoTime();
+		int count = evaluate(query).cardinality();
+		COUNT_LATENCY.recordSince(start);
+		return count;
+	}
+
+	/**
+	 * Counts the trees that match the query in each borough, in the order of TreeStore.BOROUGHS.
+	 *
+	 * @param query
+	 * @return int array
+	 */
+	public int[] countByBorough(TreeQuery query) {
+		long start = System.nanoTime();
+		RowBitmap matches = evaluate(query);
+		int[] counts = new int[boroughBitmaps.length];
+		for (int boroughCode = 0; boroughCode < counts.length; boroughCode++) {
+			counts[boroughCode] = matches.and(boroughBitmaps[boroughCode]).cardinality();
+		}
+		COUNT_BY_BOROUGH_LATENCY.recordSince(start);
+		return counts;
+	}
+
+	/**
+	 * Returns the store rows of the trees that match the query, in increasing order.
+	 *
+	 * @param query
+	 * @return int array
+	 */
+	public int[] rows(TreeQuery query) {
+		long start = System.nanoTime();
+		int[] rows = evaluate(query).toArray();
+		ROWS_LATENCY.recordSince(start);
+		return rows;
+	}
+
+} // class
@@ -0,0 +1,415 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class CSVTokenizer {
+
+	// Powers of ten that a double holds exactly, used by the fast path of parseDouble.
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	// The line that was tokenized last.
+	private ByteBuffer buf;
+	private int fieldCount;
+	// Whether the last field ran to the end of the line, in which case it is trimmed like splitCSVLine trims it.
+	private boolean trailingField;
+
+	// For every field, the offsets of its first and one past its last kept character (quotes and skipped spaces left out),
+	// the offset right after the comma it starts at, and whether characters in between were dropped.
+	private int[] starts = new int[64];
+	private int[] ends = new int[64];
+	private int[] rawStarts = new int[64];
+	private boolean[] dirty = new boolean[64];
+
+	/**
+	 * CSVTokenizer constructor.
+	 * Initializes a tokenizer that can be reused for any number of lines.
+	 */
+	public CSVTokenizer() {
+	}
+
+	/**
+	 * Splits the line stored as UTF-8 in buf between start (inclusive) and end (exclusive) according to commas and double quotes.
+	 * It follows the same rules as NYCStreetTrees.splitCSVLine but only records where each field is instead of copying it.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @return number of fields on the line
+	 */
+	public int tokenize(ByteBuffer buf, int start, int end) {
+		return tokenize(buf, start, end, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Splits the line like tokenize(buf, start, end) but stops once maxFields fields have been found,
+	 * so the columns after the last one a caller needs are never looked at.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @param maxFields
+	 * @return number of fields found (at most maxFields)
+	 */
+	public int tokenize(ByteBuffer buf, int start, int end, int maxFields) {
+		this.buf = buf;
+		fieldCount = 0;
+		trailingField = false;
+		boolean insideQuotes = false;
+		boolean insideEntry = false;
+		int fieldStart = -1;
+		int fieldEnd = -1;
+		int rawStart = start;
+		// gap is set when a character is dropped after the first kept one; if another character is kept after it
+		// the field is no longer one piece of the line and has to be decoded the slow way.
+		boolean gap = false;
+		boolean fieldDirty = false;
+
+		for (int i = start; i < end; i++) {
+			byte nextByte = buf.get(i);
+
+			// Letters, digits and most punctuation come after ',' in ASCII and are simply kept.
+			// (The curly quotes start with a byte above 127 which is negative as a Java byte.)
+			if (nextByte > ',') {
+				if (fieldStart < 0) {
+					fieldStart = i;
+				}
+				fieldDirty = fieldDirty || gap;
+				fieldEnd = i + 1;
+				insideEntry = true;
+				continue;
+			}
+			int quoteLength = quoteLength(buf, i, end);
+
+			// Handle smart quotes as well as regular quotes.
+			if (quoteLength > 0) {
+				// Change insideQuotes flag when the next character is a quote.
+				insideQuotes = !insideQuotes;
+				insideEntry = insideQuotes;
+				gap = fieldStart >= 0;
+				i += quoteLength - 1;
+			}
+
+			// Skip all spaces between entries.
+			else if (isWhitespace(nextByte) && !insideQuotes && !insideEntry) {
+				gap = gap || fieldStart >= 0;
+			}
+
+			else if (nextByte == ',' && !insideQuotes) {
+				// End of entry found.
+				insideEntry = false;
+				addField(fieldStart, fieldEnd, rawStart, fieldDirty);
+				if (fieldCount == maxFields) {
+					return fieldCount;
+				}
+				fieldStart = -1;
+				fieldEnd = -1;
+				rawStart = i + 1;
+				gap = false;
+				fieldDirty = false;
+			}
+
+			else {
+				// Keep all other characters, including spaces and commas inside an entry.
+				if (fieldStart < 0) {
+					fieldStart = i;
+				}
+				fieldDirty = fieldDirty || gap;
+				fieldEnd = i + 1;
+				if (!isWhitespace(nextByte) && nextByte != ',') {
+					insideEntry = true;
+				}
+			}
+		}
+
+		// Add the last entry (assuming not empty) and trim its white space.
+		if (fieldStart >= 0) {
+			if (!fieldDirty) {
+				while (fieldEnd > fieldStart && isWhitespace(buf.get(fieldEnd - 1))) {
+					fieldEnd--;
+				}
+				while (fieldStart < fieldEnd && isWhitespace(buf.get(fieldStart))) {
+					fieldStart++;
+				}
+			}
+			addField(fieldStart, fieldEnd, rawStart, fieldDirty);
+			trailingField = true;
+		}
+		return fieldCount;
+	} // tokenize method
+
+	/**
+	 * Records the offsets of one field, growing the offset arrays if needed.
+	 */
+	private void addField(int fieldStart, int fieldEnd, int rawStart, boolean fieldDirty) {
+		if (fieldCount == starts.length) {
+			starts = Arrays.copyOf(starts, fieldCount * 2);
+			ends = Arrays.copyOf(ends, fieldCount * 2);
+			rawStarts = Arrays.copyOf(rawStarts, fieldCount * 2);
+			dirty = Arrays.copyOf(dirty, fieldCount * 2);
+		}
+		// An empty entry is stored as an empty range.
+		if (fieldStart < 0) {
+			fieldStart = rawStart;
+			fieldEnd = rawStart;
+		}
+		starts[fieldCount] = fieldStart;
+		ends[fieldCount] = fieldEnd;
+		rawStarts[fieldCount] = rawStart;
+		dirty[fieldCount] = fieldDirty;
+		fieldCount++;
+	}
+
+	/**
+	 * Returns the number of bytes of the quote character at index i ("\"" is one byte, the UTF-8 curly quotes are three)
+	 * or 0 if there is no quote there.
+	 */
+	private static int quoteLength(ByteBuffer buf, int i, int end) {
+		byte b = buf.get(i);
+		if (b == '"') {
+			return 1;
+		}
+		// The curly quotes U+201C and U+201D are E2 80 9C and E2 80 9D in UTF-8.
+		if (b == (byte) 0xE2 && i + 2 < end && buf.get(i + 1) == (byte) 0x80) {
+			byte last = buf.get(i + 2);
+			if (last == (byte) 0x9C || last == (byte) 0x9D) {
+				return 3;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Checks whether the byte is an ASCII character that Character.isWhitespace accepts.
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || (b >= 0x09 && b <= 0x0D) || (b >= 0x1C && b <= 0x1F);
+	}
+
+	/**
+	 * Getter that returns the number of fields found on the last line.
+	 *
+	 * @return integer
+	 */
+	public int getFieldCount() {
+		return fieldCount;
+	}
+
+	/**
+	 * Checks whether the given field has no characters.
+	 *
+	 * @param field
+	 * @return boolean
+	 */
+	public boolean isEmpty(int field) {
+		if (dirty[field]) {
+			return getString(field).isEmpty();
+		}
+		return starts[field] == ends[field];
+	}
+
+	/**
+	 * Checks whether the given field is exactly the given ASCII text.
+	 *
+	 * @param field
+	 * @param text
+	 * @return boolean
+	 */
+	public boolean equalsAscii(int field, String text) {
+		if (dirty[field]) {
+			return getString(field).equals(text);
+		}
+		int start = starts[field];
+		if (ends[field] - start != text.length()) {
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (buf.get(start + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the position of the field's value in the given array of allowed ASCII values (ignoring case) or -1 if
+	 * it is not one of them.
+	 *
+	 * @param field
+	 * @param allowed
+	 * @return integer code
+	 */
+	public int codeOf(int field, String[] allowed) {
+		if (dirty[field]) {
+			return TreeStore.codeOf(allowed, getString(field));
+		}
+		int start = starts[field];
+		int length = ends[field] - start;
+		for (int code = 0; code < allowed.length; code++) {
+			String value = allowed[code];
+			if (value.length() != length) {
+				continue;
+			}
+			int i = 0;
+			while (i < length && Character.toLowerCase((char) buf.get(start + i)) == Character.toLowerCase(value.charAt(i))) {
+				i++;
+			}
+			if (i == length) {
+				return code;
+			}
+		}
+		return -1;
+	} // codeOf method
+
+	/**
+	 * Returns the dictionary code of the given field, adding the field's value to the dictionary if it is new.
+	 *
+	 * @param field
+	 * @param dictionary
+	 * @return integer code
+	 */
+	public int encode(int field, StringDictionary dictionary) {
+		if (dirty[field]) {
+			return dictionary.encode(getString(field));
+		}
+		return dictionary.encode(buf, starts[field], ends[field]);
+	}
+
+	/**
+	 * Parses the given field as an int the same way Integer.parseInt does.
+	 *
+	 * @param field
+	 * @return integer
+	 * @throws NumberFormatException
+	 */
+	public int parseInt(int field) throws NumberFormatException {
+		if (dirty[field]) {
+			return Integer.parseInt(getString(field));
+		}
+		int i = starts[field];
+		int end = ends[field];
+		boolean negative = false;
+		if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+			negative = buf.get(i) == '-';
+			i++;
+		}
+		if (i == end) {
+			throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+		}
+		// Accumulate as a negative number so Integer.MIN_VALUE fits too.
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buf.get(i) - '0';
+			if (digit < 0 || digit > 9 || (value = value * 10 - digit) < Integer.MIN_VALUE) {
+				throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+			}
+		}
+		if (!negative && value == Integer.MIN_VALUE) {
+			throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+		}
+		return (int) (negative ? value : -value);
+	} // parseInt method
+
+	/**
+	 * Parses the given field as a double, giving the same result as Double.parseDouble.
+	 * Plain decimals with up to 15 digits (like the census coordinates) are converted exactly without building a String,
+	 * everything else is handed to Double.parseDouble.
+	 *
+	 * @param field
+	 * @return double
+	 * @throws NumberFormatException
+	 */
+	public double parseDouble(int field) throws NumberFormatException {
+		if (!dirty[field]) {
+			int i = starts[field];
+			int end = ends[field];
+			boolean negative = false;
+			if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+				negative = buf.get(i) == '-';
+				i++;
+			}
+			long mantissa = 0;
+			int digits = 0;
+			int fractionDigits = -1;
+			for (; i < end; i++) {
+				byte b = buf.get(i);
+				if (b >= '0' && b <= '9') {
+					mantissa = mantissa * 10 + (b - '0');
+					digits++;
+					if (fractionDigits >= 0) {
+						fractionDigits++;
+					}
+				}
+				else if (b == '.' && fractionDigits < 0) {
+					fractionDigits = 0;
+				}
+				else {
+					break;
+				}
+			}
+			// With at most 15 digits both the mantissa and the power of ten are exact doubles,
+			// so the single division is correctly rounded just like Double.parseDouble.
+			if (i == end && digits > 0 && digits <= 15) {
+				double value = (fractionDigits <= 0) ? mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+				return negative ? -value : value;
+			}
+		}
+		return Double.parseDouble(getString(field));
+	} // parseDouble method
+
+	/**
+	 * Returns the given field as a String, exactly as NYCStreetTrees.splitCSVLine would have returned it.
+	 *
+	 * @param field
+	 * @return String
+	 */
+	public String getString(int field) {
+		if (!dirty[field]) {
+			byte[] bytes = new byte[ends[field] - starts[field]];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = buf.get(starts[field] + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		// Slow path: run the splitCSVLine rules over the entry again, keeping the characters this time.
+		int start = rawStarts[field];
+		int end = ends[field];
+		byte[] bytes = new byte[end - start];
+		int length = 0;
+		boolean insideQuotes = false;
+		boolean insideEntry = false;
+		for (int i = start; i < end; i++) {
+			byte nextByte = buf.get(i);
+			int quoteLength = quoteLength(buf, i, end);
+			if (quoteLength > 0) {
+				insideQuotes = !insideQuotes;
+				insideEntry = insideQuotes;
+				i += quoteLength - 1;
+			}
+			else if (isWhitespace(nextByte) && !insideQuotes && !insideEntry) {
+				continue;
+			}
+			else {
+				bytes[length++] = nextByte;
+				if (!isWhitespace(nextByte) && nextByte != ',') {
+					insideEntry = true;
+				}
+			}
+		}
+		String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		return (trailingField && field == fieldCount - 1) ? value.trim() : value;
+	} // getString method
+
+} // class
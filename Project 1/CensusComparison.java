@@ -0,0 +1,494 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Compares two censuses of the same street trees (i.e.: 2005 and 2015): every tree of the later census is matched to
+ * the same tree in the earlier one, and the trees that were gained, lost and died are counted per borough and species
+ * along with every change of status.
+ * Trees are matched by tree id, which is a hash join: the earlier store's id index is already a hash table, so every
+ * later tree only looks its id up in it. Censuses whose ids do not carry over are matched by place instead, every
+ * later tree with the closest earlier tree within a radius (using the earlier store's SpatialIndex). Either way the
+ * later trees are split into ranges that are matched on several threads at the same time.
+ */
+public class CensusComparison {
+
+	/**
+	 * How the trees of the two censuses are matched.
+	 */
+	public enum Join {
+		// The same tree_id.
+		TREE_ID,
+		// The closest earlier tree within the radius, each earlier tree matching at most one (the closest) later tree and
+		// the other later trees the closest earlier tree left within the radius.
+		NEAREST
+	}
+
+	static final double DEFAULT_RADIUS = 10;
+	// Ranges with more later trees than this are split into two tasks.
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+	private static final int ALIVE = 1;
+	private static final int DEAD = 2;
+	private static final int STUMP = 3;
+
+	private String earlierName;
+	private TreeStore earlier;
+	private String laterName;
+	private TreeStore later;
+	private Join join;
+	private double radius;
+
+	// matches[row] is the earlier store's row of the tree on the later store's row, or -1 if it has none.
+	private int[] matches;
+	// distances[row] is how far the matched earlier tree is from the later one (nearest join only).
+	private double[] distances;
+	private SpatialIndex earlierIndex;
+	private long joinNanos;
+
+	private int matched;
+	// transitions[s][t] is the number of matched trees whose status code went from s to t.
+	private int[][] transitions = new int[TreeStore.STATUSES.length][TreeStore.STATUSES.length];
+	private Change city = new Change("NYC");
+	private Change[] boroughs = new Change[TreeStore.BOROUGHS.length];
+	// Changes per species by lower case name, as the older censuses write the species names in capitals.
+	private HashMap<String, Change> species = new HashMap<String, Change>();
+
+	/**
+	 * The number of trees in a borough or of a species in both censuses and what happened to them.
+	 */
+	public static class Change {
+
+		private String name;
+		private int earlier;
+		private int later;
+		private int gained;
+		private int lost;
+		private int died;
+
+		Change(String name) {
+			this.name = name;
+		}
+
+		private void add(Change other) {
+			earlier += other.earlier;
+			later += other.later;
+			gained += other.gained;
+			lost += other.lost;
+			died += other.died;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Getter that returns the number of trees in the earlier census.
+		 *
+		 * @return integer
+		 */
+		public int getEarlier() {
+			return earlier;
+		}
+
+		/**
+		 * Getter that returns the number of trees in the later census.
+		 *
+		 * @return integer
+		 */
+		public int getLater() {
+			return later;
+		}
+
+		/**
+		 * Getter that returns the number of trees of the later census that did not match an earlier tree.
+		 *
+		 * @return integer
+		 */
+		public int getGained() {
+			return gained;
+		}
+
+		/**
+		 * Getter that returns the number of trees of the earlier census that did not match a later tree.
+		 *
+		 * @return integer
+		 */
+		public int getLost() {
+			return lost;
+		}
+
+		/**
+		 * Getter that returns the number of matched trees that were alive in the earlier census and dead or a stump in
+		 * the later one (counted where the earlier census had them).
+		 *
+		 * @return integer
+		 */
+		public int getDied() {
+			return died;
+		}
+
+		public int getNet() {
+			return later - earlier;
+		}
+
+	} // Change class
+
+	/**
+	 * CensusComparison constructor.
+	 * Creates a comparison of two loaded censuses, the earlier one first. Nothing is matched until join is called.
+	 *
+	 * @param earlierName
+	 * @param earlier
+	 * @param laterName
+	 * @param later
+	 */
+	public CensusComparison(String earlierName, TreeStore earlier, String laterName, TreeStore later) {
+		this.earlierName = earlierName;
+		this.earlier = earlier;
+		this.laterName = laterName;
+		this.later = later;
+		for (int boroughCode = 0; boroughCode < boroughs.length; boroughCode++) {
+			boroughs[boroughCode] = new Change(TreeStore.BOROUGHS[boroughCode]);
+		}
+	}
+
+	/**
+	 * Matches the trees of the two censuses and counts the changes. A comparison can only be joined once.
+	 *
+	 * @param join
+	 * @param radius greatest distance (in feet) between matched trees for the NEAREST join
+	 * @throws IllegalArgumentException
+	 * @throws IllegalStateException
+	 */
+	public void join(Join join, double radius) throws IllegalArgumentException, IllegalStateException {
+		if (join == Join.NEAREST && !(radius >= 0))
+			throw new IllegalArgumentException("The radius of a nearest tree join cannot be negative.");
+		if (matches != null)
+			throw new IllegalStateException("The censuses were already joined.");
+		long start = System.nanoTime();
+		this.join = join;
+		this.radius = radius;
+		matches = new int[later.size()];
+		if (join == Join.NEAREST) {
+			distances = new double[later.size()];
+			earlierIndex = earlier.getSpatialIndex();
+		}
+		ForkJoinPool.commonPool().invoke(new JoinTask(0, matches.length));
+		if (join == Join.NEAREST) {
+			keepClosestMatches();
+		}
+		joinNanos = System.nanoTime() - start;
+		countChanges();
+	} // join method
+
+	/**
+	 * Matches the later trees of the range [lo, hi), splitting it in two tasks while it is large.
+	 */
+	private class JoinTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int lo;
+		private int hi;
+
+		JoinTask(int lo, int hi) {
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo > PARALLEL_THRESHOLD) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new JoinTask(lo, mid), new JoinTask(mid, hi));
+				return;
+			}
+			for (int row = lo; row < hi; row++) {
+				matches[row] = (join == Join.TREE_ID) ? earlier.findRow(later.getTreeId(row)) : nearestMatch(row);
+			}
+		}
+
+	} // JoinTask class
+
+	/**
+	 * Returns the earlier store's row of the closest tree within the radius of the later tree on the given row, or -1
+	 * if there is none.
+	 */
+	private int nearestMatch(int row) {
+		double x = later.getX(row);
+		double y = later.getY(row);
+		int[] nearest = earlierIndex.nearest(x, y, 1, null);
+		if (nearest.length == 0) {
+			return -1;
+		}
+		double distance = Math.hypot(earlier.getX(nearest[0]) - x, earlier.getY(nearest[0]) - y);
+		if (distance > radius) {
+			return -1;
+		}
+		distances[row] = distance;
+		return nearest[0];
+	}
+
+	/**
+	 * Leaves every earlier tree that is the closest one to several later trees matched to the closest of those only
+	 * (the one on the lowest row on a tie). The others are matched again with the closest earlier tree within the
+	 * radius that is not matched yet, in rounds that settle the same way, until every later tree has a match or there
+	 * is no earlier tree left within its radius. So in a dense block two trees that were both closest to the same
+	 * earlier tree are not counted as one gained and one lost tree while another earlier tree is next to them.
+	 */
+	private void keepClosestMatches() {
+		int[] matchedBy = new int[earlier.size()];
+		Arrays.fill(matchedBy, -1);
+		// Later rows that lost their match to a closer later tree.
+		int[] unmatched = new int[16];
+		int unmatchedCount = 0;
+		for (int row = 0; row < matches.length; row++) {
+			int loser = claim(row, matchedBy);
+			if (loser >= 0) {
+				if (unmatchedCount == unmatched.length) {
+					unmatched = Arrays.copyOf(unmatched, unmatchedCount * 2);
+				}
+				unmatched[unmatchedCount++] = loser;
+			}
+		}
+		while (unmatchedCount > 0) {
+			// Look for every row's closest free earlier tree first, then settle the rows that want the same one.
+			Arrays.sort(unmatched, 0, unmatchedCount);
+			for (int i = 0; i < unmatchedCount; i++) {
+				matches[unmatched[i]] = nearestUnmatched(unmatched[i], matchedBy);
+			}
+			int losers = 0;
+			for (int i = 0; i < unmatchedCount; i++) {
+				int loser = claim(unmatched[i], matchedBy);
+				if (loser >= 0) {
+					unmatched[losers++] = loser;
+				}
+			}
+			unmatchedCount = losers;
+		}
+	} // keepClosestMatches method
+
+	/**
+	 * Matches the later tree on the given row with the earlier tree in matches[row], unless a closer later tree (or one
+	 * on a lower row as close) already has it.
+	 *
+	 * @return the later row that is left without a match, or -1 if there is none
+	 */
+	private int claim(int row, int[] matchedBy) {
+		int match = matches[row];
+		if (match < 0) {
+			return -1;
+		}
+		int other = matchedBy[match];
+		if (other < 0) {
+			matchedBy[match] = row;
+			return -1;
+		}
+		if (distances[row] < distances[other]) {
+			matches[other] = -1;
+			matchedBy[match] = row;
+			return other;
+		}
+		matches[row] = -1;
+		return row;
+	}
+
+	/**
+	 * Returns the earlier store's row of the closest tree within the radius of the later tree on the given row that is
+	 * not matched yet, or -1 if there is none. The closest trees are asked for twice as many at a time until one is
+	 * free or too far.
+	 */
+	private int nearestUnmatched(int row, int[] matchedBy) {
+		double x = later.getX(row);
+		double y = later.getY(row);
+		for (int k = 4; ; k *= 2) {
+			int[] nearest = earlierIndex.nearest(x, y, k, null);
+			for (int candidate : nearest) {
+				double distance = Math.hypot(earlier.getX(candidate) - x, earlier.getY(candidate) - y);
+				if (distance > radius) {
+					return -1;
+				}
+				if (matchedBy[candidate] < 0) {
+					distances[row] = distance;
+					return candidate;
+				}
+			}
+			if (nearest.length < k) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * Counts the trees of both censuses, the gained, lost and died ones and the status transitions by borough and
+	 * species.
+	 */
+	private void countChanges() {
+		// The later census comes first, so a species is called the way the later census writes it.
+		Change[] laterSpecies = speciesChanges(later);
+		Change[] earlierSpecies = speciesChanges(earlier);
+		boolean[] earlierMatched = new boolean[earlier.size()];
+		for (int row = 0; row < matches.length; row++) {
+			Change speciesChange = laterSpecies[later.getSpeciesCode(row)];
+			Change boroughChange = boroughs[later.getBoroughCode(row)];
+			speciesChange.later++;
+			boroughChange.later++;
+			int match = matches[row];
+			if (match < 0) {
+				speciesChange.gained++;
+				boroughChange.gained++;
+				continue;
+			}
+			matched++;
+			earlierMatched[match] = true;
+			int from = earlier.getStatusCode(match);
+			int to = later.getStatusCode(row);
+			transitions[from][to]++;
+			if (from == ALIVE && (to == DEAD || to == STUMP)) {
+				earlierSpecies[earlier.getSpeciesCode(match)].died++;
+				boroughs[earlier.getBoroughCode(match)].died++;
+			}
+		}
+		for (int row = 0; row < earlierMatched.length; row++) {
+			Change speciesChange = earlierSpecies[earlier.getSpeciesCode(row)];
+			Change boroughChange = boroughs[earlier.getBoroughCode(row)];
+			speciesChange.earlier++;
+			boroughChange.earlier++;
+			if (!earlierMatched[row]) {
+				speciesChange.lost++;
+				boroughChange.lost++;
+			}
+		}
+		for (Change boroughChange : boroughs) {
+			city.add(boroughChange);
+		}
+	} // countChanges method
+
+	/**
+	 * Returns the Change of every species code of the store, creating the ones of species that are new.
+	 */
+	private Change[] speciesChanges(TreeStore store) {
+		StringDictionary names = store.getSpeciesNames();
+		Change[] changes = new Change[names.size()];
+		for (int code = 0; code < changes.length; code++) {
+			String name = names.decode(code);
+			changes[code] = species.computeIfAbsent(name.toLowerCase(), key -> new Change(name));
+		}
+		return changes;
+	}
+
+	public String getEarlierName() {
+		return earlierName;
+	}
+
+	public String getLaterName() {
+		return laterName;
+	}
+
+	public Join getJoin() {
+		return join;
+	}
+
+	public double getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Getter that returns the number of trees that are in both censuses.
+	 *
+	 * @return integer
+	 */
+	public int getMatchedCount() {
+		return matched;
+	}
+
+	/**
+	 * Returns the earlier store's row of the tree on the given row of the later store, or -1 if it is not in the
+	 * earlier census.
+	 *
+	 * @param laterRow
+	 * @return integer
+	 */
+	public int getMatch(int laterRow) {
+		return matches[laterRow];
+	}
+
+	/**
+	 * Getter that returns the number of matched trees for every status code in the earlier census (first index) and in
+	 * the later one (second index), see TreeStore.STATUSES.
+	 *
+	 * @return int[][]
+	 */
+	public int[][] getTransitions() {
+		return transitions;
+	}
+
+	/**
+	 * Getter that returns the changes of the entire city.
+	 *
+	 * @return Change
+	 */
+	public Change getCityChange() {
+		return city;
+	}
+
+	/**
+	 * Returns the changes of the given borough, or null if there is no such borough.
+	 *
+	 * @param boroName
+	 * @return Change
+	 */
+	public Change getBoroughChange(String boroName) {
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		return (boroughCode < 0) ? null : boroughs[boroughCode];
+	}
+
+	/**
+	 * Returns the changes of every species (ignoring the case of the names), the largest change in number of trees
+	 * first.
+	 *
+	 * @return ArrayList<Change>
+	 */
+	public ArrayList<Change> getSpeciesChanges() {
+		ArrayList<Change> changes = new ArrayList<Change>(species.values());
+		changes.sort((a, b) -> (Math.abs(a.getNet()) != Math.abs(b.getNet()))
+				? Integer.compare(Math.abs(b.getNet()), Math.abs(a.getNet())) : a.getName().compareTo(b.getName()));
+		return changes;
+	}
+
+	/**
+	 * Getter that returns how long matching the trees took, in milliseconds.
+	 *
+	 * @return long
+	 */
+	public long getJoinMillis() {
+		return joinNanos / 1000000;
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the names of the censuses, how the trees were matched and how many were.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		String how = (join == Join.NEAREST) ? String.format("the closest tree within %s feet", radius) : "tree_id";
+		return String.format("%s (%,d trees) to %s (%,d trees) matched on %s: %,d matched, %,d gained, %,d lost",
+				earlierName, earlier.size(), laterName, later.size(), how, matched, city.gained, city.lost);
+	}
+
+} // class
@@ -0,0 +1,342 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * The report of every species in the census: the number of trees of each species in the entire city and in each of the
+ * five boroughs, with its percentage of all trees there, written as text (the blocks the interactive mode prints), CSV
+ * or JSON.
+ * The table is the count cube's, which is filled in the one pass that loads the census, so writing the report only
+ * reads it. Every line is written straight to one Writer (which should be buffered) and the numbers are formatted by
+ * hand into a single char buffer, with the same digits as String.format("%,d"), DecimalFormat("##.##") and
+ * SpeciesReport.formatPercent, so a report of every species takes no more than a few milliseconds.
+ */
+public class CensusReport {
+
+	private static final LatencyHistogram WRITE_LATENCY = TreeMetrics.latency("CensusReport.write");
+	// Width of the name column of the text report, as in printSpeciesReport.
+	private static final int NAME_WIDTH = 18;
+
+	// Species with trees, by name (ignoring case).
+	private String[] species;
+	// table[i * BOROUGHS.length + borough] is the number of trees of species[i] in that borough.
+	private int[] table;
+	private int[] speciesTotals;
+	private int[] boroughTotals = new int[TreeStore.BOROUGHS.length];
+	private int total;
+
+	private Writer out;
+	private String newLine = System.lineSeparator();
+	// Digits of the number being written, filled from the end.
+	private char[] digits = new char[32];
+
+	/**
+	 * CensusReport constructor.
+	 * Copies the table of the species that have trees out of the count cube, so the report does not change when the
+	 * cube does.
+	 *
+	 * @param counts
+	 */
+	public CensusReport(TreeCountCube counts) {
+		StringDictionary speciesNames = counts.getSpeciesNames();
+		ArrayList<Integer> codes = new ArrayList<Integer>();
+		for (int code = 0; code < speciesNames.size(); code++) {
+			if (counts.hasTrees(code)) {
+				codes.add(code);
+			}
+		}
+		codes.sort((a, b) -> String.CASE_INSENSITIVE_ORDER.compare(speciesNames.decode(a), speciesNames.decode(b)));
+		int boroughs = TreeStore.BOROUGHS.length;
+		species = new String[codes.size()];
+		table = new int[codes.size() * boroughs];
+		speciesTotals = new int[codes.size()];
+		for (int i = 0; i < species.length; i++) {
+			species[i] = speciesNames.decode(codes.get(i));
+			for (int boroughCode = 0; boroughCode < boroughs; boroughCode++) {
+				table[i * boroughs + boroughCode] = counts.getCount(codes.get(i), boroughCode);
+				speciesTotals[i] += table[i * boroughs + boroughCode];
+			}
+		}
+		for (int boroughCode = 0; boroughCode < boroughs; boroughCode++) {
+			boroughTotals[boroughCode] = counts.getCountByBorough(TreeStore.BOROUGHS[boroughCode]);
+		}
+		total = counts.getTotalNumberOfTrees();
+	}
+
+	/**
+	 * Getter that returns the number of species in the report.
+	 *
+	 * @return integer
+	 */
+	public int getSpeciesCount() {
+		return species.length;
+	}
+
+	/**
+	 * Writes the report in the given format (text, csv or json) to out, and flushes it.
+	 *
+	 * @param out
+	 * @param format
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 */
+	public void write(Writer out, String format) throws IOException, IllegalArgumentException {
+		long start = System.nanoTime();
+		this.out = out;
+		if (format.equalsIgnoreCase("text")) {
+			writeText();
+		}
+		else if (format.equalsIgnoreCase("csv")) {
+			writeCsv();
+		}
+		else if (format.equalsIgnoreCase("json")) {
+			writeJson();
+		}
+		else
+			throw new IllegalArgumentException("Unknown report format " + format + " (expected text, csv or json).");
+		out.flush();
+		WRITE_LATENCY.recordSince(start);
+	}
+
+	/**
+	 * Writes the block printSpeciesReport prints for every species.
+	 */
+	private void writeText() throws IOException {
+		int boroughs = TreeStore.BOROUGHS.length;
+		for (int i = 0; i < species.length; i++) {
+			out.write("All matching species: ");
+			out.write(newLine);
+			out.write("\t ");
+			out.write(species[i]);
+			out.write(newLine);
+			out.write(newLine);
+			out.write("Popularity in the city: ");
+			out.write(newLine);
+			writeTextLine("NYC", speciesTotals[i], total);
+			for (int boroughCode = 0; boroughCode < boroughs; boroughCode++) {
+				writeTextLine(TreeStore.BOROUGHS[boroughCode], table[i * boroughs + boroughCode], boroughTotals[boroughCode]);
+			}
+			out.write(newLine);
+		}
+	}
+
+	private void writeTextLine(String name, int count, int total) throws IOException {
+		out.write("\t ");
+		out.write(name);
+		for (int pad = name.length(); pad < NAME_WIDTH; pad++) {
+			out.write(' ');
+		}
+		out.write(" : ");
+		writeInt(count, true);
+		out.write(" (");
+		writeInt(total, true);
+		out.write(") ");
+		writeTextPercent(count, total);
+		out.write('%');
+		out.write(newLine);
+	}
+
+	/**
+	 * Writes one line per species with the same columns as the --batch CSV output, the query being the species name.
+	 */
+	private void writeCsv() throws IOException {
+		out.write("species,nyc,nyc_total,nyc_percent");
+		for (String borough : TreeStore.BOROUGHS) {
+			String column = borough.toLowerCase().replace(' ', '_');
+			out.write(',' + column + ',' + column + "_total," + column + "_percent");
+		}
+		out.write(newLine);
+		int boroughs = TreeStore.BOROUGHS.length;
+		for (int i = 0; i < species.length; i++) {
+			writeCsvField(species[i]);
+			writeCsvCounts(speciesTotals[i], total);
+			for (int boroughCode = 0; boroughCode < boroughs; boroughCode++) {
+				writeCsvCounts(table[i * boroughs + boroughCode], boroughTotals[boroughCode]);
+			}
+			out.write(newLine);
+		}
+	}
+
+	private void writeCsvCounts(int count, int total) throws IOException {
+		out.write(',');
+		writeInt(count, false);
+		out.write(',');
+		writeInt(total, false);
+		out.write(',');
+		writeRoundedPercent(count, total);
+	}
+
+	/**
+	 * Writes an array with one object per species, shaped like SpeciesReport.toJson with the species name instead of
+	 * the query and the list of matching species.
+	 */
+	private void writeJson() throws IOException {
+		int boroughs = TreeStore.BOROUGHS.length;
+		out.write('[');
+		out.write(newLine);
+		for (int i = 0; i < species.length; i++) {
+			out.write("  {\"species\": ");
+			writeJsonString(species[i]);
+			out.write(", \"NYC\": ");
+			writeJsonCounts(speciesTotals[i], total);
+			for (int boroughCode = 0; boroughCode < boroughs; boroughCode++) {
+				out.write(", ");
+				writeJsonString(TreeStore.BOROUGHS[boroughCode]);
+				out.write(": ");
+				writeJsonCounts(table[i * boroughs + boroughCode], boroughTotals[boroughCode]);
+			}
+			out.write((i + 1 < species.length) ? "}," : "}");
+			out.write(newLine);
+		}
+		out.write(']');
+		out.write(newLine);
+	}
+
+	private void writeJsonCounts(int count, int total) throws IOException {
+		out.write("{\"count\": ");
+		writeInt(count, false);
+		out.write(", \"total\": ");
+		writeInt(total, false);
+		out.write(", \"percent\": ");
+		writeRoundedPercent(count, total);
+		out.write('}');
+	}
+
+	/**
+	 * Writes the value the way NYCStreetTrees.csvField returns it.
+	 */
+	private void writeCsvField(String value) throws IOException {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			out.write(value);
+			return;
+		}
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"') {
+				out.write('"');
+			}
+			out.write(c);
+		}
+		out.write('"');
+	}
+
+	/**
+	 * Writes the value the way NYCStreetTrees.jsonString returns it.
+	 */
+	private void writeJsonString(String value) throws IOException {
+		out.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.write('\\');
+				out.write(c);
+			}
+			else if (c < 0x20) {
+				out.write("\\u00");
+				out.write(Character.forDigit(c >> 4, 16));
+				out.write(Character.forDigit(c & 0xF, 16));
+			}
+			else {
+				out.write(c);
+			}
+		}
+		out.write('"');
+	}
+
+	/**
+	 * Writes a number that is not negative, with a comma between every three digits if grouped (as "%,d" does).
+	 */
+	private void writeInt(long value, boolean grouped) throws IOException {
+		int start = digits.length;
+		int written = 0;
+		do {
+			if (grouped && written > 0 && written % 3 == 0) {
+				digits[--start] = ',';
+			}
+			digits[--start] = (char) ('0' + (value % 10));
+			value /= 10;
+			written++;
+		} while (value > 0);
+		out.write(digits, start, digits.length - start);
+	}
+
+	/**
+	 * Writes a number of hundredths with up to two decimals and no trailing zeros, or with ".0" if keepZero and it is
+	 * whole.
+	 */
+	private void writeHundredths(long hundredths, boolean keepZero) throws IOException {
+		writeInt(hundredths / 100, false);
+		int fraction = (int) (hundredths % 100);
+		if (fraction == 0) {
+			if (keepZero) {
+				out.write(".0");
+			}
+		}
+		else {
+			out.write('.');
+			out.write('0' + fraction / 10);
+			if (fraction % 10 != 0) {
+				out.write('0' + fraction % 10);
+			}
+		}
+	}
+
+	/**
+	 * Writes count as a percentage of total the way SpeciesReport.formatPercent returns it.
+	 */
+	private void writeRoundedPercent(int count, int total) throws IOException {
+		writeHundredths(Math.round(SpeciesReport.percent(count, total) * 100), true);
+	}
+
+	/**
+	 * Writes count as a percentage of total the way DecimalFormat("##.##") formats it in printSpeciesReport: the exact
+	 * value of the double rounded half to even to two decimals.
+	 * A positive double is mantissa * 2^exponent, so 100 times it is (mantissa * 100) * 2^exponent, which is exact in a
+	 * long as the mantissa has 53 bits. Its whole part is the number of hundredths, and the bits shifted out are the
+	 * rest that decides the rounding.
+	 */
+	private void writeTextPercent(int count, int total) throws IOException {
+		double percent = SpeciesReport.percent(count, total);
+		long bits = Double.doubleToRawLongBits(percent);
+		int biasedExponent = (int) (bits >>> 52) & 0x7FF;
+		long mantissa = bits & ((1L << 52) - 1);
+		if (biasedExponent != 0) {
+			mantissa |= 1L << 52;
+		}
+		else {
+			biasedExponent = 1;
+		}
+		int shift = 1075 - biasedExponent;
+		long scaled = mantissa * 100;
+		long hundredths;
+		if (shift <= 0) {
+			hundredths = scaled << -shift;
+		}
+		else if (shift > 61) {
+			// scaled is below 2^60, so the value is below half a hundredth.
+			hundredths = 0;
+		}
+		else {
+			hundredths = scaled >>> shift;
+			long rest = scaled & ((1L << shift) - 1);
+			long half = 1L << (shift - 1);
+			if (rest > half || (rest == half && (hundredths & 1) == 1)) {
+				hundredths++;
+			}
+		}
+		writeHundredths(hundredths, false);
+	}
+
+} // class
@@ -0,0 +1,166 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+
+/**
+ * Where the columns a TreeLoader reads are on a census line.
+ * The 2015 Street Tree Census always has the same columns (CENSUS_2015). The 1995 and 2005 censuses call some of them
+ * differently (i.e.: recordid or objectid instead of tree_id, diameter instead of tree_dbh, borough instead of boroname)
+ * and put them elsewhere, so their columns are found by name in the header line, see fromHeader.
+ * They also have no health column: their status column holds the condition of the tree (Excellent, Good, Fair, Poor,
+ * Critical, Dead, Shaft or Stump), which stands for both a status and a health, see CONDITIONS.
+ */
+public class CensusSchema {
+
+	// Names a column has in the 2015, 2005 and 1995 censuses (compared ignoring case), in the order they are looked for.
+	private static final String[][] COLUMN_NAMES = {
+			{ "tree_id", "objectid", "recordid" },
+			{ "tree_dbh", "diameter", "dbh" },
+			{ "status" },
+			{ "health" },
+			{ "spc_common" },
+			{ "zipcode", "postcode", "zip_new", "zip_original" },
+			{ "boroname", "borough" },
+			{ "x_sp", "x" },
+			{ "y_sp", "y" } };
+	private static final int HEALTH_COLUMN = 3;
+
+	// Conditions of the older censuses, and the status and health code each one stands for.
+	static final String[] CONDITIONS = { "Excellent", "Good", "Fair", "Poor", "Critical", "Dead", "Shaft", "Stump" };
+	static final int[] CONDITION_STATUS_CODES = { 1, 1, 1, 1, 1, 2, 3, 3 };
+	static final int[] CONDITION_HEALTH_CODES = { 1, 1, 2, 3, 3, 0, 0, 0 };
+
+	static final CensusSchema CENSUS_2015 = new CensusSchema(new int[] { TreeLoader.TREE_ID, TreeLoader.TREE_DBH,
+			TreeLoader.STATUS, TreeLoader.HEALTH, TreeLoader.SPC_COMMON, TreeLoader.ZIPCODE, TreeLoader.BORONAME,
+			TreeLoader.X_SP, TreeLoader.Y_SP }, "tree_id");
+
+	// Field of every column that is read, -1 for a health column the census does not have.
+	final int treeId;
+	final int treeDbh;
+	final int status;
+	final int health;
+	final int spcCommon;
+	final int zipcode;
+	final int boroname;
+	final int xSp;
+	final int ySp;
+	// Number of fields of a line that need to be tokenized to get every column.
+	final int fieldCount;
+	// Name of the tree id column as it is in the header, so a repeated header line can be recognized.
+	final String treeIdName;
+
+	/**
+	 * CensusSchema constructor.
+	 * Takes the field of every column in the order of COLUMN_NAMES.
+	 *
+	 * @param fields
+	 * @param treeIdName
+	 */
+	private CensusSchema(int[] fields, String treeIdName) {
+		this.treeId = fields[0];
+		this.treeDbh = fields[1];
+		this.status = fields[2];
+		this.health = fields[3];
+		this.spcCommon = fields[4];
+		this.zipcode = fields[5];
+		this.boroname = fields[6];
+		this.xSp = fields[7];
+		this.ySp = fields[8];
+		int last = 0;
+		for (int field : fields) {
+			last = Math.max(last, field);
+		}
+		this.fieldCount = last + 1;
+		this.treeIdName = treeIdName;
+	}
+
+	/**
+	 * Finds the columns by name on the tokenizer's current line, or returns null if the line is not a census header
+	 * because a column other than health is missing. A 2015 header gives the same columns as CENSUS_2015.
+	 *
+	 * @param tokenizer
+	 * @return CensusSchema
+	 */
+	static CensusSchema fromHeader(CSVTokenizer tokenizer) {
+		String[] names = new String[tokenizer.getFieldCount()];
+		for (int field = 0; field < names.length; field++) {
+			// Leave out a byte order mark in front of the first name.
+			names[field] = tokenizer.getString(field).replace("\uFEFF", "").trim();
+		}
+		int[] columns = new int[COLUMN_NAMES.length];
+		for (int column = 0; column < COLUMN_NAMES.length; column++) {
+			columns[column] = findColumn(names, COLUMN_NAMES[column]);
+			if (columns[column] < 0 && column != HEALTH_COLUMN) {
+				return null;
+			}
+		}
+		return new CensusSchema(columns, names[columns[0]]);
+	}
+
+	/**
+	 * Reads the columns from the header on the first line of buf, which ends at the first line break before end (or at
+	 * end), or returns CENSUS_2015 if the data does not start with a header.
+	 *
+	 * @param buf
+	 * @param end
+	 * @return CensusSchema
+	 */
+	static CensusSchema fromFirstLine(ByteBuffer buf, int end) {
+		int length = 0;
+		while (length < end && buf.get(length) != '\n') {
+			length++;
+		}
+		if (length > 0 && buf.get(length - 1) == '\r') {
+			length--;
+		}
+		CSVTokenizer tokenizer = new CSVTokenizer();
+		tokenizer.tokenize(buf, 0, length);
+		CensusSchema schema = fromHeader(tokenizer);
+		return (schema != null) ? schema : CENSUS_2015;
+	}
+
+	/**
+	 * Returns the field with the first of the given names that is in the header, or -1 if none of them is.
+	 */
+	private static int findColumn(String[] header, String[] names) {
+		for (String name : names) {
+			for (int field = 0; field < header.length; field++) {
+				if (header[field].equalsIgnoreCase(name)) {
+					return field;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks whether the census has a health column; if not, the status column holds the condition of the tree.
+	 *
+	 * @return boolean
+	 */
+	boolean hasHealth() {
+		return health >= 0;
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the name of the tree id column and the field of every column.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s=%d tree_dbh=%d status=%d health=%d spc_common=%d zipcode=%d boroname=%d x_sp=%d y_sp=%d",
+				treeIdName, treeId, treeDbh, status, health, spcCommon, zipcode, boroname, xSp, ySp);
+	}
+
+} // class
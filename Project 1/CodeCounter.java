@@ -0,0 +1,146 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.Arrays;
+
+/**
+ * Counts, in one pass over the species and borough code columns of a TreeStore, the rows of each borough whose species
+ * code is one of a set of codes, and all rows of each borough. This answers a species query without the count cube or
+ * the indexes (see SpeciesReport.byScanning), so it has to keep up with memory.
+ * When the JVM has the jdk.incubator.vector module (java --add-modules jdk.incubator.vector) VectorCodeCounter does it
+ * with SIMD instructions, many rows at a time; otherwise, or when the codes are too scattered to compare in a few
+ * steps, a scalar loop does. Both give exactly the same counts.
+ */
+public class CodeCounter {
+
+	// Whether VectorCodeCounter can be used: the module was added and -Dtrees.vector=false was not passed.
+	// VectorCodeCounter is only loaded if it is, so the program runs without the module too.
+	static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+			&& !"false".equals(System.getProperty("trees.vector"));
+	// Sets of codes that fall into more runs of consecutive codes than this are counted by the scalar loop, every run
+	// costs the vector loop two instructions per vector.
+	static final int MAX_VECTOR_RANGES = 32;
+
+	private CodeCounter() {
+	}
+
+	/**
+	 * Counts the rows [0, size) whose species code is one of targets in each borough, and adds every row to the total
+	 * of its borough.
+	 *
+	 * @param speciesCodes
+	 * @param boroughCodes
+	 * @param size
+	 * @param targets species codes to count, in any order
+	 * @param totals number of rows per borough code, filled in
+	 * @return number of matching rows per borough code
+	 */
+	public static int[] countByBorough(short[] speciesCodes, byte[] boroughCodes, int size, int[] targets, int[] totals) {
+		int[][] ranges = ranges(targets);
+		if (!VECTOR_AVAILABLE || ranges[0].length > MAX_VECTOR_RANGES) {
+			return countByBoroughScalar(speciesCodes, boroughCodes, size, targets, totals);
+		}
+		int[] counts = new int[totals.length];
+		Arrays.fill(totals, 0);
+		int row = VectorCodeCounter.count(speciesCodes, boroughCodes, size, ranges[0], ranges[1], counts, totals);
+		// The rows that do not fill a whole vector.
+		count(speciesCodes, boroughCodes, row, size, targets, counts, totals);
+		return counts;
+	}
+
+	/**
+	 * Checks whether countByBorough would count the given species codes with the vector loop.
+	 *
+	 * @param targets
+	 * @return boolean
+	 */
+	public static boolean isVectorized(int[] targets) {
+		return VECTOR_AVAILABLE && ranges(targets)[0].length <= MAX_VECTOR_RANGES;
+	}
+
+	/**
+	 * Does the same as countByBorough one row at a time.
+	 *
+	 * @param speciesCodes
+	 * @param boroughCodes
+	 * @param size
+	 * @param targets
+	 * @param totals
+	 * @return number of matching rows per borough code
+	 */
+	public static int[] countByBoroughScalar(short[] speciesCodes, byte[] boroughCodes, int size, int[] targets, int[] totals) {
+		int[] counts = new int[totals.length];
+		Arrays.fill(totals, 0);
+		count(speciesCodes, boroughCodes, 0, size, targets, counts, totals);
+		return counts;
+	}
+
+	/**
+	 * Adds the rows [from, to) to counts and totals one at a time.
+	 *
+	 * @param speciesCodes
+	 * @param boroughCodes
+	 * @param from
+	 * @param to
+	 * @param targets
+	 * @param counts
+	 * @param totals
+	 */
+	static void count(short[] speciesCodes, byte[] boroughCodes, int from, int to, int[] targets, int[] counts, int[] totals) {
+		int largest = -1;
+		for (int target : targets) {
+			largest = Math.max(largest, target);
+		}
+		boolean[] matches = new boolean[largest + 1];
+		for (int target : targets) {
+			if (target >= 0) {
+				matches[target] = true;
+			}
+		}
+		for (int row = from; row < to; row++) {
+			int boroughCode = boroughCodes[row];
+			int speciesCode = speciesCodes[row];
+			totals[boroughCode]++;
+			if (speciesCode < matches.length && matches[speciesCode]) {
+				counts[boroughCode]++;
+			}
+		}
+	}
+
+	/**
+	 * Splits a set of codes into runs of consecutive codes.
+	 *
+	 * @param targets
+	 * @return the lowest code of every run, and the highest
+	 */
+	static int[][] ranges(int[] targets) {
+		int[] sorted = targets.clone();
+		Arrays.sort(sorted);
+		int[] lows = new int[sorted.length];
+		int[] highs = new int[sorted.length];
+		int runs = 0;
+		for (int target : sorted) {
+			if (target < 0 || target > Short.MAX_VALUE) {
+				continue;
+			}
+			if (runs > 0 && target <= highs[runs - 1] + 1) {
+				highs[runs - 1] = Math.max(highs[runs - 1], target);
+			}
+			else {
+				lows[runs] = target;
+				highs[runs] = target;
+				runs++;
+			}
+		}
+		return new int[][] { Arrays.copyOf(lows, runs), Arrays.copyOf(highs, runs) };
+	}
+
+} // class
@@ -0,0 +1,132 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens census files that may be compressed with gzip or zstd, so archived extracts can be loaded without
+ * decompressing them to disk first. The compression is recognized by the first bytes of the data, not by the file name.
+ * gzip is read with the JDK's GZIPInputStream. The JDK cannot read zstd, so zstd files are read with the
+ * ZstdInputStream of zstd-jni (com.github.luben:zstd-jni), which is looked up when it is needed and only has to be on
+ * the class path to read zstd files.
+ */
+public class CompressedInput {
+
+	/**
+	 * How the data is compressed.
+	 */
+	public enum Compression {
+		NONE,
+		GZIP,
+		ZSTD
+	}
+
+	private static final String ZSTD_INPUT_STREAM = "com.github.luben.zstd.ZstdInputStream";
+	// Size of the buffer compressed bytes are read into.
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private CompressedInput() {
+	}
+
+	/**
+	 * Returns how the given file is compressed.
+	 *
+	 * @param file
+	 * @return Compression
+	 * @throws IOException
+	 */
+	public static Compression compressionOf(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			byte[] magic = new byte[4];
+			int length = in.readNBytes(magic, 0, magic.length);
+			return compressionOf(magic, length);
+		}
+	}
+
+	/**
+	 * Returns how data starting with the given bytes is compressed.
+	 */
+	private static Compression compressionOf(byte[] magic, int length) {
+		if (length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+			return Compression.GZIP;
+		}
+		if (length >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5 && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+			return Compression.ZSTD;
+		}
+		return Compression.NONE;
+	}
+
+	/**
+	 * Opens the given file and returns a stream of its decompressed data (or of the file itself if it is not compressed).
+	 *
+	 * @param file
+	 * @return InputStream
+	 * @throws IOException
+	 */
+	public static InputStream open(File file) throws IOException {
+		return decompress(new FileInputStream(file));
+	}
+
+	/**
+	 * Returns a stream of the decompressed data of the given stream, or of the stream itself if it is not compressed.
+	 * Closing the returned stream closes the given one.
+	 *
+	 * @param in
+	 * @return InputStream
+	 * @throws IOException
+	 */
+	public static InputStream decompress(InputStream in) throws IOException {
+		BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+		byte[] magic = new byte[4];
+		buffered.mark(magic.length);
+		int length = buffered.readNBytes(magic, 0, magic.length);
+		buffered.reset();
+		switch (compressionOf(magic, length)) {
+			case GZIP:
+				// Also reads files of several gzip members one after another, as pigz and cat write them.
+				return new GZIPInputStream(buffered, BUFFER_SIZE);
+			case ZSTD:
+				return zstd(buffered);
+			default:
+				return buffered;
+		}
+	}
+
+	/**
+	 * Returns a zstd-jni ZstdInputStream over the given stream.
+	 *
+	 * @param in
+	 * @return InputStream
+	 * @throws IOException
+	 */
+	private static InputStream zstd(InputStream in) throws IOException {
+		try {
+			return (InputStream) Class.forName(ZSTD_INPUT_STREAM).getConstructor(InputStream.class).newInstance(in);
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			in.close();
+			throw new IOException("Reading zstd compressed data needs zstd-jni (com.github.luben:zstd-jni) on the class path.", e);
+		}
+		catch (InvocationTargetException e) {
+			in.close();
+			if (e.getCause() instanceof IOException)
+				throw (IOException) e.getCause();
+			throw new IOException("Could not read the zstd compressed data: " + e.getCause(), e.getCause());
+		}
+		catch (ReflectiveOperationException e) {
+			in.close();
+			throw new IOException("Could not read the zstd compressed data: " + e, e);
+		}
+	}
+
+} // class
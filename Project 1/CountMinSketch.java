@@ -0,0 +1,138 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+/**
+ * Count-Min sketch: approximate counts of any number of distinct keys in a fixed table of depth x width counters.
+ * Every key adds its count to one counter per table row and its estimate is the smallest of those counters, so an
+ * estimate is never too low and, with probability 1 - delta, too high by at most epsilon times the total of all counts
+ * added (width = e / epsilon, depth = ln(1 / delta)).
+ */
+public class CountMinSketch {
+
+	private final double epsilon;
+	private final double delta;
+	private final int width;
+	private final int depth;
+	// Row i of the table is counters[i * width] to counters[i * width + width - 1].
+	private final long[] counters;
+	private long total;
+
+	/**
+	 * CountMinSketch constructor.
+	 * Creates an empty sketch whose estimates are at most epsilon * total too high with probability 1 - delta.
+	 *
+	 * @param epsilon
+	 * @param delta
+	 * @throws IllegalArgumentException
+	 */
+	public CountMinSketch(double epsilon, double delta) throws IllegalArgumentException {
+		if (!(epsilon > 0 && epsilon < 1))
+			throw new IllegalArgumentException("The error of a Count-Min sketch must be between 0 and 1.");
+		if (!(delta > 0 && delta < 1))
+			throw new IllegalArgumentException("The failure probability of a Count-Min sketch must be between 0 and 1.");
+		long cells = (long) Math.ceil(Math.E / epsilon) * (long) Math.ceil(Math.log(1 / delta));
+		if (cells > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("A Count-Min sketch that exact does not fit in memory.");
+		this.epsilon = epsilon;
+		this.delta = delta;
+		this.width = (int) Math.ceil(Math.E / epsilon);
+		this.depth = (int) Math.ceil(Math.log(1 / delta));
+		this.counters = new long[width * depth];
+	}
+
+	/**
+	 * Adds count to the given key.
+	 *
+	 * @param key
+	 * @param count
+	 */
+	public void add(long key, long count) {
+		long hash = mix(key);
+		// Two halves of one good hash give every row its own hash (h1 + i * h2), see Kirsch and Mitzenmacher.
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int row = 0; row < depth; row++) {
+			counters[row * width + Math.floorMod(h1 + row * h2, width)] += count;
+		}
+		total += count;
+	}
+
+	/**
+	 * Returns the estimated count of the given key: never less than its true count, and with probability 1 - delta at
+	 * most getErrorBound() more.
+	 *
+	 * @param key
+	 * @return long
+	 */
+	public long estimate(long key) {
+		long hash = mix(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		long estimate = Long.MAX_VALUE;
+		for (int row = 0; row < depth; row++) {
+			estimate = Math.min(estimate, counters[row * width + Math.floorMod(h1 + row * h2, width)]);
+		}
+		return estimate;
+	}
+
+	/**
+	 * Spreads the bits of a key over the whole long (the finalizer of SplitMix64), so keys that differ in a few bits
+	 * land in unrelated counters.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Getter that returns how much too high an estimate can be (with probability 1 - delta): epsilon times the total
+	 * of everything added so far.
+	 *
+	 * @return double
+	 */
+	public double getErrorBound() {
+		return epsilon * total;
+	}
+
+	public double getEpsilon() {
+		return epsilon;
+	}
+
+	public double getDelta() {
+		return delta;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Getter that returns the number of bytes the counters take, which does not change as keys are added.
+	 *
+	 * @return long
+	 */
+	public long getMemoryBytes() {
+		return 8L * counters.length;
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the size of the table and its error bounds.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		return String.format("Count-Min sketch of %d x %,d counters (%,d KB): error at most %s of %,d with %s%% confidence",
+				depth, width, getMemoryBytes() / 1024, epsilon, total, 100 * (1 - delta));
+	}
+
+} // class
@@ -0,0 +1,296 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Distribution of the trunk diameters (tree_dbh, in inches) of a group of trees, kept as the number of trees per
+ * diameter. Every diameter below EXACT_LIMIT has its own bucket, which covers nearly every tree of the census, so the
+ * median, percentiles and histograms are exact there; above it the range of every power of two is split into
+ * SUB_BUCKETS buckets and the answers are within about 6%.
+ * Distributions can be added together (and trees taken out again), so TreeCountCube keeps one per species and borough
+ * as the trees are loaded and adds them up for a query instead of looking at the trees.
+ */
+public class DiameterDistribution {
+
+	// Diameters below this have a bucket each.
+	static final int EXACT_LIMIT = 128;
+	private static final int EXACT_BITS = 7;
+	// Buckets per power of two above EXACT_LIMIT.
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	// Lower bounds of the diameter classes of getHistogram(), 6 inches wide with everything from 42 inches on in the last.
+	static final int[] DEFAULT_CLASSES = { 0, 6, 12, 18, 24, 30, 36, 42 };
+
+	// counts[bucket] is the number of trees in that bucket. The array only grows as far as the largest diameter seen.
+	private int[] counts = new int[0];
+	private int total;
+	private long sum;
+
+	/**
+	 * DiameterDistribution constructor.
+	 * Initializes a distribution without any trees.
+	 */
+	public DiameterDistribution() {
+	}
+
+	/**
+	 * Returns the bucket of a diameter.
+	 */
+	private static int bucketOf(int diam) {
+		if (diam < EXACT_LIMIT) {
+			return diam;
+		}
+		int shift = 31 - Integer.numberOfLeadingZeros(diam) - SUB_BUCKET_BITS;
+		return EXACT_LIMIT + (shift - EXACT_BITS + SUB_BUCKET_BITS) * SUB_BUCKETS + (diam >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the smallest diameter that falls into the given bucket.
+	 */
+	private static int lowestValueOf(int bucket) {
+		if (bucket < EXACT_LIMIT) {
+			return bucket;
+		}
+		int shift = (bucket - EXACT_LIMIT) / SUB_BUCKETS + EXACT_BITS - SUB_BUCKET_BITS;
+		return ((bucket - EXACT_LIMIT) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+	}
+
+	/**
+	 * Adds delta trees (or takes them out if delta is negative) with the given diameter.
+	 *
+	 * @param diam
+	 * @param delta
+	 */
+	void add(int diam, int delta) {
+		int bucket = bucketOf(diam);
+		if (bucket >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(bucket + 1, Math.min(counts.length * 2, EXACT_LIMIT)));
+		}
+		counts[bucket] += delta;
+		total += delta;
+		sum += (long) diam * delta;
+	}
+
+	/**
+	 * Adds all trees of another distribution to this one.
+	 *
+	 * @param other
+	 */
+	void addAll(DiameterDistribution other) {
+		if (other.counts.length > counts.length) {
+			counts = Arrays.copyOf(counts, other.counts.length);
+		}
+		for (int bucket = 0; bucket < other.counts.length; bucket++) {
+			counts[bucket] += other.counts[bucket];
+		}
+		total += other.total;
+		sum += other.sum;
+	}
+
+	/**
+	 * Returns the number of bytes writeSnapshot writes.
+	 *
+	 * @return long
+	 */
+	long snapshotSize() {
+		return 4 + 4 + 8 + 4L * counts.length;
+	}
+
+	/**
+	 * Writes the number of trees, the sum of their diameters and the buckets to out, the buckets as one block of ints.
+	 *
+	 * @param out
+	 */
+	void writeSnapshot(ByteBuffer out) {
+		out.putInt(counts.length);
+		out.putInt(total);
+		out.putLong(sum);
+		out.asIntBuffer().put(counts);
+		out.position(out.position() + 4 * counts.length);
+	}
+
+	/**
+	 * Creates a distribution from data written by writeSnapshot, copying the buckets in bulk.
+	 *
+	 * @param in
+	 * @return DiameterDistribution
+	 */
+	static DiameterDistribution readSnapshot(ByteBuffer in) {
+		DiameterDistribution distribution = new DiameterDistribution();
+		distribution.counts = new int[in.getInt()];
+		distribution.total = in.getInt();
+		distribution.sum = in.getLong();
+		in.asIntBuffer().get(distribution.counts);
+		in.position(in.position() + 4 * distribution.counts.length);
+		return distribution;
+	}
+
+	/**
+	 * Getter that returns the number of trees in the distribution.
+	 *
+	 * @return integer
+	 */
+	public int getCount() {
+		return total;
+	}
+
+	/**
+	 * Getter that returns the mean diameter, or 0 if there are no trees.
+	 *
+	 * @return double
+	 */
+	public double getMean() {
+		return (total == 0) ? 0 : (double) sum / total;
+	}
+
+	/**
+	 * Returns the smallest diameter d such that at least the given fraction of the trees (i.e.: 0.9 for the 90th
+	 * percentile) has a diameter of d or less, or 0 if there are no trees.
+	 *
+	 * @param fraction
+	 * @return integer
+	 */
+	public int getQuantile(double fraction) {
+		if (total <= 0) {
+			return 0;
+		}
+		long wanted = Math.max(1, (long) Math.ceil(total * Math.min(1, Math.max(0, fraction))));
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			seen += counts[bucket];
+			if (seen >= wanted) {
+				return lowestValueOf(bucket);
+			}
+		}
+		return getMax();
+	}
+
+	public int getMedian() {
+		return getQuantile(0.5);
+	}
+
+	public int getP90() {
+		return getQuantile(0.9);
+	}
+
+	/**
+	 * Getter that returns the smallest diameter, or 0 if there are no trees.
+	 *
+	 * @return integer
+	 */
+	public int getMin() {
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			if (counts[bucket] > 0) {
+				return lowestValueOf(bucket);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Getter that returns the largest diameter, or 0 if there are no trees.
+	 *
+	 * @return integer
+	 */
+	public int getMax() {
+		for (int bucket = counts.length - 1; bucket >= 0; bucket--) {
+			if (counts[bucket] > 0) {
+				return lowestValueOf(bucket);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Counts the trees in each diameter class. Class i goes from lowerBounds[i] up to (not including) lowerBounds[i + 1],
+	 * and the last class has every diameter from its lower bound on. The bounds must be increasing; bounds above
+	 * EXACT_LIMIT are rounded to the buckets.
+	 *
+	 * @param lowerBounds
+	 * @return int array with the number of trees in each class
+	 */
+	public int[] getHistogram(int[] lowerBounds) {
+		int[] histogram = new int[lowerBounds.length];
+		int diameterClass = -1;
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			int diam = lowestValueOf(bucket);
+			while (diameterClass + 1 < lowerBounds.length && lowerBounds[diameterClass + 1] <= diam) {
+				diameterClass++;
+			}
+			if (diameterClass >= 0) {
+				histogram[diameterClass] += counts[bucket];
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Counts the trees in each of the DEFAULT_CLASSES.
+	 *
+	 * @return int array
+	 */
+	public int[] getHistogram() {
+		return getHistogram(DEFAULT_CLASSES);
+	}
+
+	/**
+	 * Returns the name of a diameter class for printing (i.e.: "6-11" or "42+").
+	 *
+	 * @param lowerBounds
+	 * @param diameterClass
+	 * @return String
+	 */
+	static String className(int[] lowerBounds, int diameterClass) {
+		if (diameterClass == lowerBounds.length - 1) {
+			return lowerBounds[diameterClass] + "+";
+		}
+		return lowerBounds[diameterClass] + "-" + (lowerBounds[diameterClass + 1] - 1);
+	}
+
+	/**
+	 * Returns the number of trees, the mean, median, 90th percentile, smallest and largest diameter and the histogram
+	 * of the DEFAULT_CLASSES as a JSON object.
+	 *
+	 * @return String
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"trees\": ").append(total)
+				.append(", \"mean\": ").append(Math.round(getMean() * 100) / 100.0)
+				.append(", \"median\": ").append(getMedian())
+				.append(", \"p90\": ").append(getP90())
+				.append(", \"min\": ").append(getMin())
+				.append(", \"max\": ").append(getMax())
+				.append(", \"histogram\": {");
+		int[] histogram = getHistogram();
+		for (int diameterClass = 0; diameterClass < histogram.length; diameterClass++) {
+			json.append(diameterClass == 0 ? "" : ", ").append(NYCStreetTrees.jsonString(className(DEFAULT_CLASSES, diameterClass)))
+					.append(": ").append(histogram[diameterClass]);
+		}
+		return json.append("}}").toString();
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the number of trees and the mean, median, 90th percentile and largest diameter.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		return String.format("%,d trees, mean %.1f in, median %d in, p90 %d in, max %d in",
+				total, getMean(), getMedian(), getP90(), getMax());
+	}
+
+} // class
@@ -0,0 +1,110 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+/**
+ * HyperLogLog: estimates how many distinct values were added using 2^precision one byte registers, however many
+ * values there are. Each value is hashed; the first precision bits of the hash pick a register, which keeps the
+ * longest run of leading zeros seen in the rest. The relative standard error is 1.04 / sqrt(2^precision), for example
+ * 0.81% with the default precision of 14 (16 KB).
+ */
+public class HyperLogLog {
+
+	static final int DEFAULT_PRECISION = 14;
+	static final int MIN_PRECISION = 4;
+	static final int MAX_PRECISION = 18;
+
+	private final int precision;
+	private final byte[] registers;
+
+	/**
+	 * HyperLogLog constructor.
+	 * Creates an empty counter with 2^precision registers.
+	 *
+	 * @param precision
+	 * @throws IllegalArgumentException
+	 */
+	public HyperLogLog(int precision) throws IllegalArgumentException {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION)
+			throw new IllegalArgumentException("The precision of a HyperLogLog must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ".");
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	/**
+	 * Adds a value.
+	 *
+	 * @param value
+	 */
+	public void add(long value) {
+		long hash = mix(value);
+		int register = (int) (hash >>> (64 - precision));
+		// Position of the first 1 bit after the register bits (a sentinel bit stops the count at 64 - precision + 1).
+		int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+		if (rank > registers[register]) {
+			registers[register] = (byte) rank;
+		}
+	}
+
+	/**
+	 * Spreads the bits of a value over the whole long (the finalizer of SplitMix64).
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns the estimated number of distinct values added.
+	 *
+	 * @return long
+	 */
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int zeros = 0;
+		for (byte rank : registers) {
+			sum += 1.0 / (1L << rank);
+			if (rank == 0) {
+				zeros++;
+			}
+		}
+		double alpha = 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		// Few values leave many registers empty, which linear counting estimates better.
+		if (estimate <= 2.5 * m && zeros > 0) {
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Getter that returns the relative standard error of the estimates.
+	 *
+	 * @return double
+	 */
+	public double getStandardError() {
+		return 1.04 / Math.sqrt(registers.length);
+	}
+
+	public int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Getter that returns the number of bytes the registers take, which does not change as values are added.
+	 *
+	 * @return long
+	 */
+	public long getMemoryBytes() {
+		return registers.length;
+	}
+
+} // class
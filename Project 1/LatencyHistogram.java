@@ -0,0 +1,188 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of how long the calls of one query method took, in the style of an HDR histogram: the range of every power
+ * of two is split into SUB_BUCKETS buckets of equal width, so every recorded time is kept to within about 3% with a
+ * fixed, small array and recording a call is a few additions without any locks. Any number of threads can record and
+ * read at the same time.
+ */
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+	// Buckets per power of two, which sets the precision (1/32 of the value).
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Enough buckets for every non-negative long.
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * LatencyHistogram constructor.
+	 * Creates an empty histogram for the calls of the named query method.
+	 *
+	 * @param name
+	 */
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Records a call that started at startNanos (a value of System.nanoTime) and has just finished.
+	 *
+	 * @param startNanos
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Records a call that took the given number of nanoseconds.
+	 *
+	 * @param nanos
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(bucketOf(nanos));
+		count.increment();
+		totalNanos.add(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	/**
+	 * Returns the bucket of a value: values below 2 * SUB_BUCKETS have a bucket each, larger values share a bucket with
+	 * the values that have the same highest SUB_BUCKET_BITS + 1 bits.
+	 */
+	private static int bucketOf(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the largest value that falls into the given bucket.
+	 */
+	private static long highestValueOf(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Returns the time in nanoseconds that the given percentage of the calls took at most (i.e.: 99 for the 99th
+	 * percentile), or 0 if nothing was recorded.
+	 *
+	 * @param percentile
+	 * @return long
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		long[] counts = new long[BUCKETS];
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			counts[bucket] = buckets.get(bucket);
+			total += counts[bucket];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long wanted = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts[bucket];
+			if (seen >= wanted) {
+				// A bucket is wider than a single value, but never report more than the slowest call.
+				return Math.min(highestValueOf(bucket), maxNanos.get());
+			}
+		}
+		return maxNanos.get();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getMeanMicros() {
+		long calls = count.sum();
+		return (calls == 0) ? 0 : totalNanos.sum() / 1e3 / calls;
+	}
+
+	@Override
+	public double getMedianMicros() {
+		return getValueAtPercentile(50) / 1e3;
+	}
+
+	@Override
+	public double getP90Micros() {
+		return getValueAtPercentile(90) / 1e3;
+	}
+
+	@Override
+	public double getP99Micros() {
+		return getValueAtPercentile(99) / 1e3;
+	}
+
+	@Override
+	public double getP999Micros() {
+		return getValueAtPercentile(99.9) / 1e3;
+	}
+
+	@Override
+	public double getMaxMicros() {
+		return maxNanos.get() / 1e3;
+	}
+
+	@Override
+	public void reset() {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			buckets.set(bucket, 0);
+		}
+		count.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the number of calls and the mean, median, 90th, 99th percentile and slowest time.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		return String.format("%s: %,d calls, mean %,.1f us, p50 %,.1f us, p90 %,.1f us, p99 %,.1f us, max %,.1f us",
+				name, getCount(), getMeanMicros(), getMedianMicros(), getP90Micros(), getP99Micros(), getMaxMicros());
+	}
+
+} // class
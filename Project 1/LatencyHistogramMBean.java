@@ -0,0 +1,32 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+/**
+ * The attributes of a LatencyHistogram that are published over JMX, one MBean per query method.
+ */
+public interface LatencyHistogramMBean {
+
+	long getCount();
+
+	double getMeanMicros();
+
+	double getMedianMicros();
+
+	double getP90Micros();
+
+	double getP99Micros();
+
+	double getP999Micros();
+
+	double getMaxMicros();
+
+	void reset();
+
+} // interface
@@ -15,18 +15,18 @@ import java.text.DecimalFormat;
 
 public class NYCStreetTrees {
 
-	// Instantiate a new TreeList object to create an ArrayList of Tree objects that will be populated later.
-	static TreeList myTreeList = new TreeList();
+	// Instantiate a new TreeStore object that will hold the trees column by column once it is populated later.
+	static TreeStore myTreeList = new TreeStore();
 	
 	/**
 	 * Main method.
 	 * Open's the file containing the tree data and splits it line by line. 
-	 * Populates an ArrayList of type TreeList with Tree objects from each line in the file.
+	 * Populates a TreeStore with the trees from each line in the file.
 	 * 
 	 * @param args
-	 * @throws FileNotFoundException
+	 * @throws IOException
 	 */
-	public static void main(String[] args) throws FileNotFoundException {
+	public static void main(String[] args) throws IOException {
 		
 		// Check to see if the file was passed as a command line argument.
 		// If it wasn't, print out an error message.
@@ -38,32 +38,98 @@ public class NYCStreetTrees {
 		else if (args[0] == null) {
 			System.err.println("Error: The file cannot be opened.");
 		}
+		// In streaming mode the trees are only counted, never stored, and the species given with --query are reported.
+		else if (hasFlag(args, "--stream")) {
+			setUpMetrics(args);
+			streamReports(args);
+		}
 		// If it was, start analyzing the data.
 		else if (args.length > 0) {
+			setUpMetrics(args);
+			
+			// Populate myTreeList from the file (or from its snapshot if there is an up to date one), with the --delta
+			// change sets applied and the rows sorted by species if --cluster was passed.
+			myTreeList = prepareTrees(new File(args[0]), args);
 			
-			// Store the file in a new Scanner variable.
-			Scanner file = new Scanner(new File(args[0]));
+			// Compare the census with the earlier ones given with --compare and stop.
+			if (!getOptions(args, "--compare").isEmpty()) {
+				compareCensuses(myTreeList, args);
+				return;
+			}
 			
-			// Loop through the lines in the file.
-			while (file.hasNext()) {
-				// Store each line.
-				String line = file.nextLine();
-				// Add each line to a String ArrayList and call the splitCSVLine() with the line as a parameter to split up the data.
-				ArrayList<String> splitLine = splitCSVLine(line);
-				// Make sure to skip the first line of the text file (the first line is just the headers).
-				// To do this, check if the first element of the first line is NOT equal to the String "tree_id" (if it is not, then 
-				// the if statement will continue and Tree objects will be created).
-				// Make sure to skip blank/empty lines by checking to see if the first element is null/empty.
-				if ( (!splitLine.get(0).equals("tree_id")) && (splitLine.get(0) != null) && (!(splitLine.get(0).isEmpty())) ) {
-					// Create a new Tree object for each line.
-					// Grab the data from the specified columns from the data set (i.e.: tree_id is column 1 so that's 0).
-					Tree myTree = new Tree( Integer.parseInt(splitLine.get(0)), Integer.parseInt(splitLine.get(3)), splitLine.get(6), 
-									splitLine.get(7), splitLine.get(9), Integer.parseInt(splitLine.get(25)), splitLine.get(29), 
-									Double.parseDouble(splitLine.get(39)), Double.parseDouble(splitLine.get(40)));
-					// Add the Tree object to the myTreeList ArrayList that will store all of the Trees.
-					myTreeList.add(myTree);
+			// Write the report of every species with --report and stop.
+			if (hasFlag(args, "--report")) {
+				writeCensusReport(myTreeList.getCounts(), args);
+				return;
+			}
+			// Answer the queries given with --count and stop instead of asking for species.
+			ArrayList<String> countQueries = getOptions(args, "--count");
+			if (!countQueries.isEmpty()) {
+				for (String countQuery : countQueries) {
+					printCountReport(myTreeList, countQuery);
 				}
-			} // while loop
+				return;
+			}
+			// Print the trunk diameter distributions of the species given with --diameters and stop.
+			ArrayList<String> diameterQueries = getOptions(args, "--diameters");
+			if (!diameterQueries.isEmpty()) {
+				for (String diameterQuery : diameterQueries) {
+					printDiameterReport(myTreeList, diameterQuery);
+				}
+				return;
+			}
+			// Print the trees of the species whose names start with the --prefix values and stop.
+			ArrayList<String> prefixQueries = getOptions(args, "--prefix");
+			if (!prefixQueries.isEmpty()) {
+				for (String prefixQuery : prefixQueries) {
+					printPrefixReport(myTreeList, prefixQuery);
+				}
+				return;
+			}
+			// Answer the --scan species queries by counting in the columns instead of the count cube and stop.
+			ArrayList<String> scanQueries = getOptions(args, "--scan");
+			if (!scanQueries.isEmpty()) {
+				for (String scanQuery : scanQueries) {
+					long scanStart = System.nanoTime();
+					SpeciesReport report = SpeciesReport.byScanning(myTreeList, scanQuery);
+					long scanMicros = (System.nanoTime() - scanStart) / 1000;
+					printSpeciesReport(report, scanQuery);
+					String how = CodeCounter.isVectorized(myTreeList.matchSpecies(scanQuery)) ? "vectorized" : "scalar";
+					System.err.println(String.format("Scanned %,d trees for %s in %,d us (%s)", myTreeList.size(), scanQuery, scanMicros, how));
+				}
+				return;
+			}
+			// Answer every species query of the --batch file at once and stop.
+			if (getOption(args, "--batch", null) != null) {
+				ArrayList<String> queries = readQueries(getOption(args, "--batch", null));
+				printBatchReports(SpeciesReport.forQueries(myTreeList.getCounts(), queries), getOption(args, "--format", "text"));
+				return;
+			}
+			// Answer queries over HTTP instead of asking for species. The server's threads keep the program running.
+			if (getOption(args, "--serve", null) != null) {
+				TreeMetrics.registerMBeans();
+				// Build the spatial index before the first request so coordinate queries never wait for it. The other
+				// modes leave it to the first use that needs it.
+				buildSpatialIndex(myTreeList);
+				TreeServer server = new TreeServer(myTreeList);
+				String host = getOption(args, "--host", "127.0.0.1");
+				server.start(host, Integer.parseInt(getOption(args, "--serve", null)));
+				System.err.println(String.format("Serving %,d trees on http://%s:%d/", myTreeList.size(), host, server.getPort()));
+				// Load the census file again whenever it changes and serve the new data once it is ready.
+				if (getOption(args, "--watch", null) != null) {
+					TreeReloader reloader = new TreeReloader(server, new File(args[0]), args, (long) (Double.parseDouble(getOption(args, "--watch", null)) * 1000));
+					server.setReloader(reloader);
+					reloader.start();
+				}
+				return;
+			}
+			
+			// Repeated species queries are answered from a cache (--cache 0 turns it off).
+			int cacheSize = Integer.parseInt(getOption(args, "--cache", "64"));
+			QueryCache cache = null;
+			if (cacheSize > 0) {
+				cache = new QueryCache(myTreeList, cacheSize, QueryCache.Policy.valueOf(getOption(args, "--cache-policy", "lru").toUpperCase()));
+			}
 			
 			// Set up a new Scanner that will be used to get the users input.
 			Scanner input = new Scanner(System.in);
@@ -76,183 +142,13 @@ public class NYCStreetTrees {
 			while (!(userInput.equalsIgnoreCase("quit"))) {
 				System.out.println();
 				
-				System.out.println("All matching species: ");
-				// Set up an ArrayList that stores the matching tree species specified by the user.
-				ArrayList<String> speciesMatches = myTreeList.getMatchingSpecies(userInput);
-				// As long as the ArrayList has elements in it, loop through the list and print them out.
-				if ( !(speciesMatches.size() == 0) ) {
-					for (String match : speciesMatches) {
-						System.out.println("\t" + " " + match);
-					}
+				// Print out the matching species and their popularity in the city and the five boroughs.
+				if (cache != null) {
+					printSpeciesReport(cache.get(userInput), userInput);
 				}
 				else {
-					// If the ArrayList is empty, tell the user that no matches could be found.
-					System.out.println("There are no records of " + userInput + " trees on NYC streets.");
-					System.out.println();
-					// Reprompt the user.
-					System.out.println("Enter the tree species to learn more about it: (\"quit\" to stop): ");
-					// Store their new input.
-					userInput = input.nextLine();
-					// Use "continue" to start the loop from the beginning and search for matching species.
-					continue;
-				}
-
-				System.out.println();
-				// Print out the popularity of the tree in the entire city and the five boroughs.
-				System.out.println("Popularity in the city: ");
-				
-				// Set up a new DecimalFormat variable that will format the percentage of a specific tree in a specific borough to only have two decimal places.
-				DecimalFormat df = new DecimalFormat("##.##");
-			
-				// Get the number of matching trees (using the users input) in NYC.
-				int specificNYC = myTreeList.getCountByTreeSpecies(userInput);
-				// Check to see if the myTreeList size is NOT 0.
-				// This will prevent a divide by 0 error.
-				if (myTreeList.size() != 0) {
-					// Calculate the percentage of the specified tree in NYC.
-					double calculationNYC = ( (((double)(myTreeList.getCountByTreeSpecies(userInput)))/(myTreeList.size())) * (100) );
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "NYC", ": ");
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificNYC) + " (" + String.format("%,d", myTreeList.size()) + ") " + df.format(calculationNYC) + "%");
-				}
-				// If myTreeList equals 0, print out an error message.
-				else if (myTreeList.size() == 0) {
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "NYC", ": ");
-					// Set the percentage of the specified tree in NYC to 0.
-					double calculationNYC = 0;
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificNYC) + " (" + String.format("%,d", myTreeList.size()) + ") " + df.format(calculationNYC) + "%");
-				}
-				System.out.println();
-			
-				// Get the number of matching trees (using the users input) in Manhattan.
-				int specificManhattan = myTreeList.getCountByTreeSpeciesBorough(userInput, "Manhattan");
-				// Get the number of total trees in Manhattan.
-				int totalManhattan = myTreeList.getCountByBorough("Manhattan");
-				// Check to see if the totalManhattan size is NOT 0.
-				// This will prevent a divide by 0 error.
-				if (totalManhattan != 0) {
-					// Calculate the percentage of the specified tree in Manhattan.
-					double calculationManhattan = ( (((double)(specificManhattan))/totalManhattan) * (100) );
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Manhattan", ": ");
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificManhattan) + " (" + String.format("%,d", totalManhattan) + ") " + df.format(calculationManhattan) + "%");
-				}	
-				// If totalManhattan equals 0, print out an error message.
-				else if (totalManhattan == 0) {
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Manhattan", ": ");
-					// Set the percentage of the specified tree in Manhattan to 0.
-					double calculationManhattan = 0;
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificManhattan) + " (" + String.format("%,d", totalManhattan) + ") " + df.format(calculationManhattan) + "%");
-				}
-				System.out.println();
-				
-				// Get the number of matching trees (using the users input) in the Bronx.
-				int specificBronx = myTreeList.getCountByTreeSpeciesBorough(userInput, "Bronx");
-				// Get the number of total trees in the Bronx.
-				int totalBronx = myTreeList.getCountByBorough("Bronx");
-				// Check to see if the totalBronx size is NOT 0.
-				// This will prevent a divide by 0 error.
-				if (totalBronx != 0) {
-					// Calculate the percentage of the specified tree in the Bronx.
-					double calculationBronx = ( (((double)(specificBronx))/totalBronx) * (100) );
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Bronx", ": ");
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificBronx) + " (" + String.format("%,d", totalBronx) + ") " + df.format(calculationBronx) + "%");
-				}
-				// If totalBronx equals 0, print out an error message.
-				else if (totalBronx == 0) {
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Bronx", ": ");
-					// Set the percentage of the specified tree in the Bronx to 0.
-					double calculationBronx = 0;
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificBronx) + " (" + String.format("%,d", totalBronx) + ") " + df.format(calculationBronx) + "%");
-				}
-				System.out.println();
-				
-				// Get the number of matching trees (using the users input) in Brooklyn.
-				int specificBrooklyn = myTreeList.getCountByTreeSpeciesBorough(userInput, "Brooklyn");
-				// Get the number of total trees in Brooklyn.
-				int totalBrooklyn = myTreeList.getCountByBorough("Brooklyn");
-				// Check to see if the totalBrooklyn size is NOT 0.
-				// This will prevent a divide by 0 error.
-				if (totalBrooklyn != 0) {
-					// Calculate the percentage of the specified tree in Brooklyn.
-					double calculationBrooklyn = ( (((double)(specificBrooklyn))/totalBrooklyn) * (100) );
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Brooklyn", ": ");
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificBrooklyn) + " (" + String.format("%,d", totalBrooklyn) + ") " + df.format(calculationBrooklyn) + "%");
-				}
-				// If totalBrooklyn equals 0, print out an error message.
-				else if (totalBrooklyn == 0) {
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Brooklyn", ": ");
-					// Set the percentage of the specified tree in Brooklyn to 0.
-					double calculationBrooklyn = 0;
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificBrooklyn) + " (" + String.format("%,d", totalBrooklyn) + ") " + df.format(calculationBrooklyn) + "%");
+					printSpeciesReport(myTreeList, userInput);
 				}
-				System.out.println();
-				
-				// Get the number of matching trees (using the users input) in Queens.
-				int specificQueens = myTreeList.getCountByTreeSpeciesBorough(userInput, "Queens");
-				// Get the number of total trees in Queens.
-				int totalQueens = myTreeList.getCountByBorough("Queens");
-				// Check to see if the totalQueens size is NOT 0.
-				// This will prevent a divide by 0 error.
-				if (totalQueens != 0) {
-					// Calculate the percentage of the specified tree in Queens.
-					double calculationQueens = ( (((double)(specificQueens))/totalQueens) * (100) );
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Queens", ": ");
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificQueens) + " (" + String.format("%,d", totalQueens) + ") " + df.format(calculationQueens) + "%");
-				}	
-				// If totalQueens equals 0, print out an error message.
-				else if (totalQueens == 0) {
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Queens", ": ");
-					// Set the percentage of the specified tree in Queens to 0.
-					double calculationQueens = 0;
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificQueens) + " (" + String.format("%,d", totalQueens) + ") " + df.format(calculationQueens) + "%");
-				}
-				System.out.println();
-				
-				// Get the number of matching trees (using the users input) in Staten Island.
-				int specificSI = myTreeList.getCountByTreeSpeciesBorough(userInput, "Staten Island");
-				// Get the number of total trees in Staten Island.
-				int totalSI = myTreeList.getCountByBorough("Staten Island");
-				// Check to see if the totalSI size is NOT 0.
-				// This will prevent a divide by 0 error.
-				if (totalSI != 0) {
-					// Calculate the percentage of the specified tree in Staten Island.
-					double calculationSI = ( (((double)(specificSI))/totalSI) * (100) );
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Staten Island", ": ");
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificSI) + " (" + String.format("%,d", totalSI) + ") " + df.format(calculationSI) + "%");
-				}
-				// If totalSI equals 0, print out an error message.
-				else if (totalSI == 0) {
-					// Format the output using printf so the data prints out in column format.
-					System.out.printf("\t %-18s %s", "Staten Island", ": ");
-					// Set the percentage of the specified tree in Staten Island to 0.
-					double calculationSI = 0;
-					// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
-					System.out.print(String.format("%,d", specificSI) + " (" + String.format("%,d", totalSI) + ") " + df.format(calculationSI) + "%");
-				}
-				System.out.println();
-				
-				System.out.println();
 			
 				// Reprompt the user.
 				System.out.println("Enter the tree species to learn more about it: (\"quit\" to stop): ");
@@ -260,15 +156,885 @@ public class NYCStreetTrees {
 				userInput = input.nextLine();
 			}
 			
-			// Close the file scanner.
-			file.close();
 			// Close the input scanner.
 			input.close();
+			if (cache != null) {
+				System.err.println(cache);
+			}
 			
 		} // else block
 		
 	} // main method
 	
+	/**
+	 * Prints the species matching userInput and their popularity in the entire city and the five boroughs.
+	 * 
+	 * @param trees
+	 * @param userInput
+	 * @return false if no species matched userInput
+	 */
+	static boolean printSpeciesReport(TreeCounts trees, String userInput) {
+		System.out.println("All matching species: ");
+		// Set up an ArrayList that stores the matching tree species specified by the user.
+		ArrayList<String> speciesMatches = trees.getMatchingSpecies(userInput);
+		// As long as the ArrayList has elements in it, loop through the list and print them out.
+		if ( !(speciesMatches.size() == 0) ) {
+			for (String match : speciesMatches) {
+				System.out.println("\t" + " " + match);
+			}
+		}
+		else {
+			// If the ArrayList is empty, tell the user that no matches could be found.
+			System.out.println("There are no records of " + userInput + " trees on NYC streets.");
+			System.out.println();
+			return false;
+		}
+
+		System.out.println();
+		// Print out the popularity of the tree in the entire city and the five boroughs.
+		System.out.println("Popularity in the city: ");
+		
+		// Set up a new DecimalFormat variable that will format the percentage of a specific tree in a specific borough to only have two decimal places.
+		DecimalFormat df = new DecimalFormat("##.##");
+		
+		// Get the number of matching trees (using the users input) in NYC.
+		int specificNYC = trees.getCountByTreeSpecies(userInput);
+		// Check to see if the trees size is NOT 0.
+		// This will prevent a divide by 0 error.
+		if (trees.getTotalNumberOfTrees() != 0) {
+			// Calculate the percentage of the specified tree in NYC.
+			double calculationNYC = ( (((double)(trees.getCountByTreeSpecies(userInput)))/(trees.getTotalNumberOfTrees())) * (100) );
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "NYC", ": ");
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificNYC) + " (" + String.format("%,d", trees.getTotalNumberOfTrees()) + ") " + df.format(calculationNYC) + "%");
+		}
+		// If trees equals 0, print out an error message.
+		else if (trees.getTotalNumberOfTrees() == 0) {
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "NYC", ": ");
+			// Set the percentage of the specified tree in NYC to 0.
+			double calculationNYC = 0;
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificNYC) + " (" + String.format("%,d", trees.getTotalNumberOfTrees()) + ") " + df.format(calculationNYC) + "%");
+		}
+		System.out.println();
+		
+		// Get the number of matching trees (using the users input) in Manhattan.
+		int specificManhattan = trees.getCountByTreeSpeciesBorough(userInput, "Manhattan");
+		// Get the number of total trees in Manhattan.
+		int totalManhattan = trees.getCountByBorough("Manhattan");
+		// Check to see if the totalManhattan size is NOT 0.
+		// This will prevent a divide by 0 error.
+		if (totalManhattan != 0) {
+			// Calculate the percentage of the specified tree in Manhattan.
+			double calculationManhattan = ( (((double)(specificManhattan))/totalManhattan) * (100) );
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Manhattan", ": ");
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificManhattan) + " (" + String.format("%,d", totalManhattan) + ") " + df.format(calculationManhattan) + "%");
+		}	
+		// If totalManhattan equals 0, print out an error message.
+		else if (totalManhattan == 0) {
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Manhattan", ": ");
+			// Set the percentage of the specified tree in Manhattan to 0.
+			double calculationManhattan = 0;
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificManhattan) + " (" + String.format("%,d", totalManhattan) + ") " + df.format(calculationManhattan) + "%");
+		}
+		System.out.println();
+		
+		// Get the number of matching trees (using the users input) in the Bronx.
+		int specificBronx = trees.getCountByTreeSpeciesBorough(userInput, "Bronx");
+		// Get the number of total trees in the Bronx.
+		int totalBronx = trees.getCountByBorough("Bronx");
+		// Check to see if the totalBronx size is NOT 0.
+		// This will prevent a divide by 0 error.
+		if (totalBronx != 0) {
+			// Calculate the percentage of the specified tree in the Bronx.
+			double calculationBronx = ( (((double)(specificBronx))/totalBronx) * (100) );
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Bronx", ": ");
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificBronx) + " (" + String.format("%,d", totalBronx) + ") " + df.format(calculationBronx) + "%");
+		}
+		// If totalBronx equals 0, print out an error message.
+		else if (totalBronx == 0) {
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Bronx", ": ");
+			// Set the percentage of the specified tree in the Bronx to 0.
+			double calculationBronx = 0;
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificBronx) + " (" + String.format("%,d", totalBronx) + ") " + df.format(calculationBronx) + "%");
+		}
+		System.out.println();
+		
+		// Get the number of matching trees (using the users input) in Brooklyn.
+		int specificBrooklyn = trees.getCountByTreeSpeciesBorough(userInput, "Brooklyn");
+		// Get the number of total trees in Brooklyn.
+		int totalBrooklyn = trees.getCountByBorough("Brooklyn");
+		// Check to see if the totalBrooklyn size is NOT 0.
+		// This will prevent a divide by 0 error.
+		if (totalBrooklyn != 0) {
+			// Calculate the percentage of the specified tree in Brooklyn.
+			double calculationBrooklyn = ( (((double)(specificBrooklyn))/totalBrooklyn) * (100) );
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Brooklyn", ": ");
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificBrooklyn) + " (" + String.format("%,d", totalBrooklyn) + ") " + df.format(calculationBrooklyn) + "%");
+		}
+		// If totalBrooklyn equals 0, print out an error message.
+		else if (totalBrooklyn == 0) {
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Brooklyn", ": ");
+			// Set the percentage of the specified tree in Brooklyn to 0.
+			double calculationBrooklyn = 0;
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificBrooklyn) + " (" + String.format("%,d", totalBrooklyn) + ") " + df.format(calculationBrooklyn) + "%");
+		}
+		System.out.println();
+		
+		// Get the number of matching trees (using the users input) in Queens.
+		int specificQueens = trees.getCountByTreeSpeciesBorough(userInput, "Queens");
+		// Get the number of total trees in Queens.
+		int totalQueens = trees.getCountByBorough("Queens");
+		// Check to see if the totalQueens size is NOT 0.
+		// This will prevent a divide by 0 error.
+		if (totalQueens != 0) {
+			// Calculate the percentage of the specified tree in Queens.
+			double calculationQueens = ( (((double)(specificQueens))/totalQueens) * (100) );
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Queens", ": ");
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificQueens) + " (" + String.format("%,d", totalQueens) + ") " + df.format(calculationQueens) + "%");
+		}	
+		// If totalQueens equals 0, print out an error message.
+		else if (totalQueens == 0) {
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Queens", ": ");
+			// Set the percentage of the specified tree in Queens to 0.
+			double calculationQueens = 0;
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificQueens) + " (" + String.format("%,d", totalQueens) + ") " + df.format(calculationQueens) + "%");
+		}
+		System.out.println();
+		
+		// Get the number of matching trees (using the users input) in Staten Island.
+		int specificSI = trees.getCountByTreeSpeciesBorough(userInput, "Staten Island");
+		// Get the number of total trees in Staten Island.
+		int totalSI = trees.getCountByBorough("Staten Island");
+		// Check to see if the totalSI size is NOT 0.
+		// This will prevent a divide by 0 error.
+		if (totalSI != 0) {
+			// Calculate the percentage of the specified tree in Staten Island.
+			double calculationSI = ( (((double)(specificSI))/totalSI) * (100) );
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Staten Island", ": ");
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificSI) + " (" + String.format("%,d", totalSI) + ") " + df.format(calculationSI) + "%");
+		}
+		// If totalSI equals 0, print out an error message.
+		else if (totalSI == 0) {
+			// Format the output using printf so the data prints out in column format.
+			System.out.printf("\t %-18s %s", "Staten Island", ": ");
+			// Set the percentage of the specified tree in Staten Island to 0.
+			double calculationSI = 0;
+			// Format the integers using printf and String.format to get commas in the numbers and the right number of significant figures for the percentage.
+			System.out.print(String.format("%,d", specificSI) + " (" + String.format("%,d", totalSI) + ") " + df.format(calculationSI) + "%");
+		}
+		System.out.println();
+		
+		System.out.println();
+		
+		return true;
+	} // printSpeciesReport method
+	
+	/**
+	 * Prints the number of trees matching a query written in the form TreeQuery.parse reads, in the entire city and in
+	 * each of the five boroughs.
+	 * 
+	 * @param trees
+	 * @param text
+	 */
+	static void printCountReport(TreeStore trees, String text) {
+		TreeQuery query;
+		try {
+			query = TreeQuery.parse(text);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println("Error: " + e.getMessage());
+			return;
+		}
+		BitmapIndex index = trees.getBitmapIndex();
+		int[] boroughCounts = index.countByBorough(query);
+		int total = 0;
+		for (int count : boroughCounts) {
+			total += count;
+		}
+		System.out.println("Trees matching " + query + ": ");
+		System.out.printf("\t %-18s %s", "NYC", ": ");
+		System.out.println(String.format("%,d", total));
+		for (int boroughCode = 0; boroughCode < TreeStore.BOROUGHS.length; boroughCode++) {
+			System.out.printf("\t %-18s %s", TreeStore.BOROUGHS[boroughCode], ": ");
+			System.out.println(String.format("%,d", boroughCounts[boroughCode]));
+		}
+		System.out.println();
+	} // printCountReport method
+	
+	/**
+	 * Prints the trunk diameter statistics (number of trees, mean, median, 90th percentile and largest diameter) of the
+	 * species matching speciesName in the entire city and in each of the five boroughs, and the city's histogram of
+	 * diameter classes.
+	 * 
+	 * @param trees
+	 * @param speciesName
+	 */
+	static void printDiameterReport(TreeStore trees, String speciesName) {
+		System.out.println("Trunk diameters (inches) of species matching " + speciesName + ": ");
+		System.out.printf("\t %-18s %10s %7s %7s %7s %7s%n", "", "Trees", "Mean", "Median", "p90", "Max");
+		DiameterDistribution city = trees.getDiameters(speciesName, null);
+		printDiameterLine("NYC", city);
+		for (String borough : TreeStore.BOROUGHS) {
+			printDiameterLine(borough, trees.getDiameters(speciesName, borough));
+		}
+		int[] histogram = city.getHistogram();
+		System.out.print("\t Histogram          :");
+		for (int diameterClass = 0; diameterClass < histogram.length; diameterClass++) {
+			System.out.print(String.format(" %s: %,d", DiameterDistribution.className(DiameterDistribution.DEFAULT_CLASSES, diameterClass), histogram[diameterClass]));
+		}
+		System.out.println();
+		System.out.println();
+	} // printDiameterReport method
+	
+	/**
+	 * Prints the number of trees and the trunk diameter statistics of the species whose names start with prefix
+	 * (ignoring case) in the entire city and in each of the five boroughs. A store sorted with --cluster only reads the
+	 * rows of those species.
+	 * 
+	 * @param trees
+	 * @param prefix
+	 */
+	static void printPrefixReport(TreeStore trees, String prefix) {
+		DiameterDistribution[] boroughs = trees.getDiametersByPrefix(prefix);
+		DiameterDistribution city = new DiameterDistribution();
+		for (DiameterDistribution borough : boroughs) {
+			city.addAll(borough);
+		}
+		System.out.println("Trees of species starting with " + prefix + ": ");
+		System.out.printf("\t %-18s %10s %7s %7s %7s %7s%n", "", "Trees", "Mean", "Median", "p90", "Max");
+		printDiameterLine("NYC", city);
+		for (int boroughCode = 0; boroughCode < boroughs.length; boroughCode++) {
+			printDiameterLine(TreeStore.BOROUGHS[boroughCode], boroughs[boroughCode]);
+		}
+		System.out.println();
+	} // printPrefixReport method
+	
+	private static void printDiameterLine(String name, DiameterDistribution diameters) {
+		System.out.printf("\t %-18s %10s %7.1f %7d %7d %7d%n", name, String.format("%,d", diameters.getCount()),
+				diameters.getMean(), diameters.getMedian(), diameters.getP90(), diameters.getMax());
+	}
+	
+	/**
+	 * Loads the censuses given with --compare NAME=FILE (in the order they are given) and compares each one with the
+	 * next, the last one with the census that was already loaded, and prints what changed. Trees are matched by
+	 * tree_id, or with --join nearest by place (the closest earlier tree within --join-radius feet).
+	 * 
+	 * @param census
+	 * @param args
+	 * @throws IOException
+	 */
+	static void compareCensuses(TreeStore census, String[] args) throws IOException {
+		CensusComparison.Join join;
+		double radius;
+		int top;
+		try {
+			join = CensusComparison.Join.valueOf(getOption(args, "--join", "tree_id").toUpperCase());
+			radius = Double.parseDouble(getOption(args, "--join-radius", String.valueOf(CensusComparison.DEFAULT_RADIUS)));
+			top = Integer.parseInt(getOption(args, "--top", "20"));
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println("Usage Error: --join must be tree_id or nearest, and --join-radius and --top must be numbers.");
+			return;
+		}
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<TreeStore> stores = new ArrayList<TreeStore>();
+		for (String option : getOptions(args, "--compare")) {
+			int equals = option.indexOf('=');
+			if (equals <= 0 || equals == option.length() - 1) {
+				System.err.println("Usage Error: --compare needs a name and a file, i.e.: --compare 2005=trees2005.csv.");
+				return;
+			}
+			File csv = new File(option.substring(equals + 1));
+			names.add(option.substring(0, equals));
+			stores.add(loadTrees(csv, new File(csv.getPath() + ".snapshot"), args));
+		}
+		// The census that was loaded first is called by its file name unless --name says otherwise.
+		String fileName = new File(args[0]).getName();
+		names.add(getOption(args, "--name", fileName.contains(".") ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName));
+		stores.add(census);
+		
+		for (int i = 0; i + 1 < stores.size(); i++) {
+			CensusComparison comparison = new CensusComparison(names.get(i), stores.get(i), names.get(i + 1), stores.get(i + 1));
+			try {
+				comparison.join(join, radius);
+			}
+			catch (IllegalArgumentException e) {
+				System.err.println("Usage Error: " + e.getMessage());
+				return;
+			}
+			System.err.println(String.format("Joined %s in %,d ms", comparison, comparison.getJoinMillis()));
+			// Censuses whose ids do not carry over share hardly any tree ids.
+			if (join == CensusComparison.Join.TREE_ID && comparison.getMatchedCount() < Math.min(stores.get(i).size(), stores.get(i + 1).size()) / 100) {
+				System.err.println("Few trees of " + names.get(i) + " and " + names.get(i + 1) + " share a tree_id, try --join nearest.");
+			}
+			printComparisonReport(comparison, top);
+		}
+	} // compareCensuses method
+	
+	/**
+	 * Prints the trees of two censuses and the trees gained, lost and died between them in the entire city and in each of
+	 * the five boroughs, the status changes of the trees in both, and the top species with the largest change.
+	 * 
+	 * @param comparison
+	 * @param top
+	 */
+	static void printComparisonReport(CensusComparison comparison, int top) {
+		String earlier = comparison.getEarlierName();
+		String later = comparison.getLaterName();
+		System.out.println("Changes from " + earlier + " to " + later + ": ");
+		System.out.printf("\t %-18s %10s %10s %10s %10s %10s %10s%n", "", earlier, later, "Gained", "Lost", "Died", "Net");
+		printChangeLine(comparison.getCityChange());
+		for (String borough : TreeStore.BOROUGHS) {
+			printChangeLine(comparison.getBoroughChange(borough));
+		}
+		System.out.println();
+		
+		System.out.println("Status changes of the " + String.format("%,d", comparison.getMatchedCount()) + " trees in both: ");
+		int[][] transitions = comparison.getTransitions();
+		for (int from = 0; from < transitions.length; from++) {
+			for (int to = 0; to < transitions.length; to++) {
+				if (from != to && transitions[from][to] > 0) {
+					String change = statusName(from) + " -> " + statusName(to);
+					System.out.printf("\t %-18s %s", change, ": ");
+					System.out.println(String.format("%,d", transitions[from][to]));
+				}
+			}
+		}
+		System.out.println();
+		
+		ArrayList<CensusComparison.Change> speciesChanges = comparison.getSpeciesChanges();
+		System.out.println("Species with the largest changes: ");
+		System.out.printf("\t %-30s %10s %10s %10s %10s %10s %10s%n", "", earlier, later, "Gained", "Lost", "Died", "Net");
+		for (int i = 0; i < Math.min(top, speciesChanges.size()); i++) {
+			CensusComparison.Change change = speciesChanges.get(i);
+			String name = change.getName().isEmpty() ? "(no species)" : change.getName();
+			System.out.printf("\t %-30s %10s %10s %10s %10s %10s %10s%n", name, String.format("%,d", change.getEarlier()),
+					String.format("%,d", change.getLater()), String.format("%,d", change.getGained()),
+					String.format("%,d", change.getLost()), String.format("%,d", change.getDied()), String.format("%+,d", change.getNet()));
+		}
+		System.out.println();
+	} // printComparisonReport method
+	
+	private static void printChangeLine(CensusComparison.Change change) {
+		System.out.printf("\t %-18s %10s %10s %10s %10s %10s %10s%n", change.getName(), String.format("%,d", change.getEarlier()),
+				String.format("%,d", change.getLater()), String.format("%,d", change.getGained()),
+				String.format("%,d", change.getLost()), String.format("%,d", change.getDied()), String.format("%+,d", change.getNet()));
+	}
+	
+	private static String statusName(int statusCode) {
+		return TreeStore.STATUSES[statusCode].isEmpty() ? "(none)" : TreeStore.STATUSES[statusCode];
+	}
+	
+	/**
+	 * Streaming mode: reads the census file (or standard input if the file name is "-") in one pass, counting every tree
+	 * in a TreeCountCube and then dropping it, and prints the report for every species given with --query or listed in
+	 * the --batch file.
+	 * Memory only grows with the number of distinct species, so files of any size can be processed.
+	 * 
+	 * @param args
+	 * @throws IOException
+	 */
+	static void streamReports(String[] args) throws IOException {
+		ArrayList<String> queries = getOptions(args, "--query");
+		String batch = getOption(args, "--batch", null);
+		if (batch != null) {
+			if (batch.equals("-") && args[0].equals("-")) {
+				System.err.println("Usage Error: the census and the --batch queries cannot both be read from standard input.");
+				return;
+			}
+			queries.addAll(readQueries(batch));
+		}
+		boolean report = hasFlag(args, "--report");
+		if (queries.isEmpty() && !report) {
+			System.err.println("Usage Error: --stream needs at least one --query <species>, a --batch file or --report.");
+			return;
+		}
+		if (hasFlag(args, "--approximate")) {
+			if (report) {
+				System.err.println("Usage Error: --report needs exact counts and cannot be used with --approximate.");
+				return;
+			}
+			approximateReports(args, queries);
+			return;
+		}
+		
+		// Push every row through the count cube.
+		TreeCountCube counts = new TreeCountCube();
+		TreeLoader loader = new TreeLoader(counts);
+		loader.setSkipInvalid(hasFlag(args, "--skip-invalid"));
+		long start = System.nanoTime();
+		int rows = streamRows(loader, args[0]);
+		System.err.println(String.format("Counted %,d trees in %,d ms", rows, (System.nanoTime() - start) / 1000000));
+		if (loader.getRejectedCount() > 0) {
+			System.err.println(String.format("Skipped %,d invalid lines", loader.getRejectedCount()));
+		}
+		
+		if (report) {
+			writeCensusReport(counts, args);
+			return;
+		}
+		// Print the same report the interactive mode prints for each query (or the --format one).
+		printBatchReports(SpeciesReport.forQueries(counts, queries), getOption(args, "--format", "text"));
+	} // streamReports method
+	
+	/**
+	 * Reads the census from the given file, or from standard input if the file name is "-", into the loader in one
+	 * pass. gzip and zstd compressed data is decompressed on the way (see CompressedInput).
+	 * 
+	 * @param loader
+	 * @param source
+	 * @return number of trees added
+	 * @throws IOException
+	 */
+	static int streamRows(TreeLoader loader, String source) throws IOException {
+		if (source.equals("-")) {
+			return loader.load(CompressedInput.decompress(System.in));
+		}
+		File file = new File(source);
+		if (CompressedInput.compressionOf(file) == CompressedInput.Compression.NONE) {
+			return loader.load(file);
+		}
+		try (InputStream in = CompressedInput.open(file)) {
+			return loader.load(in);
+		}
+	}
+	
+	/**
+	 * Approximate streaming mode: counts the census in sketches of a fixed size (see ApproximateCounts) instead of a
+	 * TreeCountCube and prints the report for every query with the interval its true percentages are in.
+	 * --epsilon and --confidence set the error bounds of the species counts and --hll-precision the size of the
+	 * distinct counters.
+	 * 
+	 * @param args
+	 * @param queries
+	 * @throws IOException
+	 */
+	static void approximateReports(String[] args, ArrayList<String> queries) throws IOException {
+		ApproximateCounts counts;
+		try {
+			counts = new ApproximateCounts(Double.parseDouble(getOption(args, "--epsilon", String.valueOf(ApproximateCounts.DEFAULT_EPSILON))),
+					Double.parseDouble(getOption(args, "--confidence", String.valueOf(ApproximateCounts.DEFAULT_CONFIDENCE))),
+					Integer.parseInt(getOption(args, "--hll-precision", String.valueOf(HyperLogLog.DEFAULT_PRECISION))));
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println("Usage Error: " + e.getMessage());
+			return;
+		}
+		TreeLoader loader = new TreeLoader(counts);
+		loader.setSkipInvalid(hasFlag(args, "--skip-invalid"));
+		long start = System.nanoTime();
+		int rows = streamRows(loader, args[0]);
+		System.err.println(String.format("Counted %,d trees in %,d ms into %,d KB of sketches", rows, (System.nanoTime() - start) / 1000000, counts.getSketchBytes() / 1024));
+		System.err.println(counts.getSpeciesSketch());
+		if (counts.getUnlistedRows() > 0) {
+			System.err.println(String.format("%,d trees of species after the first %,d are only counted in the totals", counts.getUnlistedRows(), ApproximateCounts.MAX_SPECIES));
+		}
+		
+		System.out.println(String.format("Distinct tree ids: about %,d, distinct zip codes: about %,d (standard error %.2f%%)",
+				counts.getDistinctTreeIds(), counts.getDistinctZipcodes(), 100 * counts.getDistinctError()));
+		System.out.println();
+		for (String query : queries) {
+			printApproximateReport(counts, query);
+		}
+	} // approximateReports method
+	
+	/**
+	 * Prints the same report as printSpeciesReport from approximate counts, with the interval the true percentage is
+	 * in next to every percentage: the counts are never too low, and too high by at most the error bound with the
+	 * confidence given.
+	 * 
+	 * @param counts
+	 * @param userInput
+	 */
+	static void printApproximateReport(ApproximateCounts counts, String userInput) {
+		System.out.println("All matching species: ");
+		ArrayList<String> speciesMatches = counts.getMatchingSpecies(userInput);
+		if (speciesMatches.isEmpty()) {
+			System.out.println("There are no records of " + userInput + " trees on NYC streets.");
+			System.out.println();
+			return;
+		}
+		for (String match : speciesMatches) {
+			System.out.println("\t" + " " + match);
+		}
+		System.out.println();
+		System.out.println("Popularity in the city (approximate): ");
+		printApproximateLine(counts, userInput, null);
+		for (String borough : TreeStore.BOROUGHS) {
+			printApproximateLine(counts, userInput, borough);
+		}
+		System.out.println();
+	} // printApproximateReport method
+	
+	private static void printApproximateLine(ApproximateCounts counts, String userInput, String borough) {
+		DecimalFormat df = new DecimalFormat("##.##");
+		long count = counts.getEstimate(userInput, borough);
+		long total = counts.getTotal(borough);
+		double low = Math.max(0, count - counts.getErrorBound(userInput, borough));
+		System.out.printf("\t %-18s %s", (borough == null) ? "NYC" : borough, ": ");
+		System.out.println(String.format("%,d", count) + " (" + String.format("%,d", total) + ") " + df.format(SpeciesReport.percent(count, total)) + "%"
+				+ " [" + df.format(SpeciesReport.percent((long) Math.ceil(low), total)) + "% - " + df.format(SpeciesReport.percent(count, total)) + "%"
+				+ " with " + df.format(100 * counts.getConfidence()) + "% confidence]");
+	}
+	
+	/**
+	 * Writes the report of every species in the counts (see CensusReport) in the --format format (text by default) to
+	 * the --output file, or to standard output if there is none.
+	 * 
+	 * @param counts
+	 * @param args
+	 * @throws IOException
+	 */
+	static void writeCensusReport(TreeCountCube counts, String[] args) throws IOException {
+		String format = getOption(args, "--format", "text");
+		String output = getOption(args, "--output", null);
+		long start = System.nanoTime();
+		CensusReport report = new CensusReport(counts);
+		Writer out = (output == null) ? new OutputStreamWriter(System.out) : new FileWriter(output);
+		BufferedWriter writer = new BufferedWriter(out, 1 << 16);
+		try {
+			report.write(writer, format);
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println("Usage Error: " + e.getMessage());
+			return;
+		}
+		finally {
+			// Standard output stays open, only a file is closed.
+			if (output != null) {
+				writer.close();
+			}
+		}
+		System.err.println(String.format("Wrote the report of %,d species in %,d ms", report.getSpeciesCount(), (System.nanoTime() - start) / 1000000));
+	} // writeCensusReport method
+	
+	/**
+	 * Reads species queries, one per line, from the given file or from standard input if the file name is "-".
+	 * Empty lines are skipped.
+	 * 
+	 * @param source
+	 * @return ArrayList<String>
+	 * @throws IOException
+	 */
+	static ArrayList<String> readQueries(String source) throws IOException {
+		ArrayList<String> queries = new ArrayList<String>();
+		InputStream in = source.equals("-") ? System.in : new FileInputStream(source);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (!line.isEmpty()) {
+					queries.add(line);
+				}
+			}
+		}
+		finally {
+			if (in != System.in) {
+				reader.close();
+			}
+		}
+		return queries;
+	}
+	
+	/**
+	 * Prints the reports as text (the same report the interactive mode prints), CSV (one line per query) or JSON
+	 * (an array with one object per query).
+	 * 
+	 * @param reports
+	 * @param format "text", "csv" or "json"
+	 */
+	static void printBatchReports(ArrayList<SpeciesReport> reports, String format) {
+		if (format.equalsIgnoreCase("text")) {
+			for (SpeciesReport report : reports) {
+				printSpeciesReport(report, report.getQuery());
+			}
+		}
+		else if (format.equalsIgnoreCase("csv")) {
+			StringBuilder line = new StringBuilder("query,matching_species,nyc,nyc_total,nyc_percent");
+			for (String borough : TreeStore.BOROUGHS) {
+				String column = borough.toLowerCase().replace(' ', '_');
+				line.append(',').append(column).append(',').append(column).append("_total,").append(column).append("_percent");
+			}
+			System.out.println(line);
+			for (SpeciesReport report : reports) {
+				line.setLength(0);
+				line.append(csvField(report.getQuery())).append(',').append(csvField(String.join(";", report.getSpecies())));
+				line.append(',').append(report.getCount()).append(',').append(report.getTotal());
+				line.append(',').append(SpeciesReport.formatPercent(report.getCount(), report.getTotal()));
+				for (int boroughCode = 0; boroughCode < TreeStore.BOROUGHS.length; boroughCode++) {
+					line.append(',').append(report.getCount(boroughCode)).append(',').append(report.getTotal(boroughCode));
+					line.append(',').append(SpeciesReport.formatPercent(report.getCount(boroughCode), report.getTotal(boroughCode)));
+				}
+				System.out.println(line);
+			}
+		}
+		else if (format.equalsIgnoreCase("json")) {
+			System.out.println("[");
+			for (int i = 0; i < reports.size(); i++) {
+				System.out.println("  " + reports.get(i).toJson() + (i + 1 < reports.size() ? "," : ""));
+			}
+			System.out.println("]");
+		}
+		else {
+			System.err.println("Usage Error: unknown --format " + format + " (expected text, csv or json).");
+		}
+	} // printBatchReports method
+	
+	/**
+	 * Quotes a CSV field if it contains a comma, a double quote or a line break.
+	 * 
+	 * @param value
+	 * @return String
+	 */
+	static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+	
+	/**
+	 * Returns the value as a quoted JSON string.
+	 * 
+	 * @param value
+	 * @return String
+	 */
+	static String jsonString(String value) {
+		StringBuilder json = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			}
+			else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			}
+			else {
+				json.append(c);
+			}
+		}
+		return json.append('"').toString();
+	}
+	
+	/**
+	 * Loads the trees of the given census file with loadTrees, applies the change sets given with --delta in order,
+	 * and sorts the rows by species if --cluster was passed. Both the first load and every reload under --watch go
+	 * through here, so the served data always has the same changes and order.
+	 * 
+	 * @param csv
+	 * @param args
+	 * @return TreeStore
+	 * @throws IOException
+	 */
+	static TreeStore prepareTrees(File csv, String[] args) throws IOException {
+		TreeStore store = loadTrees(csv, args);
+		// The counts (and the spatial index, once built) are updated as the changes are applied.
+		for (String delta : getOptions(args, "--delta")) {
+			TreeDeltaLoader deltaLoader = new TreeDeltaLoader(store);
+			deltaLoader.load(new File(delta));
+			System.err.println("Applied " + delta + ": " + deltaLoader.getSummary());
+		}
+		// Sort the rows by species so the trees of a species are next to each other.
+		if (hasFlag(args, "--cluster")) {
+			long clusterStart = System.nanoTime();
+			store.cluster();
+			System.err.println(String.format("Clustered %,d trees by species in %,d ms", store.size(), (System.nanoTime() - clusterStart) / 1000000));
+		}
+		return store;
+	} // prepareTrees method
+	
+	/**
+	 * Loads the trees of the given census file.
+	 * If a snapshot of the file exists (the file name plus ".snapshot", or the path given with --snapshot) and the file
+	 * has not changed since it was written by a run with the same --skip-invalid setting, the snapshot is read instead
+	 * of the CSV file. Otherwise the CSV file is parsed
+	 * on all cores (or the number of threads given with --threads) and a new snapshot is written for the next run.
+	 * Passing --no-snapshot always parses the CSV file and writes no snapshot.
+	 * 
+	 * @param csv
+	 * @param args
+	 * @return TreeStore
+	 * @throws IOException
+	 */
+	static TreeStore loadTrees(File csv, String[] args) throws IOException {
+		return loadTrees(csv, new File(getOption(args, "--snapshot", csv.getPath() + ".snapshot")), args);
+	}
+	
+	/**
+	 * Loads the given census file into a TreeStore the same way, with the snapshot in the given file.
+	 * 
+	 * @param csv
+	 * @param snapshot
+	 * @param args
+	 * @return TreeStore
+	 * @throws IOException
+	 */
+	static TreeStore loadTrees(File csv, File snapshot, String[] args) throws IOException {
+		boolean useSnapshot = !hasFlag(args, "--no-snapshot");
+		
+		// Try the snapshot first.
+		if (useSnapshot && snapshot.exists()) {
+			try {
+				long start = System.nanoTime();
+				TreeStore store = TreeSnapshot.read(snapshot, csv, hasFlag(args, "--skip-invalid"));
+				System.err.println(String.format("Loaded %,d trees from %s in %,d ms", store.size(), snapshot, (System.nanoTime() - start) / 1000000));
+				return store;
+			}
+			// A stale or broken snapshot is not an error, the CSV file is simply parsed again.
+			catch (IOException e) {
+				System.err.println("Ignoring snapshot: " + e.getMessage());
+			}
+		}
+		
+		// Read the file and add a tree to the store for every line in it.
+		TreeStore store = new TreeStore();
+		int threads = Integer.parseInt(getOption(args, "--threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+		// A compressed file can only be read in order, so it is decompressed on one thread while the others parse.
+		if (CompressedInput.compressionOf(csv) != CompressedInput.Compression.NONE) {
+			PipelinedTreeLoader loader = new PipelinedTreeLoader(threads);
+			loader.setSkipInvalid(hasFlag(args, "--skip-invalid"));
+			// Stop the parsing threads even if the file is broken, as a reload under --watch tries again later.
+			try {
+				loader.load(csv, store);
+			}
+			finally {
+				loader.shutdown();
+			}
+			// Report how fast the file was loaded, and which stage waited for the other.
+			System.err.println(loader.getSummary());
+		}
+		else {
+			ParallelTreeLoader loader = new ParallelTreeLoader(threads);
+			loader.setSkipInvalid(hasFlag(args, "--skip-invalid"));
+			try {
+				loader.load(csv, store);
+			}
+			finally {
+				loader.shutdown();
+			}
+			// Report how fast the file was loaded.
+			System.err.println(loader.getSummary());
+		}
+		// Report rows that repeated a tree id.
+		if (store.getDuplicateCount() > 0) {
+			System.err.println(String.format("Found %,d duplicate tree ids: %,d rows replaced an earlier row with the same id, %,d conflicting rows were skipped",
+					store.getDuplicateCount(), store.getDuplicateCount() - store.getConflictCount(), store.getConflictCount()));
+			for (String conflict : store.getConflicts()) {
+				System.err.println("\t" + conflict);
+			}
+		}
+		
+		// Save a snapshot so the next run starts faster.
+		if (useSnapshot) {
+			try {
+				TreeSnapshot.write(store, snapshot, csv, hasFlag(args, "--skip-invalid"));
+			}
+			catch (IOException e) {
+				System.err.println("Could not write snapshot: " + e.getMessage());
+			}
+		}
+		return store;
+	} // loadTrees method
+	
+	/**
+	 * Builds the spatial index of the store and reports how long it took.
+	 * 
+	 * @param store
+	 */
+	private static void buildSpatialIndex(TreeStore store) {
+		long indexStart = System.nanoTime();
+		store.getSpatialIndex();
+		System.err.println(String.format("Built spatial index in %,d ms", (System.nanoTime() - indexStart) / 1000000));
+	}
+	
+	/**
+	 * Publishes the statistics of TreeMetrics over JMX if --jmx was passed (--serve always does), and prints them to
+	 * standard error when the program exits if --metrics was passed.
+	 * 
+	 * @param args
+	 */
+	static void setUpMetrics(String[] args) {
+		if (hasFlag(args, "--jmx")) {
+			TreeMetrics.registerMBeans();
+		}
+		if (hasFlag(args, "--metrics")) {
+			// A shutdown hook also runs when the server is stopped with Ctrl-C.
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.print(TreeMetrics.report())));
+		}
+	}
+	
+	/**
+	 * Checks whether the given flag (i.e.: "--no-snapshot") was passed after the file name.
+	 * 
+	 * @param args
+	 * @param name
+	 * @return boolean
+	 */
+	static boolean hasFlag(String[] args, String name) {
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Returns the value that follows the given option in the command line arguments (i.e.: "--threads 4"),
+	 * or defaultValue if the option was not passed.
+	 * 
+	 * @param args
+	 * @param name
+	 * @param defaultValue
+	 * @return String
+	 */
+	static String getOption(String[] args, String name, String defaultValue) {
+		for (int i = 1; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				return args[i + 1];
+			}
+		}
+		return defaultValue;
+	}
+	
+	/**
+	 * Returns every value that follows the given option in the command line arguments (i.e.: "--query oak --query maple").
+	 * 
+	 * @param args
+	 * @param name
+	 * @return ArrayList<String>
+	 */
+	static ArrayList<String> getOptions(String[] args, String name) {
+		ArrayList<String> values = new ArrayList<String>();
+		for (int i = 1; i < args.length - 1; i++) {
+			if (args[i].equals(name)) {
+				values.add(args[++i]);
+			}
+		}
+		return values;
+	}
+	
 	/**
 	 * Splits the given line of a CSV file according to commas and double quotes
 	 * (double quotes are used to surround  multi-word entries that may contain commas). 
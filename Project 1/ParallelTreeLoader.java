@@ -0,0 +1,274 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class ParallelTreeLoader {
+
+	// Bounds for the size of the byte range one task parses.
+	private static final long MIN_CHUNK_SIZE = 1L << 20;
+	private static final long MAX_CHUNK_SIZE = 32L << 20;
+
+	private ForkJoinPool pool;
+	// Whether lines that are not valid are skipped instead of stopping the load (see TreeLoader.setSkipInvalid).
+	private boolean skipInvalid;
+
+	// Statistics of the last load.
+	private int rowsLoaded;
+	private long rowsRejected;
+	private int chunksLoaded;
+	private long loadNanos;
+
+	/**
+	 * ParallelTreeLoader constructor.
+	 * Creates a loader that parses the file on the given number of threads.
+	 *
+	 * @param parallelism
+	 */
+	public ParallelTreeLoader(int parallelism) {
+		this.pool = new ForkJoinPool(parallelism);
+	}
+
+	/**
+	 * Setter that decides whether lines that are not valid are skipped and counted instead of stopping the load.
+	 *
+	 * @param skipInvalid
+	 */
+	public void setSkipInvalid(boolean skipInvalid) {
+		this.skipInvalid = skipInvalid;
+	}
+
+	/**
+	 * Reads the given census file and adds a tree to the store for every data line in it, in the same order
+	 * as the lines appear in the file.
+	 * The file is split into byte ranges that end on line breaks, the ranges are memory mapped and parsed at the same time
+	 * into separate stores and those are appended to the given store in file order as soon as the ones before them are
+	 * (see TreePartMerger).
+	 *
+	 * @param file
+	 * @param store
+	 * @return number of rows parsed
+	 * @throws IOException
+	 */
+	public int load(File file, TreeStore store) throws IOException {
+		long startTime = System.nanoTime();
+		long rejectedBefore = TreeMetrics.getRejectedCount();
+		TreeMetrics.loadStarted();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long[] bounds = chunkBounds(channel);
+			CensusSchema schema = readSchema(channel);
+			TreePartMerger merger = new TreePartMerger(store);
+			try {
+				pool.invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1, schema, skipInvalid, merger));
+			}
+			catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			int rows = merger.finish(bounds.length - 1);
+			rowsLoaded = rows;
+			chunksLoaded = bounds.length - 1;
+			return rows;
+		}
+		finally {
+			channel.close();
+			loadNanos = System.nanoTime() - startTime;
+			rowsRejected = TreeMetrics.getRejectedCount() - rejectedBefore;
+			TreeMetrics.loadFinished();
+		}
+	} // load method
+
+	/**
+	 * Splits the file into byte ranges of roughly equal size that each end right after a line break.
+	 *
+	 * @param channel
+	 * @return offsets where the ranges start, followed by the file size
+	 * @throws IOException
+	 */
+	private long[] chunkBounds(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		// Aim for a few chunks per thread so a slow chunk does not hold everything up.
+		long chunkSize = fileSize / (pool.getParallelism() * 4L);
+		chunkSize = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, chunkSize));
+
+		ArrayList<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+		ByteBuffer probe = ByteBuffer.allocate(8192);
+		long next = chunkSize;
+		while (next < fileSize) {
+			// Move the split point forward to just after the next line break.
+			long lineEnd = findLineBreak(channel, probe, next);
+			if (lineEnd < 0) {
+				break;
+			}
+			bounds.add(lineEnd + 1);
+			next = lineEnd + 1 + chunkSize;
+		}
+		bounds.add(fileSize);
+
+		long[] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bounds.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the columns of the census from the header line, which only the first chunk has, or returns the columns of
+	 * the 2015 census if the file has no header.
+	 *
+	 * @param channel
+	 * @return CensusSchema
+	 * @throws IOException
+	 */
+	private static CensusSchema readSchema(FileChannel channel) throws IOException {
+		long lineEnd = findLineBreak(channel, ByteBuffer.allocate(8192), 0);
+		int length = (int) Math.min((lineEnd < 0) ? channel.size() : lineEnd, Integer.MAX_VALUE);
+		return CensusSchema.fromFirstLine(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), length);
+	}
+
+	/**
+	 * Returns the offset of the first line break at or after position, or -1 if there is none.
+	 */
+	private static long findLineBreak(FileChannel channel, ByteBuffer probe, long position) throws IOException {
+		while (true) {
+			probe.clear();
+			int read = channel.read(probe, position);
+			if (read <= 0) {
+				return -1;
+			}
+			for (int i = 0; i < read; i++) {
+				if (probe.get(i) == '\n') {
+					return position + i;
+				}
+			}
+			position += read;
+		}
+	}
+
+	/**
+	 * Getter that returns the number of trees added by the last load.
+	 *
+	 * @return integer
+	 */
+	public int getRowsLoaded() {
+		return rowsLoaded;
+	}
+
+	/**
+	 * Getter that returns the number of lines the last load skipped because they were not valid.
+	 *
+	 * @return long
+	 */
+	public long getRowsRejected() {
+		return rowsRejected;
+	}
+
+	/**
+	 * Getter that returns the number of trees per second the last load parsed.
+	 *
+	 * @return double
+	 */
+	public double getRowsPerSecond() {
+		return (loadNanos == 0) ? 0 : rowsLoaded / (loadNanos / 1e9);
+	}
+
+	/**
+	 * Returns a one line summary of the last load.
+	 *
+	 * @return String
+	 */
+	public String getSummary() {
+		String summary = String.format("Loaded %,d trees from %d chunks in %,d ms on %d threads (%,.0f rows/sec)",
+				rowsLoaded, chunksLoaded, loadNanos / 1000000, pool.getParallelism(), getRowsPerSecond());
+		if (rowsRejected > 0) {
+			summary += String.format(", skipped %,d invalid lines", rowsRejected);
+		}
+		return summary;
+	}
+
+	/**
+	 * Shuts down the loader's threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Task that parses the chunks first (inclusive) to last (exclusive) into one store each and hands those to the merger.
+	 */
+	private static class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final FileChannel channel;
+		private final long[] bounds;
+		private final int first;
+		private final int last;
+		private final CensusSchema schema;
+		private final boolean skipInvalid;
+		private final TreePartMerger merger;
+
+		ChunkTask(FileChannel channel, long[] bounds, int first, int last, CensusSchema schema, boolean skipInvalid,
+				TreePartMerger merger) {
+			this.channel = channel;
+			this.bounds = bounds;
+			this.first = first;
+			this.last = last;
+			this.schema = schema;
+			this.skipInvalid = skipInvalid;
+			this.merger = merger;
+		}
+
+		@Override
+		protected void compute() {
+			// Split the chunks in half until a task has a single chunk left.
+			if (last - first > 1) {
+				int middle = (first + last) >>> 1;
+				ChunkTask right = new ChunkTask(channel, bounds, middle, last, schema, skipInvalid, merger);
+				right.fork();
+				new ChunkTask(channel, bounds, first, middle, schema, skipInvalid, merger).compute();
+				right.join();
+				return;
+			}
+			if (last > first) {
+				merger.add(first, parseChunk(bounds[first], bounds[last]));
+			}
+		}
+
+		/**
+		 * Memory maps the bytes between start and end and parses them into a new store.
+		 * Every chunk gets its own small mapping, so files larger than 2 GB (the limit of one mapping) work too.
+		 */
+		private TreeStore parseChunk(long start, long end) {
+			int length = (int) (end - start);
+			MappedByteBuffer buf;
+			long mapStart = System.nanoTime();
+			try {
+				buf = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			TreeMetrics.recordRead(length, System.nanoTime() - mapStart);
+			return TreePartMerger.parse(buf, length, schema, skipInvalid);
+		}
+
+	} // ChunkTask class
+
+} // class
@@ -0,0 +1,428 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads census data that can only be read front to back, such as a gzip or zstd compressed file (see CompressedInput),
+ * on several threads: where ParallelTreeLoader maps a plain file and parses its chunks at the same time, this loader
+ * has to decompress the data in order first, so it does that on one thread while the others parse.
+ * The decompressing thread (the one calling load) fills a ring of reusable buffers with whole lines and hands them to
+ * the parsing threads through a queue. Each buffer is parsed into a separate store and goes back to the ring, and the
+ * store is appended to the given store as soon as the stores of every buffer before it are (see TreePartMerger), so
+ * parsed data does not pile up in memory until the end of the load. The ring holds a few
+ * buffers per parsing thread, so when the parsing threads fall behind the decompressing thread waits for a free buffer
+ * instead of reading ahead, and when decompressing falls behind the parsing threads wait for data. How long each stage
+ * waited is measured (see getSummary and TreeMetrics), which tells which stage the load time is spent on.
+ */
+public class PipelinedTreeLoader {
+
+	// Size of the buffers of the ring. A buffer grows if a line does not fit in it.
+	private static final int BLOCK_SIZE = 4 << 20;
+	// Buffers in the ring per parsing thread, besides the one being filled.
+	private static final int BLOCKS_PER_THREAD = 2;
+
+	private ExecutorService pool;
+	private int parallelism;
+	// Whether lines that are not valid are skipped instead of stopping the load (see TreeLoader.setSkipInvalid).
+	private boolean skipInvalid;
+
+	// State of the load that is running, shared with the parsing threads.
+	private ArrayBlockingQueue<Block> free;
+	private ArrayBlockingQueue<Block> filled;
+	private TreePartMerger merger;
+	private volatile CensusSchema schema;
+	// The first exception (or error) a parsing thread ran into, which stops the load.
+	private volatile Throwable failure;
+
+	// Statistics of the last load.
+	private int rowsLoaded;
+	private long rowsRejected;
+	private int blocksLoaded;
+	private long bytesLoaded;
+	private long loadNanos;
+	private long decompressNanos;
+	private long decompressorWaitNanos;
+	private LongAdder parseNanos = new LongAdder();
+	private LongAdder parserWaitNanos = new LongAdder();
+
+	/**
+	 * A buffer of the ring, holding whole lines of the data.
+	 */
+	private static class Block {
+
+		// Handed to a parsing thread to tell it there is no more data.
+		static final Block END = new Block(0);
+
+		private byte[] bytes;
+		private ByteBuffer buf;
+		private int length;
+		// Position of the block in the data.
+		private int sequence;
+
+		Block(int size) {
+			bytes = new byte[size];
+			buf = ByteBuffer.wrap(bytes);
+		}
+
+		/**
+		 * Makes the buffer at least the given size, keeping its contents.
+		 */
+		void ensureCapacity(int size) {
+			if (bytes.length < size) {
+				bytes = Arrays.copyOf(bytes, size);
+				buf = ByteBuffer.wrap(bytes);
+			}
+		}
+
+	} // Block class
+
+	/**
+	 * PipelinedTreeLoader constructor.
+	 * Creates a loader that parses on the given number of threads, besides the thread that decompresses.
+	 *
+	 * @param parallelism
+	 */
+	public PipelinedTreeLoader(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+		AtomicInteger threads = new AtomicInteger();
+		this.pool = Executors.newFixedThreadPool(this.parallelism, task -> {
+			Thread thread = new Thread(task, "tree-parser-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Setter that decides whether lines that are not valid are skipped and counted instead of stopping the load.
+	 *
+	 * @param skipInvalid
+	 */
+	public void setSkipInvalid(boolean skipInvalid) {
+		this.skipInvalid = skipInvalid;
+	}
+
+	/**
+	 * Reads the given census file, compressed or not, and adds a tree to the store for every data line in it, in the
+	 * same order as the lines appear in the file.
+	 *
+	 * @param file
+	 * @param store
+	 * @return number of rows parsed
+	 * @throws IOException
+	 */
+	public int load(File file, TreeStore store) throws IOException {
+		try (InputStream in = CompressedInput.open(file)) {
+			return load(in, store);
+		}
+	}
+
+	/**
+	 * Reads census data from the given stream and adds a tree to the store for every data line in it, in the same
+	 * order as the lines appear in the data. The stream is read on the calling thread and parsed on the loader's.
+	 *
+	 * @param in
+	 * @param store
+	 * @return number of rows parsed
+	 * @throws IOException
+	 */
+	public synchronized int load(InputStream in, TreeStore store) throws IOException {
+		long startTime = System.nanoTime();
+		long rejectedBefore = TreeMetrics.getRejectedCount();
+		TreeMetrics.loadStarted();
+		int ringSize = parallelism * BLOCKS_PER_THREAD + 1;
+		free = new ArrayBlockingQueue<Block>(ringSize);
+		// Room for every buffer and the END of every parsing thread, so handing one over never waits.
+		filled = new ArrayBlockingQueue<Block>(ringSize + parallelism);
+		for (int i = 0; i < ringSize; i++) {
+			free.add(new Block(BLOCK_SIZE));
+		}
+		merger = new TreePartMerger(store);
+		schema = null;
+		failure = null;
+		bytesLoaded = 0;
+		decompressNanos = 0;
+		decompressorWaitNanos = 0;
+		parseNanos.reset();
+		parserWaitNanos.reset();
+		try {
+			ArrayList<Future<?>> parsers = new ArrayList<Future<?>>();
+			for (int i = 0; i < parallelism; i++) {
+				parsers.add(pool.submit(this::parseBlocks));
+			}
+			int blocks;
+			try {
+				blocks = decompress(in);
+			}
+			finally {
+				for (int i = 0; i < parallelism; i++) {
+					filled.add(Block.END);
+				}
+				awaitParsers(parsers);
+				TreeMetrics.recordPipelineWaits(decompressorWaitNanos, parserWaitNanos.sum());
+			}
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure != null)
+				throw (Error) failure;
+
+			int rows = merger.finish(blocks);
+			rowsLoaded = rows;
+			blocksLoaded = blocks;
+			return rows;
+		}
+		finally {
+			free = null;
+			filled = null;
+			merger = null;
+			loadNanos = System.nanoTime() - startTime;
+			rowsRejected = TreeMetrics.getRejectedCount() - rejectedBefore;
+			TreeMetrics.loadFinished();
+		}
+	} // load method
+
+	/**
+	 * Reads the stream into the buffers of the ring and hands every buffer to the parsing threads once it holds whole
+	 * lines, moving the incomplete last line to the next buffer. Stops early if a parsing thread failed.
+	 *
+	 * @param in
+	 * @return number of buffers handed over
+	 * @throws IOException
+	 */
+	private int decompress(InputStream in) throws IOException {
+		int sequence = 0;
+		Block block = takeFree();
+		int length = 0;
+		boolean done = false;
+		while (!done && failure == null) {
+			long readStart = System.nanoTime();
+			int readFrom = length;
+			while (length < block.bytes.length) {
+				int read = in.read(block.bytes, length, block.bytes.length - length);
+				if (read < 0) {
+					done = true;
+					break;
+				}
+				length += read;
+			}
+			long readNanos = System.nanoTime() - readStart;
+			decompressNanos += readNanos;
+			bytesLoaded += length - readFrom;
+			TreeMetrics.recordRead(length - readFrom, readNanos);
+
+			// Unless this is the end of the data, stop after the last complete line of the buffer.
+			int end = length;
+			if (!done) {
+				end = lastLineBreak(block.bytes, length) + 1;
+				// A line longer than the whole buffer: make the buffer bigger and read on.
+				if (end == 0) {
+					if (block.bytes.length >= Integer.MAX_VALUE / 2)
+						throw new IOException("A census line is longer than 1 GB.");
+					block.ensureCapacity(block.bytes.length * 2);
+					continue;
+				}
+			}
+			if (sequence == 0) {
+				schema = CensusSchema.fromFirstLine(block.buf, end);
+			}
+			Block next = null;
+			if (!done) {
+				next = takeFree();
+				next.ensureCapacity(block.bytes.length);
+				System.arraycopy(block.bytes, end, next.bytes, 0, length - end);
+				length -= end;
+			}
+			if (end > 0) {
+				block.length = end;
+				block.sequence = sequence++;
+				filled.add(block);
+			}
+			else {
+				free.add(block);
+			}
+			block = next;
+		}
+		if (block != null) {
+			free.add(block);
+		}
+		return sequence;
+	} // decompress method
+
+	/**
+	 * Waits until every parsing thread has stopped.
+	 */
+	private void awaitParsers(ArrayList<Future<?>> parsers) throws InterruptedIOException {
+		for (Future<?> parser : parsers) {
+			try {
+				parser.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while loading the census.");
+			}
+			catch (ExecutionException e) {
+				if (failure == null) {
+					Throwable cause = e.getCause();
+					failure = (cause instanceof RuntimeException || cause instanceof Error) ? cause : new IllegalStateException(cause);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the offset of the last line break among the first length bytes, or -1 if there is none.
+	 */
+	private static int lastLineBreak(byte[] bytes, int length) {
+		int i = length - 1;
+		while (i >= 0 && bytes[i] != '\n') {
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * Waits for a free buffer of the ring.
+	 */
+	private Block takeFree() throws IOException {
+		long waitStart = System.nanoTime();
+		try {
+			return free.take();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while loading the census.");
+		}
+		finally {
+			decompressorWaitNanos += System.nanoTime() - waitStart;
+		}
+	}
+
+	/**
+	 * Runs on a parsing thread: parses the buffers it is handed into one store each until it gets END, giving every
+	 * buffer back to the ring. Once a parsing thread has failed the buffers are only given back.
+	 */
+	private void parseBlocks() {
+		while (true) {
+			Block block;
+			long waitStart = System.nanoTime();
+			try {
+				block = filled.take();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+			parserWaitNanos.add(System.nanoTime() - waitStart);
+			if (block == Block.END) {
+				return;
+			}
+			try {
+				if (failure == null) {
+					long parseStart = System.nanoTime();
+					TreeStore part = TreePartMerger.parse(block.buf, block.length, schema, skipInvalid);
+					parseNanos.add(System.nanoTime() - parseStart);
+					merger.add(block.sequence, part);
+				}
+			}
+			catch (RuntimeException | Error e) {
+				if (failure == null) {
+					failure = e;
+				}
+			}
+			finally {
+				free.add(block);
+			}
+		}
+	} // parseBlocks method
+
+	/**
+	 * Getter that returns the number of trees added by the last load.
+	 *
+	 * @return integer
+	 */
+	public int getRowsLoaded() {
+		return rowsLoaded;
+	}
+
+	/**
+	 * Getter that returns the number of lines the last load skipped because they were not valid.
+	 *
+	 * @return long
+	 */
+	public long getRowsRejected() {
+		return rowsRejected;
+	}
+
+	/**
+	 * Getter that returns the number of trees per second the last load parsed.
+	 *
+	 * @return double
+	 */
+	public double getRowsPerSecond() {
+		return (loadNanos == 0) ? 0 : rowsLoaded / (loadNanos / 1e9);
+	}
+
+	/**
+	 * Getter that returns the number of decompressed megabytes per second the last load read, counting only the time
+	 * spent reading.
+	 *
+	 * @return double
+	 */
+	public double getDecompressMegabytesPerSecond() {
+		return (decompressNanos == 0) ? 0 : bytesLoaded / 1e6 / (decompressNanos / 1e9);
+	}
+
+	/**
+	 * Getter that returns the number of megabytes per second one parsing thread parsed in the last load, counting only
+	 * the time spent parsing.
+	 *
+	 * @return double
+	 */
+	public double getParseMegabytesPerSecond() {
+		long nanos = parseNanos.sum();
+		return (nanos == 0) ? 0 : bytesLoaded / 1e6 / (nanos / 1e9);
+	}
+
+	/**
+	 * Returns a one line summary of the last load, with the throughput of each stage and how long it waited for the
+	 * other one.
+	 *
+	 * @return String
+	 */
+	public String getSummary() {
+		String summary = String.format("Loaded %,d trees from %,d MB (%d blocks) in %,d ms on %d threads (%,.0f rows/sec): "
+				+ "decompressed at %,.0f MB/s and waited %,d ms for free blocks, parsed at %,.0f MB/s per thread and waited %,d ms for data",
+				rowsLoaded, bytesLoaded / 1000000, blocksLoaded, loadNanos / 1000000, parallelism, getRowsPerSecond(),
+				getDecompressMegabytesPerSecond(), decompressorWaitNanos / 1000000, getParseMegabytesPerSecond(),
+				parserWaitNanos.sum() / 1000000);
+		if (rowsRejected > 0) {
+			summary += String.format(", skipped %,d invalid lines", rowsRejected);
+		}
+		return summary;
+	}
+
+	/**
+	 * Shuts down the loader's threads.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+} // class
@@ -0,0 +1,206 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+public class QueryCache {
+
+	/**
+	 * Which cached report makes room when the cache is full.
+	 */
+	public enum Policy {
+		// The report that was asked for least recently.
+		LRU,
+		// The report that was asked for least often, the least recently used of those on a tie.
+		LFU
+	}
+
+	private TreeStore store;
+	private int capacity;
+	private Policy policy;
+
+	// Cached reports by normalized query. The species queries ignore case, so a query is normalized to lower case.
+	// For LRU the map is kept in access order so its first entry is the one to evict.
+	private LinkedHashMap<String, SpeciesReport> reports;
+	// For LFU: how often every cached query was asked for, and the queries asked for each number of times, in the
+	// order they reached it. minFrequency is the lowest number of times any cached query was asked for.
+	private HashMap<String, Integer> frequencies = new HashMap<String, Integer>();
+	private HashMap<Integer, LinkedHashSet<String>> byFrequency = new HashMap<Integer, LinkedHashSet<String>>();
+	private int minFrequency;
+
+	// Version of the store the cached reports were computed from.
+	private int storeVersion;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	/**
+	 * QueryCache constructor.
+	 * Creates a cache of at most capacity species reports in front of the store's queries.
+	 *
+	 * @param store
+	 * @param capacity
+	 * @param policy
+	 */
+	public QueryCache(TreeStore store, int capacity, Policy policy) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The cache capacity must be a positive integer.");
+		this.store = store;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.reports = new LinkedHashMap<String, SpeciesReport>(16, 0.75f, policy == Policy.LRU);
+		this.storeVersion = store.getVersion();
+	}
+
+	/**
+	 * Returns the report for the species query, from the cache if it was asked for before and the store has not
+	 * changed since, otherwise computed and cached.
+	 *
+	 * @param query
+	 * @return SpeciesReport
+	 */
+	public synchronized SpeciesReport get(String query) {
+		// Everything cached is stale once the store changed.
+		if (store.getVersion() != storeVersion) {
+			clear();
+			invalidations++;
+			storeVersion = store.getVersion();
+		}
+
+		String key = query.toLowerCase();
+		SpeciesReport report = reports.get(key);
+		if (report != null) {
+			hits++;
+			if (policy == Policy.LFU) {
+				touch(key);
+			}
+			return report;
+		}
+
+		misses++;
+		report = SpeciesReport.forQuery(store.getCounts(), query);
+		if (reports.size() == capacity) {
+			evict();
+		}
+		reports.put(key, report);
+		if (policy == Policy.LFU) {
+			frequencies.put(key, 1);
+			bucket(1).add(key);
+			minFrequency = 1;
+		}
+		return report;
+	} // get method
+
+	/**
+	 * Moves an LFU entry up to the next frequency.
+	 *
+	 * @param key
+	 */
+	private void touch(String key) {
+		int frequency = frequencies.get(key);
+		LinkedHashSet<String> keys = byFrequency.get(frequency);
+		keys.remove(key);
+		if (keys.isEmpty()) {
+			byFrequency.remove(frequency);
+			if (minFrequency == frequency) {
+				minFrequency++;
+			}
+		}
+		frequencies.put(key, frequency + 1);
+		bucket(frequency + 1).add(key);
+	}
+
+	private LinkedHashSet<String> bucket(int frequency) {
+		LinkedHashSet<String> keys = byFrequency.get(frequency);
+		if (keys == null) {
+			keys = new LinkedHashSet<String>();
+			byFrequency.put(frequency, keys);
+		}
+		return keys;
+	}
+
+	/**
+	 * Removes the entry the policy picks to make room for a new one.
+	 */
+	private void evict() {
+		String key;
+		if (policy == Policy.LRU) {
+			key = reports.keySet().iterator().next();
+		}
+		else {
+			LinkedHashSet<String> keys = byFrequency.get(minFrequency);
+			Iterator<String> oldest = keys.iterator();
+			key = oldest.next();
+			oldest.remove();
+			if (keys.isEmpty()) {
+				byFrequency.remove(minFrequency);
+			}
+			frequencies.remove(key);
+		}
+		reports.remove(key);
+		evictions++;
+	}
+
+	/**
+	 * Removes every cached report.
+	 */
+	public synchronized void clear() {
+		reports.clear();
+		frequencies.clear();
+		byFrequency.clear();
+		minFrequency = 0;
+	}
+
+	/**
+	 * Getter that returns the number of cached reports.
+	 *
+	 * @return integer
+	 */
+	public synchronized int size() {
+		return reports.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the cache's policy, size and counters.
+	 *
+	 * @return String
+	 */
+	@Override
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		double hitRate = (lookups == 0) ? 0 : ( (((double)(hits))/lookups) * (100) );
+		return String.format("%s query cache: %,d of %,d entries, %,d hits, %,d misses (%.1f%% hit rate), %,d evictions, %,d invalidations",
+				policy, reports.size(), capacity, hits, misses, hitRate, evictions, invalidations);
+	}
+
+} // class
@@ -0,0 +1,547 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.Arrays;
+
+public class RowBitmap {
+
+	// The rows are split into blocks of 65,536 by their upper 16 bits. A block with few rows keeps them as a sorted array of
+	// their lower 16 bits, a block with many rows as a bitset of 1,024 longs. An array block never holds more than
+	// ARRAY_LIMIT rows, which is where it would take up as much memory as a bitset.
+	private static final int ARRAY_LIMIT = 4096;
+	private static final int BITSET_WORDS = 1 << 10;
+
+	// Upper 16 bits of the rows in every block, in increasing order, and the block's contents:
+	// arrays[i] is set for an array block, bitsets[i] for a bitset block.
+	private int blockCount;
+	private char[] keys = new char[4];
+	private char[][] arrays = new char[4][];
+	private long[][] bitsets = new long[4][];
+	private int[] cardinalities = new int[4];
+
+	/**
+	 * RowBitmap constructor.
+	 * Initializes an empty bitmap.
+	 */
+	public RowBitmap() {
+	}
+
+	/**
+	 * Creates a bitmap of the given rows, which is quickest if they are in increasing order.
+	 *
+	 * @param rows
+	 * @param from
+	 * @param to
+	 * @return RowBitmap
+	 */
+	public static RowBitmap of(int[] rows, int from, int to) {
+		RowBitmap bitmap = new RowBitmap();
+		for (int i = from; i < to; i++) {
+			bitmap.add(rows[i]);
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Adds a row to the bitmap. Rows added in increasing order go to the end of the last block, which is the fast
+	 * way to fill a bitmap; any other row is inserted where it belongs.
+	 *
+	 * @param row
+	 */
+	public void add(int row) {
+		char key = (char) (row >>> 16);
+		char low = (char) row;
+		int block = blockCount - 1;
+		if (blockCount == 0 || keys[block] < key) {
+			block = blockCount;
+			insertBlock(block, key, new char[8], null, 0);
+		}
+		else if (keys[block] != key) {
+			block = Arrays.binarySearch(keys, 0, blockCount, key);
+			if (block < 0) {
+				block = -block - 1;
+				insertBlock(block, key, new char[8], null, 0);
+			}
+		}
+		if (arrays[block] != null) {
+			char[] array = arrays[block];
+			int cardinality = cardinalities[block];
+			// Where the row goes in the sorted array, which is the end if it is larger than every row there.
+			int position = cardinality;
+			if (cardinality > 0 && array[cardinality - 1] >= low) {
+				position = Arrays.binarySearch(array, 0, cardinality, low);
+				if (position >= 0) {
+					return;
+				}
+				position = -position - 1;
+			}
+			// A full array block turns into a bitset.
+			if (cardinality == ARRAY_LIMIT) {
+				bitsets[block] = toBitset(array, cardinality);
+				arrays[block] = null;
+			}
+			else {
+				if (cardinality == array.length) {
+					array = Arrays.copyOf(array, Math.min(cardinality * 2, ARRAY_LIMIT));
+					arrays[block] = array;
+				}
+				System.arraycopy(array, position, array, position + 1, cardinality - position);
+				array[position] = low;
+				cardinalities[block]++;
+				return;
+			}
+		}
+		long[] bitset = bitsets[block];
+		if ((bitset[low >>> 6] & (1L << low)) == 0) {
+			bitset[low >>> 6] |= 1L << low;
+			cardinalities[block]++;
+		}
+	} // add method
+
+	/**
+	 * Removes a row from the bitmap.
+	 *
+	 * @param row
+	 * @return false if the bitmap did not have the row
+	 */
+	public boolean remove(int row) {
+		int block = Arrays.binarySearch(keys, 0, blockCount, (char) (row >>> 16));
+		if (block < 0) {
+			return false;
+		}
+		char low = (char) row;
+		int cardinality = cardinalities[block];
+		if (arrays[block] != null) {
+			char[] array = arrays[block];
+			int position = Arrays.binarySearch(array, 0, cardinality, low);
+			if (position < 0) {
+				return false;
+			}
+			System.arraycopy(array, position + 1, array, position, cardinality - position - 1);
+		}
+		else {
+			long[] bitset = bitsets[block];
+			if ((bitset[low >>> 6] & (1L << low)) == 0) {
+				return false;
+			}
+			bitset[low >>> 6] &= ~(1L << low);
+			// A bitset block that is down to as many rows as an array block can hold turns back into an array.
+			if (cardinality - 1 == ARRAY_LIMIT) {
+				arrays[block] = toArray(bitset, ARRAY_LIMIT);
+				bitsets[block] = null;
+			}
+		}
+		cardinalities[block]--;
+		// Empty blocks are dropped.
+		if (cardinalities[block] == 0) {
+			blockCount--;
+			System.arraycopy(keys, block + 1, keys, block, blockCount - block);
+			System.arraycopy(arrays, block + 1, arrays, block, blockCount - block);
+			System.arraycopy(bitsets, block + 1, bitsets, block, blockCount - block);
+			System.arraycopy(cardinalities, block + 1, cardinalities, block, blockCount - block);
+			arrays[blockCount] = null;
+			bitsets[blockCount] = null;
+		}
+		return true;
+	} // remove method
+
+	private void addBlock(char key, char[] array, long[] bitset, int cardinality) {
+		insertBlock(blockCount, key, array, bitset, cardinality);
+	}
+
+	private void insertBlock(int index, char key, char[] array, long[] bitset, int cardinality) {
+		if (blockCount == keys.length) {
+			int capacity = blockCount * 2;
+			keys = Arrays.copyOf(keys, capacity);
+			arrays = Arrays.copyOf(arrays, capacity);
+			bitsets = Arrays.copyOf(bitsets, capacity);
+			cardinalities = Arrays.copyOf(cardinalities, capacity);
+		}
+		System.arraycopy(keys, index, keys, index + 1, blockCount - index);
+		System.arraycopy(arrays, index, arrays, index + 1, blockCount - index);
+		System.arraycopy(bitsets, index, bitsets, index + 1, blockCount - index);
+		System.arraycopy(cardinalities, index, cardinalities, index + 1, blockCount - index);
+		keys[index] = key;
+		arrays[index] = array;
+		bitsets[index] = bitset;
+		cardinalities[index] = cardinality;
+		blockCount++;
+	}
+
+	/**
+	 * Adds a finished block to the end of the bitmap, storing it as an array if it has few enough rows.
+	 * Empty blocks are dropped.
+	 *
+	 * @param key
+	 * @param bitset
+	 * @param cardinality
+	 */
+	private void addBitsetBlock(char key, long[] bitset, int cardinality) {
+		if (cardinality == 0) {
+			return;
+		}
+		if (cardinality <= ARRAY_LIMIT) {
+			addBlock(key, toArray(bitset, cardinality), null, cardinality);
+		}
+		else {
+			addBlock(key, null, bitset, cardinality);
+		}
+	}
+
+	/**
+	 * Getter that returns the number of rows in the bitmap.
+	 *
+	 * @return integer
+	 */
+	public int cardinality() {
+		int total = 0;
+		for (int i = 0; i < blockCount; i++) {
+			total += cardinalities[i];
+		}
+		return total;
+	}
+
+	/**
+	 * Checks whether the bitmap has the given row.
+	 *
+	 * @param row
+	 * @return boolean
+	 */
+	public boolean contains(int row) {
+		int block = Arrays.binarySearch(keys, 0, blockCount, (char) (row >>> 16));
+		if (block < 0) {
+			return false;
+		}
+		char low = (char) row;
+		if (arrays[block] != null) {
+			return Arrays.binarySearch(arrays[block], 0, cardinalities[block], low) >= 0;
+		}
+		return (bitsets[block][low >>> 6] & (1L << low)) != 0;
+	}
+
+	/**
+	 * Returns the rows of the bitmap in increasing order.
+	 *
+	 * @return int array
+	 */
+	public int[] toArray() {
+		int[] rows = new int[cardinality()];
+		int n = 0;
+		for (int i = 0; i < blockCount; i++) {
+			int high = keys[i] << 16;
+			if (arrays[i] != null) {
+				for (int j = 0; j < cardinalities[i]; j++) {
+					rows[n++] = high | arrays[i][j];
+				}
+			}
+			else {
+				long[] bitset = bitsets[i];
+				for (int word = 0; word < BITSET_WORDS; word++) {
+					long bits = bitset[word];
+					while (bits != 0) {
+						rows[n++] = high | (word << 6) | Long.numberOfTrailingZeros(bits);
+						bits &= bits - 1;
+					}
+				}
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Returns a new bitmap with the rows that are in both this bitmap and the other one.
+	 *
+	 * @param other
+	 * @return RowBitmap
+	 */
+	public RowBitmap and(RowBitmap other) {
+		RowBitmap result = new RowBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < blockCount && j < other.blockCount) {
+			if (keys[i] < other.keys[j]) {
+				i++;
+			}
+			else if (keys[i] > other.keys[j]) {
+				j++;
+			}
+			else {
+				result.andBlocks(keys[i], this, i, other, j);
+				i++;
+				j++;
+			}
+		}
+		return result;
+	} // and method
+
+	private void andBlocks(char key, RowBitmap a, int i, RowBitmap b, int j) {
+		if (a.bitsets[i] != null && b.bitsets[j] != null) {
+			// Bitset and bitset: and the words.
+			long[] bitset = new long[BITSET_WORDS];
+			int cardinality = 0;
+			for (int word = 0; word < BITSET_WORDS; word++) {
+				bitset[word] = a.bitsets[i][word] & b.bitsets[j][word];
+				cardinality += Long.bitCount(bitset[word]);
+			}
+			addBitsetBlock(key, bitset, cardinality);
+		}
+		else if (a.arrays[i] != null && b.arrays[j] != null) {
+			// Array and array: walk both sorted arrays.
+			char[] x = a.arrays[i];
+			char[] y = b.arrays[j];
+			int xn = a.cardinalities[i];
+			int yn = b.cardinalities[j];
+			char[] array = new char[Math.min(xn, yn)];
+			int n = 0;
+			int p = 0;
+			int q = 0;
+			while (p < xn && q < yn) {
+				if (x[p] < y[q]) {
+					p++;
+				}
+				else if (x[p] > y[q]) {
+					q++;
+				}
+				else {
+					array[n++] = x[p];
+					p++;
+					q++;
+				}
+			}
+			if (n > 0) {
+				addBlock(key, array, null, n);
+			}
+		}
+		else {
+			// Array and bitset: keep the array entries whose bit is set.
+			char[] x = (a.arrays[i] != null) ? a.arrays[i] : b.arrays[j];
+			int xn = (a.arrays[i] != null) ? a.cardinalities[i] : b.cardinalities[j];
+			long[] bitset = (a.arrays[i] != null) ? b.bitsets[j] : a.bitsets[i];
+			char[] array = new char[xn];
+			int n = 0;
+			for (int p = 0; p < xn; p++) {
+				if ((bitset[x[p] >>> 6] & (1L << x[p])) != 0) {
+					array[n++] = x[p];
+				}
+			}
+			if (n > 0) {
+				addBlock(key, array, null, n);
+			}
+		}
+	} // andBlocks method
+
+	/**
+	 * Returns a new bitmap with the rows that are in this bitmap, the other one or both.
+	 *
+	 * @param other
+	 * @return RowBitmap
+	 */
+	public RowBitmap or(RowBitmap other) {
+		RowBitmap result = new RowBitmap();
+		int i = 0;
+		int j = 0;
+		while (i < blockCount || j < other.blockCount) {
+			if (j == other.blockCount || (i < blockCount && keys[i] < other.keys[j])) {
+				result.addBlock(keys[i], copyOf(arrays[i]), copyOf(bitsets[i]), cardinalities[i]);
+				i++;
+			}
+			else if (i == blockCount || keys[i] > other.keys[j]) {
+				result.addBlock(other.keys[j], copyOf(other.arrays[j]), copyOf(other.bitsets[j]), other.cardinalities[j]);
+				j++;
+			}
+			else {
+				result.orBlocks(keys[i], this, i, other, j);
+				i++;
+				j++;
+			}
+		}
+		return result;
+	} // or method
+
+	private void orBlocks(char key, RowBitmap a, int i, RowBitmap b, int j) {
+		if (a.arrays[i] != null && b.arrays[j] != null && a.cardinalities[i] + b.cardinalities[j] <= ARRAY_LIMIT) {
+			// Two small arrays: merge them.
+			char[] x = a.arrays[i];
+			char[] y = b.arrays[j];
+			int xn = a.cardinalities[i];
+			int yn = b.cardinalities[j];
+			char[] array = new char[xn + yn];
+			int n = 0;
+			int p = 0;
+			int q = 0;
+			while (p < xn || q < yn) {
+				if (q == yn || (p < xn && x[p] < y[q])) {
+					array[n++] = x[p++];
+				}
+				else if (p == xn || x[p] > y[q]) {
+					array[n++] = y[q++];
+				}
+				else {
+					array[n++] = x[p];
+					p++;
+					q++;
+				}
+			}
+			addBlock(key, array, null, n);
+			return;
+		}
+		// Otherwise or both blocks into a bitset.
+		long[] bitset = (a.bitsets[i] != null) ? a.bitsets[i].clone() : toBitset(a.arrays[i], a.cardinalities[i]);
+		if (b.bitsets[j] != null) {
+			for (int word = 0; word < BITSET_WORDS; word++) {
+				bitset[word] |= b.bitsets[j][word];
+			}
+		}
+		else {
+			for (int p = 0; p < b.cardinalities[j]; p++) {
+				char low = b.arrays[j][p];
+				bitset[low >>> 6] |= 1L << low;
+			}
+		}
+		int cardinality = 0;
+		for (int word = 0; word < BITSET_WORDS; word++) {
+			cardinality += Long.bitCount(bitset[word]);
+		}
+		addBitsetBlock(key, bitset, cardinality);
+	} // orBlocks method
+
+	/**
+	 * Returns a new bitmap with the rows of this bitmap that are not in the other one.
+	 *
+	 * @param other
+	 * @return RowBitmap
+	 */
+	public RowBitmap andNot(RowBitmap other) {
+		RowBitmap result = new RowBitmap();
+		int j = 0;
+		for (int i = 0; i < blockCount; i++) {
+			while (j < other.blockCount && other.keys[j] < keys[i]) {
+				j++;
+			}
+			if (j == other.blockCount || other.keys[j] != keys[i]) {
+				result.addBlock(keys[i], copyOf(arrays[i]), copyOf(bitsets[i]), cardinalities[i]);
+				continue;
+			}
+			// Clear the other block's rows from a bitset copy of this block.
+			long[] bitset = (bitsets[i] != null) ? bitsets[i].clone() : toBitset(arrays[i], cardinalities[i]);
+			if (other.bitsets[j] != null) {
+				for (int word = 0; word < BITSET_WORDS; word++) {
+					bitset[word] &= ~other.bitsets[j][word];
+				}
+			}
+			else {
+				for (int p = 0; p < other.cardinalities[j]; p++) {
+					char low = other.arrays[j][p];
+					bitset[low >>> 6] &= ~(1L << low);
+				}
+			}
+			int cardinality = 0;
+			for (int word = 0; word < BITSET_WORDS; word++) {
+				cardinality += Long.bitCount(bitset[word]);
+			}
+			result.addBitsetBlock(keys[i], bitset, cardinality);
+		}
+		return result;
+	} // andNot method
+
+	/**
+	 * Returns the union of the given bitmaps.
+	 * Every block of the result is put together in one bitset, so many bitmaps are combined in a single pass
+	 * instead of one copy per pair.
+	 *
+	 * @param bitmaps
+	 * @return RowBitmap
+	 */
+	public static RowBitmap or(RowBitmap... bitmaps) {
+		RowBitmap result = new RowBitmap();
+		int[] positions = new int[bitmaps.length];
+		while (true) {
+			// The next block is the smallest key any bitmap has not been through yet.
+			int key = Integer.MAX_VALUE;
+			for (int b = 0; b < bitmaps.length; b++) {
+				if (positions[b] < bitmaps[b].blockCount) {
+					key = Math.min(key, bitmaps[b].keys[positions[b]]);
+				}
+			}
+			if (key == Integer.MAX_VALUE) {
+				return result;
+			}
+			long[] bitset = new long[BITSET_WORDS];
+			for (int b = 0; b < bitmaps.length; b++) {
+				RowBitmap bitmap = bitmaps[b];
+				int i = positions[b];
+				if (i == bitmap.blockCount || bitmap.keys[i] != key) {
+					continue;
+				}
+				if (bitmap.bitsets[i] != null) {
+					for (int word = 0; word < BITSET_WORDS; word++) {
+						bitset[word] |= bitmap.bitsets[i][word];
+					}
+				}
+				else {
+					for (int p = 0; p < bitmap.cardinalities[i]; p++) {
+						char low = bitmap.arrays[i][p];
+						bitset[low >>> 6] |= 1L << low;
+					}
+				}
+				positions[b]++;
+			}
+			int cardinality = 0;
+			for (int word = 0; word < BITSET_WORDS; word++) {
+				cardinality += Long.bitCount(bitset[word]);
+			}
+			result.addBitsetBlock((char) key, bitset, cardinality);
+		}
+	} // or method
+
+	/**
+	 * Getter that returns the approximate number of bytes the bitmap uses.
+	 *
+	 * @return long
+	 */
+	public long sizeInBytes() {
+		long bytes = 0;
+		for (int i = 0; i < blockCount; i++) {
+			bytes += (arrays[i] != null) ? 2L * arrays[i].length : 8L * BITSET_WORDS;
+		}
+		return bytes + 16L * keys.length;
+	}
+
+	private static long[] toBitset(char[] array, int cardinality) {
+		long[] bitset = new long[BITSET_WORDS];
+		for (int p = 0; p < cardinality; p++) {
+			bitset[array[p] >>> 6] |= 1L << array[p];
+		}
+		return bitset;
+	}
+
+	private static char[] toArray(long[] bitset, int cardinality) {
+		char[] array = new char[cardinality];
+		int n = 0;
+		for (int word = 0; word < BITSET_WORDS; word++) {
+			long bits = bitset[word];
+			while (bits != 0) {
+				array[n++] = (char) ((word << 6) | Long.numberOfTrailingZeros(bits));
+				bits &= bits - 1;
+			}
+		}
+		return array;
+	}
+
+	private static char[] copyOf(char[] array) {
+		return (array == null) ? null : array.clone();
+	}
+
+	private static long[] copyOf(long[] bitset) {
+		return (bitset == null) ? null : bitset.clone();
+	}
+
+} // class
@@ -0,0 +1,552 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class SpatialIndex {
+
+	// Ranges with at most this many points are not split any further and are scanned point by point.
+	private static final int LEAF_SIZE = 16;
+	// Ranges with more points than this are split into two tasks while the index is built.
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+	// Changes the index takes in before it asks to be rebuilt: this many, or one per REBUILD_FRACTION points if that is more.
+	private static final int REBUILD_MIN_CHANGES = 1024;
+	private static final int REBUILD_FRACTION = 16;
+	// Species code of a point whose row was changed or deleted after the tree was built.
+	private static final short REMOVED = -1;
+
+	private static final LatencyHistogram RADIUS_LATENCY = TreeMetrics.latency("SpatialIndex.withinRadius");
+	private static final LatencyHistogram BOX_LATENCY = TreeMetrics.latency("SpatialIndex.withinBox");
+	private static final LatencyHistogram NEAREST_LATENCY = TreeMetrics.latency("SpatialIndex.nearest");
+
+	// Packed k-d tree over the State Plane coordinates (x_sp, y_sp, in feet) of every row of the store.
+	// The tree is implicit: the points are reordered so that for every range [lo, hi) the point at the middle splits the
+	// range on x (even depth) or y (odd depth), with the points at or below the split to its left and the others to its right.
+	// Building the tree allocates these four arrays and nothing else (positions below is only made once a point is
+	// removed). The coordinates and species codes are copied in tree order so a query only reads memory that lies next
+	// to each other.
+	private TreeStore store;
+	private int size;
+	private int[] rows;
+	private double[] xs;
+	private double[] ys;
+	private short[] speciesCodes;
+
+	// The tree is not rebuilt when the store changes a row: the row's point is marked REMOVED (it still splits its range),
+	// and rows added or changed since the tree was built are kept in changedRows and checked one by one by every query.
+	// positions is the point of every row in the tree, only needed once a point is removed.
+	private int[] positions;
+	private int removedPoints;
+	private RowBitmap changedRows = new RowBitmap();
+	// changedRows as an array, made by the first query after it changed (queries on a frozen store run on many threads).
+	private volatile int[] changedRowArray;
+
+	/**
+	 * SpatialIndex constructor.
+	 * Builds the index over every row the store has right now. The store keeps the index up to date as rows are added,
+	 * changed or deleted later, see remove and add.
+	 *
+	 * @param store
+	 */
+	public SpatialIndex(TreeStore store) {
+		this.store = store;
+		this.size = store.size();
+		rows = new int[size];
+		xs = new double[size];
+		ys = new double[size];
+		speciesCodes = new short[size];
+		for (int row = 0; row < size; row++) {
+			rows[row] = row;
+			xs[row] = store.getX(row);
+			ys[row] = store.getY(row);
+			speciesCodes[row] = (short) store.getSpeciesCode(row);
+		}
+		ForkJoinPool.commonPool().invoke(new BuildTask(0, size, 0));
+	}
+
+	/**
+	 * Builds the tree over the range [lo, hi), splitting it in two tasks while it is large.
+	 */
+	private class BuildTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int lo;
+		private int hi;
+		private int depth;
+
+		BuildTask(int lo, int hi, int depth) {
+			this.lo = lo;
+			this.hi = hi;
+			this.depth = depth;
+		}
+
+		@Override
+		protected void compute() {
+			if (hi - lo <= LEAF_SIZE) {
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			select(lo, hi - 1, mid, (depth & 1) == 0 ? xs : ys);
+			if (hi - lo > PARALLEL_THRESHOLD) {
+				invokeAll(new BuildTask(lo, mid, depth + 1), new BuildTask(mid + 1, hi, depth + 1));
+			}
+			else {
+				new BuildTask(lo, mid, depth + 1).compute();
+				new BuildTask(mid + 1, hi, depth + 1).compute();
+			}
+		}
+
+	} // BuildTask class
+
+	/**
+	 * Reorders the points in [left, right] so that the one at position k is the one that would be there if the range
+	 * was sorted by keys, with smaller or equal keys before it and larger or equal keys after it (quickselect).
+	 *
+	 * @param left
+	 * @param right
+	 * @param k
+	 * @param keys
+	 */
+	private void select(int left, int right, int k, double[] keys) {
+		while (right > left) {
+			double pivot = keys[(left + right) >>> 1];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					i++;
+				}
+				while (keys[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			// Everything between j and i is equal to the pivot, so k is already in place if it lies there.
+			if (k <= j) {
+				right = j;
+			}
+			else if (k >= i) {
+				left = i;
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int i, int j) {
+		int row = rows[i];
+		rows[i] = rows[j];
+		rows[j] = row;
+		double x = xs[i];
+		xs[i] = xs[j];
+		xs[j] = x;
+		double y = ys[i];
+		ys[i] = ys[j];
+		ys[j] = y;
+		short code = speciesCodes[i];
+		speciesCodes[i] = speciesCodes[j];
+		speciesCodes[j] = code;
+	}
+
+	/**
+	 * Takes a row out of the index, before the store changes or deletes it.
+	 *
+	 * @param row
+	 */
+	void remove(int row) {
+		if (changedRows.remove(row)) {
+			changedRowArray = null;
+			return;
+		}
+		if (positions == null) {
+			positions = new int[size];
+			for (int i = 0; i < size; i++) {
+				positions[rows[i]] = i;
+			}
+		}
+		speciesCodes[positions[row]] = REMOVED;
+		removedPoints++;
+	}
+
+	/**
+	 * Puts a row that the store has just added or changed into the index.
+	 *
+	 * @param row
+	 */
+	void add(int row) {
+		changedRows.add(row);
+		changedRowArray = null;
+	}
+
+	/**
+	 * Checks whether the index has taken in so many changes that rebuilding it would make the queries faster.
+	 *
+	 * @return boolean
+	 */
+	boolean needsRebuild() {
+		return changedRows.cardinality() + removedPoints > Math.max(REBUILD_MIN_CHANGES, size / REBUILD_FRACTION);
+	}
+
+	private int[] changedRows() {
+		int[] changed = changedRowArray;
+		if (changed == null) {
+			changed = changedRows.toArray();
+			changedRowArray = changed;
+		}
+		return changed;
+	}
+
+	/**
+	 * Getter that returns the number of trees in the index.
+	 *
+	 * @return integer
+	 */
+	public int size() {
+		return size - removedPoints + changedRows.cardinality();
+	}
+
+	/**
+	 * Returns the store rows of the trees within radius feet of the point (x, y).
+	 * If speciesName is not null only trees whose species name contains it (ignoring case) are returned.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param speciesName
+	 * @return int array of store rows, in no particular order
+	 */
+	public int[] withinRadius(double x, double y, double radius, String speciesName) {
+		long start = System.nanoTime();
+		Hits hits = new Hits();
+		boolean[] species = speciesMask(speciesName);
+		if (radius >= 0 && (species == null || hasAny(species))) {
+			radius(0, size, 0, x, y, radius, radius * radius, species, hits);
+			for (int row : changedRows()) {
+				double dx = store.getX(row) - x;
+				double dy = store.getY(row) - y;
+				if (matchesRow(row, species) && dx * dx + dy * dy <= radius * radius) {
+					hits.add(row);
+				}
+			}
+		}
+		int[] result = hits.toArray();
+		RADIUS_LATENCY.recordSince(start);
+		return result;
+	}
+
+	/**
+	 * Counts the trees within radius feet of the point (x, y), optionally only those of the matching species.
+	 *
+	 * @param x
+	 * @param y
+	 * @param radius
+	 * @param speciesName the species name substring to filter on, or null for every species
+	 * @return integer
+	 */
+	public int countWithinRadius(double x, double y, double radius, String speciesName) {
+		return withinRadius(x, y, radius, speciesName).length;
+	}
+
+	private void radius(int lo, int hi, int depth, double x, double y, double radius, double radiusSquared,
+						boolean[] species, Hits hits) {
+		while (hi - lo > LEAF_SIZE) {
+			int mid = (lo + hi) >>> 1;
+			if (matches(mid, species) && distanceSquared(mid, x, y) <= radiusSquared) {
+				hits.add(rows[mid]);
+			}
+			double query = ((depth & 1) == 0) ? x : y;
+			double split = ((depth & 1) == 0) ? xs[mid] : ys[mid];
+			depth++;
+			// Only walk into the halves the circle reaches, looping on the right half instead of recursing.
+			if (query - radius <= split) {
+				radius(lo, mid, depth, x, y, radius, radiusSquared, species, hits);
+			}
+			if (query + radius < split) {
+				return;
+			}
+			lo = mid + 1;
+		}
+		for (int i = lo; i < hi; i++) {
+			if (matches(i, species) && distanceSquared(i, x, y) <= radiusSquared) {
+				hits.add(rows[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the store rows of the trees inside the bounding box (edges included).
+	 * If speciesName is not null only trees whose species name contains it (ignoring case) are returned.
+	 *
+	 * @param minX
+	 * @param minY
+	 * @param maxX
+	 * @param maxY
+	 * @param speciesName
+	 * @return int array of store rows, in no particular order
+	 */
+	public int[] withinBox(double minX, double minY, double maxX, double maxY, String speciesName) {
+		long start = System.nanoTime();
+		Hits hits = new Hits();
+		boolean[] species = speciesMask(speciesName);
+		if (minX <= maxX && minY <= maxY && (species == null || hasAny(species))) {
+			box(0, size, 0, minX, minY, maxX, maxY, species, hits);
+			for (int row : changedRows()) {
+				double x = store.getX(row);
+				double y = store.getY(row);
+				if (matchesRow(row, species) && x >= minX && x <= maxX && y >= minY && y <= maxY) {
+					hits.add(row);
+				}
+			}
+		}
+		int[] result = hits.toArray();
+		BOX_LATENCY.recordSince(start);
+		return result;
+	}
+
+	private void box(int lo, int hi, int depth, double minX, double minY, double maxX, double maxY, boolean[] species, Hits hits) {
+		while (hi - lo > LEAF_SIZE) {
+			int mid = (lo + hi) >>> 1;
+			if (matches(mid, species) && inBox(mid, minX, minY, maxX, maxY)) {
+				hits.add(rows[mid]);
+			}
+			double min = ((depth & 1) == 0) ? minX : minY;
+			double max = ((depth & 1) == 0) ? maxX : maxY;
+			double split = ((depth & 1) == 0) ? xs[mid] : ys[mid];
+			depth++;
+			if (min <= split) {
+				box(lo, mid, depth, minX, minY, maxX, maxY, species, hits);
+			}
+			if (max < split) {
+				return;
+			}
+			lo = mid + 1;
+		}
+		for (int i = lo; i < hi; i++) {
+			if (matches(i, species) && inBox(i, minX, minY, maxX, maxY)) {
+				hits.add(rows[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the store rows of the k trees closest to the point (x, y), closest first.
+	 * If speciesName is not null only trees whose species name contains it (ignoring case) are considered.
+	 *
+	 * @param x
+	 * @param y
+	 * @param k
+	 * @param speciesName
+	 * @return int array of at most k store rows
+	 */
+	public int[] nearest(double x, double y, int k, String speciesName) {
+		long start = System.nanoTime();
+		boolean[] species = speciesMask(speciesName);
+		if (k <= 0 || (species != null && !hasAny(species))) {
+			NEAREST_LATENCY.recordSince(start);
+			return new int[0];
+		}
+		int[] changed = changedRows();
+		Neighbours neighbours = new Neighbours(Math.min(k, size + changed.length));
+		nearest(0, size, 0, x, y, species, neighbours);
+		for (int row : changed) {
+			if (matchesRow(row, species)) {
+				double dx = store.getX(row) - x;
+				double dy = store.getY(row) - y;
+				// Changed rows are not points of the tree, they are told apart by a negative number.
+				neighbours.offer(dx * dx + dy * dy, -1 - row);
+			}
+		}
+		int[] result = neighbours.toSortedRows();
+		NEAREST_LATENCY.recordSince(start);
+		return result;
+	}
+
+	private void nearest(int lo, int hi, int depth, double x, double y, boolean[] species, Neighbours neighbours) {
+		if (hi - lo <= LEAF_SIZE) {
+			for (int i = lo; i < hi; i++) {
+				if (matches(i, species)) {
+					neighbours.offer(distanceSquared(i, x, y), i);
+				}
+			}
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (matches(mid, species)) {
+			neighbours.offer(distanceSquared(mid, x, y), mid);
+		}
+		double gap = ((depth & 1) == 0) ? x - xs[mid] : y - ys[mid];
+		// Search the half the point is in first, then the other half only if it can still hold a closer tree.
+		if (gap <= 0) {
+			nearest(lo, mid, depth + 1, x, y, species, neighbours);
+			if (!neighbours.isFull() || gap * gap < neighbours.worst()) {
+				nearest(mid + 1, hi, depth + 1, x, y, species, neighbours);
+			}
+		}
+		else {
+			nearest(mid + 1, hi, depth + 1, x, y, species, neighbours);
+			if (!neighbours.isFull() || gap * gap < neighbours.worst()) {
+				nearest(lo, mid, depth + 1, x, y, species, neighbours);
+			}
+		}
+	}
+
+	/**
+	 * Returns which species codes match speciesName, or null if speciesName is null and every species matches.
+	 *
+	 * @param speciesName
+	 * @return boolean array indexed by species code
+	 */
+	private boolean[] speciesMask(String speciesName) {
+		if (speciesName == null) {
+			return null;
+		}
+		boolean[] mask = new boolean[store.getSpeciesNames().size()];
+		for (int code : store.matchSpecies(speciesName)) {
+			mask[code] = true;
+		}
+		return mask;
+	}
+
+	private static boolean hasAny(boolean[] mask) {
+		for (boolean b : mask) {
+			if (b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean matches(int i, boolean[] species) {
+		short code = speciesCodes[i];
+		return code != REMOVED && (species == null || species[code]);
+	}
+
+	private boolean matchesRow(int row, boolean[] species) {
+		return species == null || species[store.getSpeciesCode(row)];
+	}
+
+	private double distanceSquared(int i, double x, double y) {
+		double dx = xs[i] - x;
+		double dy = ys[i] - y;
+		return dx * dx + dy * dy;
+	}
+
+	private boolean inBox(int i, double minX, double minY, double maxX, double maxY) {
+		return xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY;
+	}
+
+	/**
+	 * Growable list of the store rows a query found.
+	 */
+	private static class Hits {
+
+		private int[] rows = new int[64];
+		private int count;
+
+		void add(int row) {
+			if (count == rows.length) {
+				rows = Arrays.copyOf(rows, count * 2);
+			}
+			rows[count++] = row;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(rows, count);
+		}
+
+	} // Hits class
+
+	/**
+	 * The k closest points seen so far, kept in a max heap on their squared distance so the farthest one can be replaced.
+	 */
+	private class Neighbours {
+
+		private double[] distances;
+		private int[] points;
+		private int count;
+
+		Neighbours(int k) {
+			distances = new double[k];
+			points = new int[k];
+		}
+
+		boolean isFull() {
+			return count == distances.length;
+		}
+
+		double worst() {
+			return distances[0];
+		}
+
+		void offer(double distance, int point) {
+			if (distances.length == 0) {
+				return;
+			}
+			if (count < distances.length) {
+				// Sift the new point up from the bottom of the heap.
+				int i = count++;
+				while (i > 0 && distances[(i - 1) / 2] < distance) {
+					distances[i] = distances[(i - 1) / 2];
+					points[i] = points[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				distances[i] = distance;
+				points[i] = point;
+			}
+			else if (distance < distances[0]) {
+				// Replace the farthest point and sift the new one down.
+				int i = 0;
+				while (true) {
+					int child = 2 * i + 1;
+					if (child >= count) {
+						break;
+					}
+					if (child + 1 < count && distances[child + 1] > distances[child]) {
+						child++;
+					}
+					if (distances[child] <= distance) {
+						break;
+					}
+					distances[i] = distances[child];
+					points[i] = points[child];
+					i = child;
+				}
+				distances[i] = distance;
+				points[i] = point;
+			}
+		}
+
+		int[] toSortedRows() {
+			// Order the heap entries by distance, closest first.
+			Integer[] order = new Integer[count];
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+			int[] result = new int[count];
+			for (int i = 0; i < count; i++) {
+				int point = points[order[i]];
+				result[i] = (point >= 0) ? rows[point] : -1 - point;
+			}
+			return result;
+		}
+
+	} // Neighbours class
+
+} // class
@@ -0,0 +1,120 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class SpeciesIndex {
+
+	// Lower case species name of every species code.
+	private ArrayList<String> lowerNames = new ArrayList<String>();
+
+	// Trigram posting lists: for every three character piece of a lower case name, the species codes whose name contains it.
+	// The first element of each array is the number of codes stored in it, the codes follow in increasing order.
+	private HashMap<Long, int[]> postings = new HashMap<Long, int[]>();
+
+	/**
+	 * SpeciesIndex constructor.
+	 * Initializes an empty index.
+	 */
+	public SpeciesIndex() {
+	}
+
+	/**
+	 * Adds the species name with the given code to the index.
+	 * Codes have to be added in increasing order starting at 0, which is the order a StringDictionary hands them out in.
+	 *
+	 * @param code
+	 * @param name
+	 */
+	public void add(int code, String name) {
+		if (code != lowerNames.size())
+			throw new IllegalArgumentException("Species codes must be added in order.");
+		String lower = name.toLowerCase();
+		lowerNames.add(lower);
+		// Add the code to the posting list of every trigram in the name.
+		for (int i = 0; i + 3 <= lower.length(); i++) {
+			Long key = trigram(lower, i);
+			int[] list = postings.get(key);
+			if (list == null) {
+				list = new int[4];
+			}
+			// The same trigram can show up twice in one name, only add the code once.
+			else if (list[list[0]] == code) {
+				continue;
+			}
+			if (list[0] + 1 == list.length) {
+				list = Arrays.copyOf(list, list.length * 2);
+			}
+			list[0]++;
+			list[list[0]] = code;
+			postings.put(key, list);
+		}
+	} // add method
+
+	/**
+	 * Packs the three characters starting at index i into one key.
+	 *
+	 * @param text
+	 * @param i
+	 * @return long
+	 */
+	private static long trigram(String text, int i) {
+		return ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+	}
+
+	/**
+	 * Returns the codes of the species whose name contains speciesName (ignoring case), in increasing order.
+	 *
+	 * @param speciesName
+	 * @return int array of species codes
+	 */
+	public int[] match(String speciesName) {
+		String query = speciesName.toLowerCase();
+		int[] candidates = null;
+		int candidateCount = lowerNames.size();
+		// Any name containing the query also contains every trigram of the query,
+		// so only the codes on the shortest of those posting lists need to be checked.
+		for (int i = 0; i + 3 <= query.length(); i++) {
+			int[] list = postings.get(trigram(query, i));
+			// A trigram that no name contains means nothing can match.
+			if (list == null) {
+				return new int[0];
+			}
+			if (candidates == null || list[0] < candidateCount) {
+				candidates = list;
+				candidateCount = list[0];
+			}
+		}
+
+		int[] matches = new int[candidateCount];
+		int found = 0;
+		for (int i = 0; i < candidateCount; i++) {
+			// Queries shorter than three characters have no trigrams so every name is a candidate.
+			int code = (candidates == null) ? i : candidates[i + 1];
+			if (lowerNames.get(code).contains(query)) {
+				matches[found++] = code;
+			}
+		}
+		return Arrays.copyOf(matches, found);
+	} // match method
+
+	/**
+	 * Getter that returns the number of species in the index.
+	 *
+	 * @return integer
+	 */
+	public int size() {
+		return lowerNames.size();
+	}
+
+} // class
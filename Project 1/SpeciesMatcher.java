@@ -0,0 +1,197 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class SpeciesMatcher {
+
+	// Aho-Corasick automaton over a set of patterns: a trie of the patterns plus, for every node, a failure link to the
+	// node of the longest proper suffix of its text that is also in the trie, and an output link to the nearest node on
+	// the failure chain where a pattern ends. A text is run through it once to find every pattern it contains.
+	// Node 0 is the root. Edges are kept in one map keyed by (node, character).
+	private HashMap<Long, Integer> edges = new HashMap<Long, Integer>();
+	private int nodeCount = 1;
+	private int[] firstChild = new int[16];
+	private int[] nextSibling = new int[16];
+	private char[] labels = new char[16];
+	private int[] fail = new int[16];
+	private int[] outputLink = new int[16];
+	// Pattern that ends at a node, or -1.
+	private int[] patternAt = new int[16];
+
+	private int patternCount;
+	// Pattern that is the empty string (it is in every text), or -1.
+	private int emptyPattern = -1;
+	// Patterns that are the same string as an earlier one are reported as that earlier pattern's duplicates.
+	private int[] duplicateOf;
+
+	// Last match call that reported each pattern, so a pattern found twice in one text is only reported once.
+	private int[] lastSeen;
+	private int matchCalls;
+
+	/**
+	 * SpeciesMatcher constructor.
+	 * Builds the automaton for the given patterns. Matching ignores case like the species queries do.
+	 *
+	 * @param patterns
+	 */
+	public SpeciesMatcher(List<String> patterns) {
+		Arrays.fill(patternAt, -1);
+		patternCount = patterns.size();
+		duplicateOf = new int[patternCount];
+		lastSeen = new int[patternCount];
+		for (int id = 0; id < patternCount; id++) {
+			duplicateOf[id] = -1;
+			String pattern = patterns.get(id).toLowerCase();
+			if (pattern.isEmpty()) {
+				if (emptyPattern < 0) {
+					emptyPattern = id;
+				}
+				else {
+					duplicateOf[id] = emptyPattern;
+				}
+				continue;
+			}
+			int node = 0;
+			for (int i = 0; i < pattern.length(); i++) {
+				char c = pattern.charAt(i);
+				Integer child = edges.get(key(node, c));
+				node = (child != null) ? child : addNode(node, c);
+			}
+			if (patternAt[node] < 0) {
+				patternAt[node] = id;
+			}
+			else {
+				duplicateOf[id] = patternAt[node];
+			}
+		}
+		linkFailures();
+	} // SpeciesMatcher constructor
+
+	private static long key(int node, char c) {
+		return ((long) node << 16) | c;
+	}
+
+	private int addNode(int parent, char c) {
+		if (nodeCount == fail.length) {
+			int capacity = nodeCount * 2;
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			labels = Arrays.copyOf(labels, capacity);
+			fail = Arrays.copyOf(fail, capacity);
+			outputLink = Arrays.copyOf(outputLink, capacity);
+			patternAt = Arrays.copyOf(patternAt, capacity);
+			Arrays.fill(patternAt, nodeCount, capacity, -1);
+		}
+		int node = nodeCount++;
+		labels[node] = c;
+		nextSibling[node] = firstChild[parent];
+		firstChild[parent] = node;
+		edges.put(key(parent, c), node);
+		return node;
+	}
+
+	/**
+	 * Fills in the failure and output links breadth first, so the links of shorter texts are done before they are needed.
+	 */
+	private void linkFailures() {
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		for (int child = firstChild[0]; child != 0; child = nextSibling[child]) {
+			fail[child] = 0;
+			outputLink[child] = 0;
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int child = firstChild[node]; child != 0; child = nextSibling[child]) {
+				fail[child] = step(fail[node], labels[child]);
+				int target = fail[child];
+				outputLink[child] = (patternAt[target] >= 0) ? target : outputLink[target];
+				queue.add(child);
+			}
+		}
+	}
+
+	/**
+	 * Follows the edge for character c from node, going down the failure links until there is one (or the root is reached).
+	 *
+	 * @param node
+	 * @param c
+	 * @return the node reached
+	 */
+	private int step(int node, char c) {
+		while (true) {
+			Integer child = edges.get(key(node, c));
+			if (child != null) {
+				return child;
+			}
+			if (node == 0) {
+				return 0;
+			}
+			node = fail[node];
+		}
+	}
+
+	/**
+	 * Finds every pattern the text contains (ignoring case) and writes their ids to found, each one once.
+	 * Patterns that duplicate an earlier pattern are not reported, see getDuplicateOf.
+	 * A matcher is not meant to be used by several threads at once.
+	 *
+	 * @param text
+	 * @param found array with room for every pattern
+	 * @return number of ids written to found
+	 */
+	public int match(String text, int[] found) {
+		matchCalls++;
+		int count = 0;
+		if (emptyPattern >= 0) {
+			lastSeen[emptyPattern] = matchCalls;
+			found[count++] = emptyPattern;
+		}
+		String lower = text.toLowerCase();
+		int node = 0;
+		for (int i = 0; i < lower.length(); i++) {
+			node = step(node, lower.charAt(i));
+			// Report the pattern ending here and every pattern that ends in a suffix of it.
+			for (int out = (patternAt[node] >= 0) ? node : outputLink[node]; out != 0; out = outputLink[out]) {
+				int id = patternAt[out];
+				if (lastSeen[id] != matchCalls) {
+					lastSeen[id] = matchCalls;
+					found[count++] = id;
+				}
+			}
+		}
+		return count;
+	} // match method
+
+	/**
+	 * Returns the id of the earlier pattern that is the same string (ignoring case) as the given one, or -1 if it has none.
+	 *
+	 * @param id
+	 * @return integer
+	 */
+	public int getDuplicateOf(int id) {
+		return duplicateOf[id];
+	}
+
+	/**
+	 * Getter that returns the number of patterns.
+	 *
+	 * @return integer
+	 */
+	public int getPatternCount() {
+		return patternCount;
+	}
+
+} // class
@@ -0,0 +1,311 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The answer to one species query: the matching species and how many trees of them there are in the city and in each
+ * borough, next to the total number of trees there.
+ * It also answers the TreeCounts queries for its own species query, so NYCStreetTrees.printSpeciesReport can print it
+ * the same way it prints a query against all trees.
+ */
+public class SpeciesReport implements TreeCounts {
+
+	private static final LatencyHistogram FOR_QUERY_LATENCY = TreeMetrics.latency("SpeciesReport.forQuery");
+	private static final LatencyHistogram FOR_QUERIES_LATENCY = TreeMetrics.latency("SpeciesReport.forQueries");
+	private static final LatencyHistogram BY_SCANNING_LATENCY = TreeMetrics.latency("SpeciesReport.byScanning");
+
+	private String query;
+	private ArrayList<String> species = new ArrayList<String>();
+	private int count;
+	private int[] boroughCounts = new int[TreeStore.BOROUGHS.length];
+	private int total;
+	private int[] boroughTotals;
+
+	/**
+	 * SpeciesReport constructor.
+	 * Initializes a report for the query that no species has been added to yet.
+	 *
+	 * @param query
+	 * @param total
+	 * @param boroughTotals
+	 */
+	public SpeciesReport(String query, int total, int[] boroughTotals) {
+		this.query = query;
+		this.total = total;
+		this.boroughTotals = boroughTotals;
+	}
+
+	/**
+	 * Answers one query from the count cube, using its substring index to find the matching species.
+	 *
+	 * @param counts
+	 * @param query
+	 * @return SpeciesReport
+	 */
+	public static SpeciesReport forQuery(TreeCountCube counts, String query) {
+		long start = System.nanoTime();
+		int[] boroughTotals = new int[TreeStore.BOROUGHS.length];
+		for (int boroughCode = 0; boroughCode < boroughTotals.length; boroughCode++) {
+			boroughTotals[boroughCode] = counts.getCountByBorough(TreeStore.BOROUGHS[boroughCode]);
+		}
+		SpeciesReport report = new SpeciesReport(query, counts.getTotalNumberOfTrees(), boroughTotals);
+		int[] row = new int[TreeStore.BOROUGHS.length];
+		for (int code : counts.matchSpecies(query)) {
+			if (!counts.hasTrees(code)) {
+				continue;
+			}
+			for (int boroughCode = 0; boroughCode < row.length; boroughCode++) {
+				row[boroughCode] = counts.getCount(code, boroughCode);
+			}
+			report.addSpecies(counts.getSpeciesNames().decode(code), row);
+		}
+		FOR_QUERY_LATENCY.recordSince(start);
+		return report;
+	}
+
+	/**
+	 * Answers one query by counting the trees of the matching species in the store's columns in a single pass (see
+	 * CodeCounter), which gives the same report as forQuery. Only the names of the matching species come from the
+	 * count cube.
+	 *
+	 * @param store
+	 * @param query
+	 * @return SpeciesReport
+	 */
+	public static SpeciesReport byScanning(TreeStore store, String query) {
+		long start = System.nanoTime();
+		TreeCountCube counts = store.getCounts();
+		int[] codes = store.matchSpecies(query);
+		int[] boroughTotals = new int[TreeStore.BOROUGHS.length];
+		int[] boroughCounts = store.scanCountByBorough(codes, boroughTotals);
+		SpeciesReport report = new SpeciesReport(query, store.size(), boroughTotals);
+		for (int code : codes) {
+			if (counts.hasTrees(code)) {
+				report.species.add(counts.getSpeciesNames().decode(code));
+			}
+		}
+		for (int boroughCode = 0; boroughCode < boroughCounts.length; boroughCode++) {
+			report.boroughCounts[boroughCode] = boroughCounts[boroughCode];
+			report.count += boroughCounts[boroughCode];
+		}
+		BY_SCANNING_LATENCY.recordSince(start);
+		return report;
+	}
+
+	/**
+	 * Answers every query with a single pass over the species dictionary of the count cube: all queries are put in one
+	 * Aho-Corasick automaton and each species name is run through it once, adding the species' cube row to the report
+	 * of every query it contains.
+	 *
+	 * @param counts
+	 * @param queries
+	 * @return one report per query, in the same order
+	 */
+	public static ArrayList<SpeciesReport> forQueries(TreeCountCube counts, List<String> queries) {
+		long start = System.nanoTime();
+		int[] boroughTotals = new int[TreeStore.BOROUGHS.length];
+		for (int boroughCode = 0; boroughCode < boroughTotals.length; boroughCode++) {
+			boroughTotals[boroughCode] = counts.getCountByBorough(TreeStore.BOROUGHS[boroughCode]);
+		}
+		ArrayList<SpeciesReport> reports = new ArrayList<SpeciesReport>();
+		for (String query : queries) {
+			reports.add(new SpeciesReport(query, counts.getTotalNumberOfTrees(), boroughTotals));
+		}
+
+		SpeciesMatcher matcher = new SpeciesMatcher(queries);
+		int[] found = new int[queries.size()];
+		int[] row = new int[TreeStore.BOROUGHS.length];
+		StringDictionary speciesNames = counts.getSpeciesNames();
+		// Species codes are handed out in order of first appearance, so every report lists its species in that order.
+		for (int code = 0; code < speciesNames.size(); code++) {
+			if (!counts.hasTrees(code)) {
+				continue;
+			}
+			String name = speciesNames.decode(code);
+			int matches = matcher.match(name, found);
+			if (matches == 0) {
+				continue;
+			}
+			for (int boroughCode = 0; boroughCode < row.length; boroughCode++) {
+				row[boroughCode] = counts.getCount(code, boroughCode);
+			}
+			for (int i = 0; i < matches; i++) {
+				reports.get(found[i]).addSpecies(name, row);
+			}
+		}
+
+		// Queries that repeat an earlier one get a copy of its report.
+		for (int id = 0; id < reports.size(); id++) {
+			int original = matcher.getDuplicateOf(id);
+			if (original >= 0) {
+				SpeciesReport copy = reports.get(id);
+				SpeciesReport source = reports.get(original);
+				copy.species.addAll(source.species);
+				copy.count = source.count;
+				copy.boroughCounts = source.boroughCounts.clone();
+			}
+		}
+		FOR_QUERIES_LATENCY.recordSince(start);
+		return reports;
+	} // forQueries method
+
+	/**
+	 * Adds a matching species with its number of trees in each borough.
+	 *
+	 * @param name
+	 * @param countsByBorough
+	 */
+	void addSpecies(String name, int[] countsByBorough) {
+		species.add(name);
+		for (int boroughCode = 0; boroughCode < boroughCounts.length; boroughCode++) {
+			boroughCounts[boroughCode] += countsByBorough[boroughCode];
+			count += countsByBorough[boroughCode];
+		}
+	}
+
+	/**
+	 * Getter that returns the query the report answers.
+	 *
+	 * @return String
+	 */
+	public String getQuery() {
+		return query;
+	}
+
+	/**
+	 * Getter that returns the matching species names.
+	 *
+	 * @return ArrayList<String>
+	 */
+	public ArrayList<String> getSpecies() {
+		return species;
+	}
+
+	/**
+	 * Getter that returns the number of matching trees in the city.
+	 *
+	 * @return integer
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Getter that returns the number of matching trees in the borough with the given code (see TreeStore.BOROUGHS).
+	 *
+	 * @param boroughCode
+	 * @return integer
+	 */
+	public int getCount(int boroughCode) {
+		return boroughCounts[boroughCode];
+	}
+
+	/**
+	 * Getter that returns the number of trees in the city.
+	 *
+	 * @return integer
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * Getter that returns the number of trees in the borough with the given code.
+	 *
+	 * @param boroughCode
+	 * @return integer
+	 */
+	public int getTotal(int boroughCode) {
+		return boroughTotals[boroughCode];
+	}
+
+	/**
+	 * Returns count as a percentage of total, or 0 if total is 0 (the same calculation the species report prints).
+	 *
+	 * @param count
+	 * @param total
+	 * @return double
+	 */
+	public static double percent(long count, long total) {
+		if (total == 0) {
+			return 0;
+		}
+		return ( (((double)(count))/total) * (100) );
+	}
+
+	/**
+	 * Returns count as a percentage of total rounded to two decimal places, for the CSV and JSON output.
+	 *
+	 * @param count
+	 * @param total
+	 * @return String
+	 */
+	static String formatPercent(int count, int total) {
+		return String.valueOf(Math.round(percent(count, total) * 100) / 100.0);
+	}
+
+	/**
+	 * Returns the report as one JSON object: the query, the matching species and the count, total and percentage
+	 * for the city and for every borough.
+	 *
+	 * @return String
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder("{\"query\": ").append(NYCStreetTrees.jsonString(query)).append(", \"species\": [");
+		for (int i = 0; i < species.size(); i++) {
+			json.append(i == 0 ? "" : ", ").append(NYCStreetTrees.jsonString(species.get(i)));
+		}
+		json.append("], \"NYC\": ");
+		appendJsonCounts(json, count, total);
+		for (int boroughCode = 0; boroughCode < TreeStore.BOROUGHS.length; boroughCode++) {
+			json.append(", ").append(NYCStreetTrees.jsonString(TreeStore.BOROUGHS[boroughCode])).append(": ");
+			appendJsonCounts(json, boroughCounts[boroughCode], boroughTotals[boroughCode]);
+		}
+		return json.append('}').toString();
+	}
+
+	private static void appendJsonCounts(StringBuilder json, int count, int total) {
+		json.append("{\"count\": ").append(count).append(", \"total\": ").append(total);
+		json.append(", \"percent\": ").append(formatPercent(count, total)).append('}');
+	}
+
+	// The TreeCounts queries, answered for this report's query whatever species name they are given.
+
+	@Override
+	public int getTotalNumberOfTrees() {
+		return total;
+	}
+
+	@Override
+	public int getCountByTreeSpecies(String speciesName) {
+		return count;
+	}
+
+	@Override
+	public int getCountByBorough(String boroName) {
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		return (boroughCode < 0) ? 0 : boroughTotals[boroughCode];
+	}
+
+	@Override
+	public int getCountByTreeSpeciesBorough(String speciesName, String boroName) {
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		return (boroughCode < 0) ? 0 : boroughCounts[boroughCode];
+	}
+
+	@Override
+	public ArrayList<String> getMatchingSpecies(String speciesName) {
+		return species;
+	}
+
+} // class
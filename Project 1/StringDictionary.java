@@ -0,0 +1,168 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class StringDictionary {
+
+	// Every distinct String gets a small integer code. The codes are handed out in the order the Strings are first seen,
+	// so looping over the codes gives the Strings back in the same order they appeared in the data file.
+	private ArrayList<String> values = new ArrayList<String>();
+	private HashMap<String, Integer> codes = new HashMap<String, Integer>();
+
+	// The same Strings as UTF-8 bytes, in an open addressing hash table, so the CSV tokenizer can look a field up
+	// straight from the file's bytes without building a String for it.
+	private ArrayList<byte[]> utf8Values = new ArrayList<byte[]>();
+	private int[] utf8Table = emptyTable(64);
+
+	/**
+	 * StringDictionary constructor.
+	 * Initializes an empty dictionary.
+	 */
+	public StringDictionary() {
+	}
+
+	/**
+	 * Returns the code of the given String, adding it to the dictionary if it has not been seen before.
+	 *
+	 * @param value
+	 * @return integer code
+	 */
+	public int encode(String value) {
+		Integer code = codes.get(value);
+		// The String is new, so give it the next free code.
+		if (code == null) {
+			code = values.size();
+			values.add(value);
+			codes.put(value, code);
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			utf8Values.add(bytes);
+			insert(bytes, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the code of the String stored as UTF-8 in buf between start (inclusive) and end (exclusive),
+	 * adding it to the dictionary if it has not been seen before.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @return integer code
+	 */
+	public int encode(ByteBuffer buf, int start, int end) {
+		int mask = utf8Table.length - 1;
+		// Probe the table until the bytes or an empty slot are found.
+		for (int slot = hash(buf, start, end) & mask; utf8Table[slot] >= 0; slot = (slot + 1) & mask) {
+			int code = utf8Table[slot];
+			if (sameBytes(utf8Values.get(code), buf, start, end)) {
+				return code;
+			}
+		}
+		// Only a String that has never been seen before gets decoded.
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buf.get(start + i);
+		}
+		return encode(new String(bytes, StandardCharsets.UTF_8));
+	} // encode method
+
+	/**
+	 * Returns the code of the given String or -1 if it is not in the dictionary.
+	 *
+	 * @param value
+	 * @return integer code
+	 */
+	public int lookup(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			return -1;
+		}
+		return code;
+	}
+
+	/**
+	 * Returns the String stored under the given code.
+	 *
+	 * @param code
+	 * @return String
+	 */
+	public String decode(int code) {
+		return values.get(code);
+	}
+
+	/**
+	 * Getter that returns the number of distinct Strings in the dictionary.
+	 *
+	 * @return integer
+	 */
+	public int size() {
+		return values.size();
+	}
+
+	/**
+	 * Adds the UTF-8 bytes of a new String to the hash table, doubling the table when it gets half full.
+	 *
+	 * @param bytes
+	 * @param code
+	 */
+	private void insert(byte[] bytes, int code) {
+		if (2 * (code + 1) > utf8Table.length) {
+			utf8Table = emptyTable(utf8Table.length * 2);
+			for (int i = 0; i < code; i++) {
+				place(utf8Values.get(i), i);
+			}
+		}
+		place(bytes, code);
+	}
+
+	private void place(byte[] bytes, int code) {
+		int mask = utf8Table.length - 1;
+		int slot = hash(ByteBuffer.wrap(bytes), 0, bytes.length) & mask;
+		while (utf8Table[slot] >= 0) {
+			slot = (slot + 1) & mask;
+		}
+		utf8Table[slot] = code;
+	}
+
+	private static int[] emptyTable(int capacity) {
+		int[] table = new int[capacity];
+		Arrays.fill(table, -1);
+		return table;
+	}
+
+	private static int hash(ByteBuffer buf, int start, int end) {
+		int h = 0;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + buf.get(i);
+		}
+		// Spread the bits so the low bits used by the mask are well mixed.
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean sameBytes(byte[] bytes, ByteBuffer buf, int start, int end) {
+		if (bytes.length != end - start) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] != buf.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+} // class
@@ -163,6 +163,66 @@ public class Tree implements Comparable<Tree> {
 	public String getBorough(Tree Tree) {
 		return this.boroname;
 	}
+	
+	/**
+	 * This is a getter that gets the tree's diameter.
+	 * 
+	 * @param tree
+	 * @return Tree object's diameter
+	 */
+	public int getDiameter(Tree tree) {
+		return this.tree_dbh;
+	}
+	
+	/**
+	 * This is a getter that gets the tree's status.
+	 * 
+	 * @param tree
+	 * @return Tree object's status
+	 */
+	public String getStatus(Tree tree) {
+		return this.status;
+	}
+	
+	/**
+	 * This is a getter that gets the tree's health.
+	 * 
+	 * @param tree
+	 * @return Tree object's health
+	 */
+	public String getHealth(Tree tree) {
+		return this.health;
+	}
+	
+	/**
+	 * This is a getter that gets the tree's zip code.
+	 * 
+	 * @param tree
+	 * @return Tree object's zip code
+	 */
+	public int getZipcode(Tree tree) {
+		return this.zipcode;
+	}
+	
+	/**
+	 * This is a getter that gets the tree's x coordinate.
+	 * 
+	 * @param tree
+	 * @return Tree object's x_sp
+	 */
+	public double getX(Tree tree) {
+		return this.x_sp;
+	}
+	
+	/**
+	 * This is a getter that gets the tree's y coordinate.
+	 * 
+	 * @param tree
+	 * @return Tree object's y_sp
+	 */
+	public double getY(Tree tree) {
+		return this.y_sp;
+	}
 
 	/**
 	 * Overriding the compareTo method.
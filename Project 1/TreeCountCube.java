@@ -0,0 +1,351 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TreeCountCube implements TreeCounts, TreeRowSink {
+
+	// Species names are not a fixed set so they are stored in a dictionary and everything else works with the name's code.
+	private StringDictionary speciesNames = new StringDictionary();
+	// Substring index over the species dictionary that turns a query into the matching species codes.
+	private SpeciesIndex speciesIndex = new SpeciesIndex();
+
+	// counts[code * BOROUGHS.length + borough] is the number of trees of that species in that borough.
+	// The queries add up rows of the cube, so they never look at individual trees.
+	private int[] counts = new int[16 * TreeStore.BOROUGHS.length];
+	private int[] boroughCounts = new int[TreeStore.BOROUGHS.length];
+	private int total;
+	// diameters[code * BOROUGHS.length + borough] is the trunk diameter distribution of the same cell, or null if no
+	// tree of that species was ever counted in that borough.
+	private DiameterDistribution[] diameters = new DiameterDistribution[16 * TreeStore.BOROUGHS.length];
+
+	/**
+	 * TreeCountCube constructor.
+	 * Initializes a cube with no trees in it.
+	 * Its memory only grows with the number of distinct species, no matter how many trees are counted.
+	 */
+	public TreeCountCube() {
+	}
+
+	/**
+	 * Returns the dictionary code of the given species name, adding it to the dictionary if it is new.
+	 *
+	 * @param spc
+	 * @return integer code
+	 */
+	public int encodeSpecies(String spc) {
+		return checkSpeciesCode(speciesNames.encode(spc));
+	}
+
+	@Override
+	public int encodeSpecies(CSVTokenizer tokenizer, int field) {
+		return checkSpeciesCode(tokenizer.encode(field, speciesNames));
+	}
+
+	/**
+	 * Makes sure a species code fits in a short (the type TreeStore keeps it in) and that new species are added
+	 * to the substring index.
+	 *
+	 * @param code
+	 * @return the same code
+	 */
+	private int checkSpeciesCode(int code) {
+		if (code > Short.MAX_VALUE)
+			throw new IllegalStateException("Too many distinct tree species.");
+		// A new species also has to be added to the substring index.
+		if (code == speciesIndex.size()) {
+			speciesIndex.add(code, speciesNames.decode(code));
+		}
+		return code;
+	}
+
+	@Override
+	public void addRow(int id, int diam, int statusCode, int healthCode, int speciesCode,
+					   int zip, int boroughCode, double x, double y) {
+		add(speciesCode, boroughCode, diam, 1);
+	}
+
+	/**
+	 * Adds delta trees with the given diameter to the count and the diameter distribution of the given species and
+	 * borough (or takes them out if delta is negative).
+	 *
+	 * @param speciesCode
+	 * @param boroughCode
+	 * @param diam
+	 * @param delta
+	 */
+	void add(int speciesCode, int boroughCode, int diam, int delta) {
+		add(speciesCode, boroughCode, delta);
+		addDiameter(speciesCode, boroughCode, diam, delta);
+	}
+
+	/**
+	 * Adds delta trees with the given diameter to the diameter distribution of the given species and borough only.
+	 * Used where the counts are filled in separately (i.e.: reading a snapshot).
+	 *
+	 * @param speciesCode
+	 * @param boroughCode
+	 * @param diam
+	 * @param delta
+	 */
+	void addDiameter(int speciesCode, int boroughCode, int diam, int delta) {
+		distribution(speciesCode * TreeStore.BOROUGHS.length + boroughCode).add(diam, delta);
+	}
+
+	/**
+	 * Returns the diameter distribution of a cell, creating it if the cell does not have one yet.
+	 */
+	private DiameterDistribution distribution(int cell) {
+		if (cell >= diameters.length) {
+			diameters = Arrays.copyOf(diameters, Math.max(cell + 1, diameters.length * 2));
+		}
+		if (diameters[cell] == null) {
+			diameters[cell] = new DiameterDistribution();
+		}
+		return diameters[cell];
+	}
+
+	/**
+	 * Returns the number of bytes writeDiameters writes.
+	 *
+	 * @return long
+	 */
+	long diametersSnapshotSize() {
+		long bytes = 0;
+		for (int cell = 0; cell < speciesNames.size() * TreeStore.BOROUGHS.length; cell++) {
+			bytes += 1;
+			if (cell < diameters.length && diameters[cell] != null) {
+				bytes += diameters[cell].snapshotSize();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Writes the diameter distribution of every cell of the cube to out, in the order of the cells, each after a byte
+	 * that tells whether the cell has one.
+	 *
+	 * @param out
+	 */
+	void writeDiameters(ByteBuffer out) {
+		for (int cell = 0; cell < speciesNames.size() * TreeStore.BOROUGHS.length; cell++) {
+			if (cell < diameters.length && diameters[cell] != null) {
+				out.put((byte) 1);
+				diameters[cell].writeSnapshot(out);
+			}
+			else {
+				out.put((byte) 0);
+			}
+		}
+	}
+
+	/**
+	 * Reads the diameter distributions written by writeDiameters into the cube, whose species must already be in
+	 * the dictionary.
+	 *
+	 * @param in
+	 */
+	void readDiameters(ByteBuffer in) {
+		int cells = speciesNames.size() * TreeStore.BOROUGHS.length;
+		if (cells > diameters.length) {
+			diameters = Arrays.copyOf(diameters, cells);
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			if (in.get() != 0) {
+				diameters[cell] = DiameterDistribution.readSnapshot(in);
+			}
+		}
+	}
+
+	/**
+	 * Adds delta to the count of the given species and borough.
+	 *
+	 * @param speciesCode
+	 * @param boroughCode
+	 * @param delta
+	 */
+	void add(int speciesCode, int boroughCode, int delta) {
+		int cell = speciesCode * TreeStore.BOROUGHS.length + boroughCode;
+		if (cell >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(cell + 1, counts.length * 2));
+		}
+		counts[cell] += delta;
+		boroughCounts[boroughCode] += delta;
+		total += delta;
+	}
+
+	/**
+	 * Adds all counts of another cube to this one.
+	 * The other cube has its own species dictionary so its species codes are translated to this cube's codes.
+	 *
+	 * @param other
+	 * @return the other cube's species codes translated to this cube's codes
+	 */
+	int[] addAll(TreeCountCube other) {
+		// Translate the other cube's species codes, adding its new species in the order it first saw them.
+		int[] speciesMap = new int[other.speciesNames.size()];
+		for (int code = 0; code < speciesMap.length; code++) {
+			speciesMap[code] = encodeSpecies(other.speciesNames.decode(code));
+			for (int boroughCode = 0; boroughCode < TreeStore.BOROUGHS.length; boroughCode++) {
+				int count = other.getCount(code, boroughCode);
+				if (count != 0) {
+					add(speciesMap[code], boroughCode, count);
+				}
+				int cell = code * TreeStore.BOROUGHS.length + boroughCode;
+				if (cell < other.diameters.length && other.diameters[cell] != null) {
+					distribution(speciesMap[code] * TreeStore.BOROUGHS.length + boroughCode).addAll(other.diameters[cell]);
+				}
+			}
+		}
+		return speciesMap;
+	}
+
+	/**
+	 * Getter that returns the number of trees of the given species code in the given borough.
+	 *
+	 * @param speciesCode
+	 * @param boroughCode
+	 * @return integer
+	 */
+	int getCount(int speciesCode, int boroughCode) {
+		int cell = speciesCode * TreeStore.BOROUGHS.length + boroughCode;
+		if (cell >= counts.length) {
+			return 0;
+		}
+		return counts[cell];
+	}
+
+	/**
+	 * Adds the diameter distribution of the given species code in the given borough to the given distribution.
+	 *
+	 * @param speciesCode
+	 * @param boroughCode
+	 * @param result
+	 */
+	void addDiameters(int speciesCode, int boroughCode, DiameterDistribution result) {
+		int cell = speciesCode * TreeStore.BOROUGHS.length + boroughCode;
+		if (cell < diameters.length && diameters[cell] != null) {
+			result.addAll(diameters[cell]);
+		}
+	}
+
+	/**
+	 * Returns the trunk diameter distribution of the trees of every species whose name contains speciesName (ignoring
+	 * case), in the whole city if boroName is null and otherwise in that borough. The distributions kept per species
+	 * and borough are added up, the trees are not looked at.
+	 *
+	 * @param speciesName
+	 * @param boroName
+	 * @return DiameterDistribution, without trees if nothing matches
+	 */
+	public DiameterDistribution getDiameters(String speciesName, String boroName) {
+		DiameterDistribution result = new DiameterDistribution();
+		int boroughCode = (boroName == null) ? -1 : TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		if (boroName != null && boroughCode < 0) {
+			return result;
+		}
+		for (int code : matchSpecies(speciesName)) {
+			for (int borough = 0; borough < TreeStore.BOROUGHS.length; borough++) {
+				if (boroughCode < 0 || borough == boroughCode) {
+					addDiameters(code, borough, result);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether any tree of the given species code is counted. A species stays in the dictionary once all its
+	 * trees have been replaced or deleted, but it is not listed as a match any more.
+	 *
+	 * @param speciesCode
+	 * @return boolean
+	 */
+	boolean hasTrees(int speciesCode) {
+		for (int boroughCode = 0; boroughCode < TreeStore.BOROUGHS.length; boroughCode++) {
+			if (getCount(speciesCode, boroughCode) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the codes of the species whose name contains speciesName (ignoring case), in increasing order.
+	 *
+	 * @param speciesName
+	 * @return int array of species codes
+	 */
+	int[] matchSpecies(String speciesName) {
+		return speciesIndex.match(speciesName);
+	}
+
+	StringDictionary getSpeciesNames() {
+		return speciesNames;
+	}
+
+	@Override
+	public int getTotalNumberOfTrees() {
+		return total;
+	}
+
+	@Override
+	public int getCountByTreeSpecies(String speciesName) {
+		int counter = 0;
+		// Add up the whole cube row of every matching species.
+		for (int code : matchSpecies(speciesName)) {
+			for (int boroughCode = 0; boroughCode < TreeStore.BOROUGHS.length; boroughCode++) {
+				counter += getCount(code, boroughCode);
+			}
+		}
+		return counter;
+	}
+
+	@Override
+	public int getCountByBorough(String boroName) {
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		// If the method is called with a non-existent borough name, return 0.
+		if (boroughCode < 0) {
+			return 0;
+		}
+		return boroughCounts[boroughCode];
+	}
+
+	@Override
+	public int getCountByTreeSpeciesBorough(String speciesName, String boroName) {
+		int boroughCode = TreeStore.codeOf(TreeStore.BOROUGHS, boroName);
+		// If the method is called with a non-existent borough name, return 0.
+		if (boroughCode < 0) {
+			return 0;
+		}
+		int counter = 0;
+		// Add up the borough's cell of every matching species.
+		for (int code : matchSpecies(speciesName)) {
+			counter += getCount(code, boroughCode);
+		}
+		return counter;
+	}
+
+	@Override
+	public ArrayList<String> getMatchingSpecies(String speciesName) {
+		ArrayList<String> speciesMatches = new ArrayList<String>();
+		// Dictionary codes are handed out in order of first appearance, so the order matches TreeList's.
+		for (int code : matchSpecies(speciesName)) {
+			if (hasTrees(code)) {
+				speciesMatches.add(speciesNames.decode(code));
+			}
+		}
+		return speciesMatches;
+	}
+
+} // class
@@ -0,0 +1,62 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+
+/**
+ * The counting queries NYCStreetTrees asks about the trees, whether the trees themselves are kept (TreeStore)
+ * or only their counts (TreeCountCube).
+ */
+public interface TreeCounts {
+
+	/**
+	 * This getter gets the number of trees.
+	 *
+	 * @return integer
+	 */
+	int getTotalNumberOfTrees();
+
+	/**
+	 * Getter method that counts the trees whose species name contains speciesName (ignoring case).
+	 *
+	 * @param speciesName
+	 * @return integer
+	 */
+	int getCountByTreeSpecies(String speciesName);
+
+	/**
+	 * Getter method that returns the number of trees in the specified borough.
+	 *
+	 * @param boroName
+	 * @return integer
+	 */
+	int getCountByBorough(String boroName);
+
+	/**
+	 * Getter that returns the number of trees whose species name contains speciesName and which are located in the borough
+	 * specified by the second parameter.
+	 *
+	 * @param speciesName
+	 * @param boroName
+	 * @return integer
+	 */
+	int getCountByTreeSpeciesBorough(String speciesName, String boroName);
+
+	/**
+	 * Getter method that returns the distinct species names containing speciesName (ignoring case), in the order
+	 * they were first seen.
+	 *
+	 * @param speciesName
+	 * @return ArrayList<String>
+	 */
+	ArrayList<String> getMatchingSpecies(String speciesName);
+
+} // interface
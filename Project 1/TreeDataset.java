@@ -0,0 +1,62 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+/**
+ * An immutable snapshot of the loaded data that any number of threads can query at the same time without locks:
+ * a frozen TreeStore together with the indexes built over it.
+ * All fields are final and the store can no longer change, so once a dataset is published (i.e.: through an
+ * AtomicReference) every thread sees it completely.
+ */
+public class TreeDataset {
+
+	private final TreeStore store;
+	private final SpatialIndex spatialIndex;
+	private final BitmapIndex bitmapIndex;
+	// Numbers the datasets a server has published, starting at 1.
+	private final long generation;
+	private final long createdMillis;
+
+	/**
+	 * TreeDataset constructor.
+	 * Freezes the store and builds its indexes.
+	 *
+	 * @param store
+	 * @param generation
+	 */
+	public TreeDataset(TreeStore store, long generation) {
+		store.freeze();
+		this.store = store;
+		this.spatialIndex = store.getSpatialIndex();
+		this.bitmapIndex = store.getBitmapIndex();
+		this.generation = generation;
+		this.createdMillis = System.currentTimeMillis();
+	}
+
+	public TreeStore getStore() {
+		return store;
+	}
+
+	public SpatialIndex getSpatialIndex() {
+		return spatialIndex;
+	}
+
+	public BitmapIndex getBitmapIndex() {
+		return bitmapIndex;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	public long getCreatedMillis() {
+		return createdMillis;
+	}
+
+} // class
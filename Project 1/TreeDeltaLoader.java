@@ -0,0 +1,171 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Applies a change set to a store that has already been loaded, without reading the census again.
+ * A delta file starts with a header line and has the same columns as the census plus a column named "op" (usually
+ * the last one) that says what to do with each line:
+ * "upsert" (or nothing) adds the tree or replaces the tree with the same tree_id, and "delete" deletes the tree with
+ * the line's tree_id (the other columns of a delete line may be empty). Without an "op" column every line is an upsert.
+ * The store updates its counts and any indexes it has already built as the lines are applied, so a change set of a
+ * few thousand lines takes milliseconds.
+ */
+public class TreeDeltaLoader implements TreeRowSink {
+
+	// The values of the op column, by code.
+	private static final String[] OPS = { "", "upsert", "delete" };
+	private static final int DELETE = 2;
+
+	private TreeStore store;
+	// Parses the upsert lines, handing the rows back to addRow.
+	private TreeLoader parser = new TreeLoader(this);
+	private CSVTokenizer tokenizer = new CSVTokenizer();
+
+	// Statistics of everything applied so far.
+	private int added;
+	private int replaced;
+	private int deleted;
+	private int notFound;
+	private long applyNanos;
+
+	/**
+	 * TreeDeltaLoader constructor.
+	 * Creates a loader that applies delta files to the given store.
+	 *
+	 * @param store
+	 */
+	public TreeDeltaLoader(TreeStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Applies every line of the given delta file to the store, in order.
+	 * A line that is not valid stops the load with an IllegalArgumentException; the lines before it stay applied.
+	 *
+	 * @param file
+	 * @return number of lines applied
+	 * @throws IOException
+	 */
+	public int load(File file) throws IOException {
+		long startTime = System.nanoTime();
+		// Delta files are small, so the whole file is mapped at once.
+		MappedByteBuffer buf;
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("A delta file cannot be larger than 2 GB.");
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			channel.close();
+		}
+		int end = buf.limit();
+		int opField = -1;
+		boolean header = true;
+		int lines = 0;
+		int lineStart = 0;
+		while (lineStart < end) {
+			int lineEnd = lineStart;
+			while (lineEnd < end && buf.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int contentEnd = (lineEnd > lineStart && buf.get(lineEnd - 1) == '\r') ? lineEnd - 1 : lineEnd;
+			int fields = tokenizer.tokenize(buf, lineStart, contentEnd);
+			if (fields > 0 && header) {
+				// The first line names the columns, find the op column by its name and the census columns by theirs.
+				header = false;
+				for (int field = 0; field < fields; field++) {
+					if (tokenizer.equalsAscii(field, "op")) {
+						opField = field;
+					}
+				}
+				CensusSchema schema = CensusSchema.fromHeader(tokenizer);
+				if (schema != null) {
+					parser.setSchema(schema);
+				}
+			}
+			else if (fields > parser.getSchema().treeId && !tokenizer.isEmpty(parser.getSchema().treeId)) {
+				int op = (opField < 0 || opField >= fields) ? 0 : tokenizer.codeOf(opField, OPS);
+				if (op < 0)
+					throw new IllegalArgumentException("Not a valid delta operation: " + tokenizer.getString(opField) + ".");
+				if (op == DELETE) {
+					if (store.delete(tokenizer.parseInt(parser.getSchema().treeId))) {
+						deleted++;
+					}
+					else {
+						notFound++;
+					}
+				}
+				else {
+					parser.parseLine(buf, lineStart, contentEnd);
+				}
+				lines++;
+			}
+			lineStart = lineEnd + 1;
+		}
+		parser.flushMetrics();
+		applyNanos += System.nanoTime() - startTime;
+		return lines;
+	} // load method
+
+	@Override
+	public int encodeSpecies(CSVTokenizer tokenizer, int field) {
+		return store.encodeSpecies(tokenizer, field);
+	}
+
+	@Override
+	public void addRow(int id, int diam, int statusCode, int healthCode, int speciesCode,
+					   int zip, int boroughCode, double x, double y) {
+		if (store.upsertRow(id, diam, statusCode, healthCode, speciesCode, zip, boroughCode, x, y)) {
+			replaced++;
+		}
+		else {
+			added++;
+		}
+	}
+
+	public int getAdded() {
+		return added;
+	}
+
+	public int getReplaced() {
+		return replaced;
+	}
+
+	public int getDeleted() {
+		return deleted;
+	}
+
+	/**
+	 * Getter that returns the number of delete lines whose tree was not in the store.
+	 *
+	 * @return integer
+	 */
+	public int getNotFound() {
+		return notFound;
+	}
+
+	/**
+	 * Returns how many trees were added, replaced and deleted and how long it took.
+	 *
+	 * @return String
+	 */
+	public String getSummary() {
+		return String.format("%,d trees added, %,d replaced, %,d deleted (%,d not found) in %,.1f ms",
+				added, replaced, deleted, notFound, applyNanos / 1e6);
+	}
+
+} // class
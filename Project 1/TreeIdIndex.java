@@ -0,0 +1,216 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class TreeIdIndex {
+
+	// Marks an empty slot. Tree ids are never negative so no (id, row) pair packs to it.
+	private static final long EMPTY = -1L;
+
+	// Open addressing hash table from tree id to row, with linear probing. Every slot packs the id into the upper and
+	// the row into the lower 32 bits of one long, so nothing is boxed and a lookup usually reads a single cache line.
+	// The table is kept between one and two thirds full, which is 12 to 24 bytes per tree.
+	private long[] slots;
+	private int mask;
+	private int size;
+
+	/**
+	 * TreeIdIndex constructor.
+	 * Initializes an empty index with room for the given number of trees before it has to grow.
+	 *
+	 * @param expected
+	 */
+	public TreeIdIndex(int expected) {
+		int capacity = 16;
+		while (capacity * 2 < expected * 3) {
+			capacity *= 2;
+		}
+		slots = new long[capacity];
+		Arrays.fill(slots, EMPTY);
+		mask = capacity - 1;
+	}
+
+	/**
+	 * TreeIdIndex constructor.
+	 * Initializes an index over the given table, whose length is a power of two.
+	 *
+	 * @param slots
+	 * @param size
+	 */
+	private TreeIdIndex(long[] slots, int size) {
+		this.slots = slots;
+		this.mask = slots.length - 1;
+		this.size = size;
+	}
+
+	/**
+	 * Spreads the bits of the id so consecutive ids do not end up in consecutive slots.
+	 *
+	 * @param id
+	 * @return integer
+	 */
+	private static int hash(int id) {
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the row of the tree with the given id, or -1 if there is none.
+	 *
+	 * @param id
+	 * @return integer
+	 */
+	public int get(int id) {
+		for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+			long entry = slots[slot];
+			if (entry == EMPTY) {
+				return -1;
+			}
+			if ((int) (entry >>> 32) == id) {
+				return (int) entry;
+			}
+		}
+	}
+
+	/**
+	 * Maps the given id to the given row.
+	 *
+	 * @param id
+	 * @param row
+	 * @return the row the id was mapped to before, or -1 if it is new
+	 */
+	public int put(int id, int row) {
+		if (id < 0)
+			throw new IllegalArgumentException("The tree id number must be a non-negative integer.");
+		for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+			long entry = slots[slot];
+			if (entry == EMPTY) {
+				slots[slot] = ((long) id << 32) | (row & 0xFFFFFFFFL);
+				size++;
+				if (size * 3 > slots.length * 2) {
+					grow();
+				}
+				return -1;
+			}
+			if ((int) (entry >>> 32) == id) {
+				slots[slot] = ((long) id << 32) | (row & 0xFFFFFFFFL);
+				return (int) entry;
+			}
+		}
+	} // put method
+
+	/**
+	 * Removes the given id from the index.
+	 * The entries after it in the same run of full slots are moved back so every id can still be found from its
+	 * home slot without leaving markers behind.
+	 *
+	 * @param id
+	 * @return the row the id was mapped to, or -1 if it was not in the index
+	 */
+	public int remove(int id) {
+		int slot = hash(id) & mask;
+		while (slots[slot] != EMPTY && (int) (slots[slot] >>> 32) != id) {
+			slot = (slot + 1) & mask;
+		}
+		long removed = slots[slot];
+		if (removed == EMPTY) {
+			return -1;
+		}
+		int gap = slot;
+		for (int next = (gap + 1) & mask; slots[next] != EMPTY; next = (next + 1) & mask) {
+			int home = hash((int) (slots[next] >>> 32)) & mask;
+			// The entry can fill the gap unless its home slot lies after the gap, up to where it is now (with wrapping).
+			boolean homeAfterGap = (gap <= next) ? (gap < home && home <= next) : (gap < home || home <= next);
+			if (!homeAfterGap) {
+				slots[gap] = slots[next];
+				gap = next;
+			}
+		}
+		slots[gap] = EMPTY;
+		size--;
+		return (int) removed;
+	} // remove method
+
+	/**
+	 * Doubles the table and puts every entry back in.
+	 */
+	private void grow() {
+		long[] old = slots;
+		slots = new long[old.length * 2];
+		Arrays.fill(slots, EMPTY);
+		mask = slots.length - 1;
+		for (long entry : old) {
+			if (entry != EMPTY) {
+				int slot = hash((int) (entry >>> 32)) & mask;
+				while (slots[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = entry;
+			}
+		}
+	}
+
+	/**
+	 * Getter that returns the number of ids in the index.
+	 *
+	 * @return integer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Getter that returns the number of bytes the table uses.
+	 *
+	 * @return long
+	 */
+	public long sizeInBytes() {
+		return 8L * slots.length;
+	}
+
+	/**
+	 * Returns the number of bytes writeSnapshot writes.
+	 *
+	 * @return long
+	 */
+	long snapshotSize() {
+		return 4 + 4 + 8L * slots.length;
+	}
+
+	/**
+	 * Writes the table to out as one block of longs, so readSnapshot does not have to put the ids back in one by one.
+	 *
+	 * @param out
+	 */
+	void writeSnapshot(ByteBuffer out) {
+		out.putInt(slots.length);
+		out.putInt(size);
+		out.asLongBuffer().put(slots);
+		out.position(out.position() + 8 * slots.length);
+	}
+
+	/**
+	 * Creates an index from data written by writeSnapshot, copying the table in bulk.
+	 *
+	 * @param in
+	 * @return TreeIdIndex
+	 */
+	static TreeIdIndex readSnapshot(ByteBuffer in) {
+		long[] slots = new long[in.getInt()];
+		int size = in.getInt();
+		in.asLongBuffer().get(slots);
+		in.position(in.position() + 8 * slots.length);
+		return new TreeIdIndex(slots, size);
+	}
+
+} // class
@@ -11,7 +11,7 @@ package edu.nyu.cs.dg2703;
 // Import necessary packages.
 import java.util.ArrayList;
 
-public class TreeList extends ArrayList<Tree> {
+public class TreeList extends ArrayList<Tree> implements TreeCounts {
 
 	/**
 	 * TreeList constructor.
@@ -0,0 +1,373 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class TreeLoader {
+
+	// Columns of the 2015 Street Tree Census that are read (i.e.: tree_id is column 1 so that's 0). Files of the other
+	// censuses are read by the columns their header names, see CensusSchema.
+	static final int TREE_ID = 0;
+	static final int TREE_DBH = 3;
+	static final int STATUS = 6;
+	static final int HEALTH = 7;
+	static final int SPC_COMMON = 9;
+	static final int ZIPCODE = 25;
+	static final int BORONAME = 29;
+	static final int X_SP = 39;
+	static final int Y_SP = 40;
+
+	// Size of the buffer a stream is read into.
+	private static final int BUFFER_SIZE = 1 << 20;
+	// Size of the piece of a file that is memory mapped at a time.
+	private static final long MAP_WINDOW = 256L << 20;
+	// The phases of one line in this many are timed for TreeMetrics, reading the clock for every line would cost more
+	// than tokenizing it.
+	private static final int SAMPLE_INTERVAL = 64;
+	// The counts are handed to TreeMetrics after this many lines (and at the end of every load).
+	private static final int FLUSH_INTERVAL = 8192;
+
+	// The tokenizer is reused for every line so parsing a line does not allocate anything.
+	private CSVTokenizer tokenizer = new CSVTokenizer();
+	private TreeRowSink store;
+	// Where the columns are. The first line of a load (or chunk) is checked for a header that names them.
+	private CensusSchema schema = CensusSchema.CENSUS_2015;
+	private boolean headerChecked;
+	// Whether a line that is not valid is skipped (and counted) instead of stopping the load.
+	private boolean skipInvalid;
+	private int rejected;
+
+	// What was counted and timed since the counts were last handed to TreeMetrics.
+	private int untilSample = SAMPLE_INTERVAL;
+	private long lines;
+	private long rows;
+	private long sampledLines;
+	private long tokenizeNanos;
+	private long constructNanos;
+	private long addNanos;
+
+	/**
+	 * TreeLoader constructor.
+	 * Creates a loader that adds the trees it parses to the given store (or any other sink of rows, such as a
+	 * TreeCountCube that only counts them).
+	 *
+	 * @param store
+	 */
+	public TreeLoader(TreeRowSink store) {
+		this.store = store;
+	}
+
+	/**
+	 * Setter that decides whether lines that are not valid are skipped, and counted in TreeMetrics by reason, or stop
+	 * the load with an IllegalArgumentException (the default).
+	 *
+	 * @param skipInvalid
+	 */
+	public void setSkipInvalid(boolean skipInvalid) {
+		this.skipInvalid = skipInvalid;
+	}
+
+	/**
+	 * Setter for the columns of the census, for lines that come without their header (such as the chunks of a file
+	 * after the first, see ParallelTreeLoader). A header line found later still takes its place.
+	 *
+	 * @param schema
+	 */
+	public void setSchema(CensusSchema schema) {
+		this.schema = schema;
+	}
+
+	public CensusSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * Getter that returns the number of lines this loader skipped because they were not valid.
+	 *
+	 * @return integer
+	 */
+	public int getRejectedCount() {
+		return rejected;
+	}
+
+	/**
+	 * Reads the given census file and adds a tree to the store for every data line in it.
+	 * The file is memory mapped one window at a time and scanned as raw bytes, so files larger than 2 GB work too.
+	 *
+	 * @param file
+	 * @return number of trees added
+	 * @throws IOException
+	 */
+	public int load(File file) throws IOException {
+		TreeMetrics.loadStarted();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			long position = 0;
+			long window = MAP_WINDOW;
+			int rows = 0;
+			while (position < size) {
+				long length = Math.min(window, size - position);
+				long mapStart = System.nanoTime();
+				MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				long mapNanos = System.nanoTime() - mapStart;
+				int end = (int) length;
+				// Unless this is the end of the file, stop after the last complete line of the window.
+				if (position + length < size) {
+					end--;
+					while (end >= 0 && buf.get(end) != '\n') {
+						end--;
+					}
+					end++;
+					// A line longer than the whole window: try again with a bigger one.
+					if (end == 0) {
+						if (window >= Integer.MAX_VALUE)
+							throw new IOException("A line of " + file + " is longer than 2 GB.");
+						window = Math.min(window * 2, Integer.MAX_VALUE);
+						continue;
+					}
+				}
+				TreeMetrics.recordRead(end, mapNanos);
+				rows += parseLines(buf, 0, end);
+				position += end;
+			}
+			return rows;
+		}
+		finally {
+			channel.close();
+			TreeMetrics.loadFinished();
+		}
+	} // load method
+
+	/**
+	 * Reads census data from the given stream and adds a tree to the store for every data line in it.
+	 *
+	 * @param in
+	 * @return number of trees added
+	 * @throws IOException
+	 */
+	public int load(InputStream in) throws IOException {
+		byte[] bytes = new byte[BUFFER_SIZE];
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+		int length = 0;
+		int scanned = 0;
+		int rows = 0;
+		int read;
+		TreeMetrics.loadStarted();
+		try {
+			while (true) {
+				long readStart = System.nanoTime();
+				read = in.read(bytes, length, bytes.length - length);
+				if (read < 0) {
+					break;
+				}
+				TreeMetrics.recordRead(read, System.nanoTime() - readStart);
+				length += read;
+				// Parse every complete line in the buffer.
+				int lineStart = 0;
+				for (int i = scanned; i < length; i++) {
+					if (bytes[i] == '\n') {
+						rows += parseLine(buf, lineStart, i);
+						lineStart = i + 1;
+					}
+				}
+				// Move the incomplete last line to the front of the buffer so the next read completes it.
+				System.arraycopy(bytes, lineStart, bytes, 0, length - lineStart);
+				length -= lineStart;
+				scanned = length;
+				// A single line that fills the whole buffer means the buffer is too small.
+				if (length == bytes.length) {
+					bytes = Arrays.copyOf(bytes, bytes.length * 2);
+					buf = ByteBuffer.wrap(bytes);
+				}
+			}
+			// The file might not end with a line break.
+			if (length > 0) {
+				rows += parseLine(buf, 0, length);
+			}
+			return rows;
+		}
+		finally {
+			flushMetrics();
+			TreeMetrics.loadFinished();
+		}
+	} // load method
+
+	/**
+	 * Parses every line stored in buf between start (inclusive) and end (exclusive) and adds their trees to the store.
+	 * The last line does not need to end with a line break.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @return number of trees added
+	 */
+	public int parseLines(ByteBuffer buf, int start, int end) {
+		int rows = 0;
+		int lineStart = start;
+		for (int i = start; i < end; i++) {
+			if (buf.get(i) == '\n') {
+				rows += parseLine(buf, lineStart, i);
+				lineStart = i + 1;
+			}
+		}
+		if (lineStart < end) {
+			rows += parseLine(buf, lineStart, end);
+		}
+		flushMetrics();
+		return rows;
+	}
+
+	/**
+	 * Parses one line of the census file and adds its tree to the store.
+	 * The header line and blank lines are skipped, and so are lines that are not valid if setSkipInvalid was called.
+	 * If the first line is a header, the columns are read where it names them from then on.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @return 1 if a tree was added, 0 if the line was skipped
+	 * @throws IllegalArgumentException
+	 */
+	int parseLine(ByteBuffer buf, int start, int end) throws IllegalArgumentException {
+		// Time the phases of one line in SAMPLE_INTERVAL only.
+		boolean timed = (--untilSample == 0);
+		long startTime = 0;
+		if (timed) {
+			untilSample = SAMPLE_INTERVAL;
+			startTime = System.nanoTime();
+		}
+		// Leave out the carriage return of Windows line breaks.
+		if (end > start && buf.get(end - 1) == '\r') {
+			end--;
+		}
+		if (!headerChecked && end > start) {
+			headerChecked = true;
+			if (readHeader(buf, start, end)) {
+				return 0;
+			}
+		}
+		CensusSchema schema = this.schema;
+		// Nothing after the last column that is read is needed.
+		int fields = tokenizer.tokenize(buf, start, end, schema.fieldCount);
+		// Make sure to skip the first line of the text file (the first line is just the headers)
+		// and blank/empty lines.
+		if (fields == 0 || tokenizer.isEmpty(schema.treeId) || tokenizer.equalsAscii(schema.treeId, schema.treeIdName)) {
+			return 0;
+		}
+		long tokenizedTime = timed ? System.nanoTime() : 0;
+		if (++lines >= FLUSH_INTERVAL) {
+			flushMetrics();
+		}
+		if (fields < schema.fieldCount)
+			return reject(TreeMetrics.TOO_FEW_COLUMNS, new IllegalArgumentException("A census line must have at least " + schema.fieldCount + " entries but this one has " + fields + "."));
+
+		// Parse the numbers first, then check the fields in the same order the Tree constructor does.
+		int id;
+		int diam;
+		int zip;
+		double x;
+		double y;
+		try {
+			id = tokenizer.parseInt(schema.treeId);
+			diam = tokenizer.parseInt(schema.treeDbh);
+			zip = tokenizer.parseInt(schema.zipcode);
+			x = tokenizer.parseDouble(schema.xSp);
+			y = tokenizer.parseDouble(schema.ySp);
+		}
+		catch (NumberFormatException e) {
+			return reject(TreeMetrics.NOT_A_NUMBER, e);
+		}
+		int statusCode = tokenizer.codeOf(schema.status, TreeStore.STATUSES);
+		int healthCode = 0;
+		if (schema.hasHealth()) {
+			healthCode = tokenizer.codeOf(schema.health, TreeStore.HEALTHS);
+		}
+		// Without a health column the status column holds the condition of the tree.
+		else if (statusCode < 0) {
+			int condition = tokenizer.codeOf(schema.status, CensusSchema.CONDITIONS);
+			if (condition >= 0) {
+				statusCode = CensusSchema.CONDITION_STATUS_CODES[condition];
+				healthCode = CensusSchema.CONDITION_HEALTH_CODES[condition];
+			}
+		}
+		int boroughCode = tokenizer.codeOf(schema.boroname, TreeStore.BOROUGHS);
+		int problem = TreeStore.checkRow(id, diam, statusCode, healthCode, boroughCode);
+		if (problem >= 0)
+			return reject(TreeMetrics.INVALID_FIELD + problem, new IllegalArgumentException(TreeStore.INVALID_ROW_MESSAGES[problem]));
+		long constructedTime = timed ? System.nanoTime() : 0;
+
+		// The species is only added to the dictionary once the row is known to be valid.
+		store.addRow(id, diam, statusCode, healthCode, store.encodeSpecies(tokenizer, schema.spcCommon), zip, boroughCode, x, y);
+		rows++;
+		if (timed) {
+			long endTime = System.nanoTime();
+			sampledLines++;
+			tokenizeNanos += tokenizedTime - startTime;
+			constructNanos += constructedTime - tokenizedTime;
+			addNanos += endTime - constructedTime;
+		}
+		return 1;
+	} // parseLine method
+
+	/**
+	 * Checks whether the line is a census header and if so reads the columns from it.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param end
+	 * @return true if the line is a header
+	 */
+	private boolean readHeader(ByteBuffer buf, int start, int end) {
+		tokenizer.tokenize(buf, start, end);
+		CensusSchema header = CensusSchema.fromHeader(tokenizer);
+		if (header == null) {
+			return false;
+		}
+		schema = header;
+		return true;
+	}
+
+	/**
+	 * Counts a line that is not valid, then skips it or stops the load with the given exception.
+	 *
+	 * @param reason
+	 * @param e
+	 * @return 0, the number of trees added
+	 * @throws IllegalArgumentException
+	 */
+	private int reject(int reason, IllegalArgumentException e) throws IllegalArgumentException {
+		TreeMetrics.recordRejected(reason);
+		if (!skipInvalid)
+			throw e;
+		rejected++;
+		return 0;
+	}
+
+	/**
+	 * Hands what was counted and timed since the last time to TreeMetrics.
+	 */
+	void flushMetrics() {
+		TreeMetrics.recordLines(lines, rows, sampledLines, tokenizeNanos, constructNanos, addNanos);
+		lines = 0;
+		rows = 0;
+		sampledLines = 0;
+		tokenizeNanos = 0;
+		constructNanos = 0;
+		addNanos = 0;
+	}
+
+} // class
@@ -0,0 +1,401 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Statistics of everything the program loaded and answered: how many lines were parsed, rows added and rows rejected
+ * (by reason), how long the phases of loading took, and a LatencyHistogram for every query method.
+ * The counters are LongAdders, so the loader threads add to them without getting in each other's way, and the loaders
+ * only add to them every few thousand lines. The statistics can be published as JMX MBeans under the domain
+ * edu.nyu.cs.dg2703 (see registerMBeans) and printed with report.
+ */
+public class TreeMetrics implements TreeMetricsMBean {
+
+	// Reasons a census line is rejected for. The reasons from INVALID_FIELD on follow the checks of TreeStore.checkRow.
+	static final String[] REJECT_REASONS = { "too few columns", "not a number", "bad tree id", "bad diameter",
+			"bad status", "bad health", "bad borough" };
+	static final int TOO_FEW_COLUMNS = 0;
+	static final int NOT_A_NUMBER = 1;
+	static final int INVALID_FIELD = 2;
+
+	private static final String DOMAIN = "edu.nyu.cs.dg2703";
+	private static final TreeMetrics INSTANCE = new TreeMetrics();
+
+	private static final LongAdder loads = new LongAdder();
+	private static final LongAdder lines = new LongAdder();
+	private static final LongAdder rows = new LongAdder();
+	private static final LongAdder bytes = new LongAdder();
+	private static final LongAdder[] rejected = new LongAdder[REJECT_REASONS.length];
+	// Measured for every read and merge.
+	private static final LongAdder readNanos = new LongAdder();
+	private static final LongAdder mergeNanos = new LongAdder();
+	// Measured by PipelinedTreeLoader: how long its decompressing thread waited for a free buffer (the parsing threads
+	// were behind) and how long its parsing threads waited for data (decompressing was behind).
+	private static final LongAdder decompressorWaitNanos = new LongAdder();
+	private static final LongAdder parserWaitNanos = new LongAdder();
+	// Measured for a sample of the lines only, see TreeLoader.parseLine.
+	private static final LongAdder sampledLines = new LongAdder();
+	private static final LongAdder tokenizeNanos = new LongAdder();
+	private static final LongAdder constructNanos = new LongAdder();
+	private static final LongAdder addNanos = new LongAdder();
+
+	static {
+		for (int reason = 0; reason < rejected.length; reason++) {
+			rejected[reason] = new LongAdder();
+		}
+	}
+
+	// When the load that is running started (0 if none is) and how many rows had been loaded before it.
+	private static volatile long loadStartNanos;
+	private static volatile long loadStartRows;
+	// Rows per second of the last load that finished.
+	private static volatile double lastRowsPerSecond;
+
+	// Latency of every query method by name, in the order they were first used.
+	private static final LinkedHashMap<String, LatencyHistogram> latencies = new LinkedHashMap<String, LatencyHistogram>();
+	private static MBeanServer mbeanServer;
+
+	private TreeMetrics() {
+	}
+
+	/**
+	 * Returns the latency histogram of the named query method (i.e.: "SpatialIndex.nearest"), creating it the first
+	 * time. Callers keep the histogram in a static field, so this is only looked up once per method.
+	 *
+	 * @param name
+	 * @return LatencyHistogram
+	 */
+	static synchronized LatencyHistogram latency(String name) {
+		LatencyHistogram histogram = latencies.get(name);
+		if (histogram == null) {
+			histogram = new LatencyHistogram(name);
+			latencies.put(name, histogram);
+			if (mbeanServer != null) {
+				register(histogram, "type=QueryLatency,name=" + ObjectName.quote(name));
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Publishes the loading statistics and every latency histogram (including the ones created later) in the platform
+	 * MBean server, where JConsole or any other JMX client can read them. Calling it again does nothing.
+	 */
+	static synchronized void registerMBeans() {
+		if (mbeanServer != null) {
+			return;
+		}
+		mbeanServer = ManagementFactory.getPlatformMBeanServer();
+		register(INSTANCE, "type=Loading");
+		for (LatencyHistogram histogram : latencies.values()) {
+			register(histogram, "type=QueryLatency,name=" + ObjectName.quote(histogram.getName()));
+		}
+	}
+
+	private static void register(Object mbean, String properties) {
+		try {
+			ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+			if (!mbeanServer.isRegistered(name)) {
+				mbeanServer.registerMBean(mbean, name);
+			}
+		}
+		// Statistics that cannot be published are not worth stopping the program for.
+		catch (JMException e) {
+			System.err.println("Could not register " + properties + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Counts the start of a load, so the rows per second are measured from here on.
+	 */
+	static void loadStarted() {
+		loads.increment();
+		loadStartRows = rows.sum();
+		loadStartNanos = System.nanoTime();
+	}
+
+	/**
+	 * Counts the end of the load that was started last.
+	 */
+	static void loadFinished() {
+		long start = loadStartNanos;
+		if (start != 0) {
+			lastRowsPerSecond = rowsPerSecond(start);
+			loadStartNanos = 0;
+		}
+	}
+
+	private static double rowsPerSecond(long start) {
+		long nanos = System.nanoTime() - start;
+		return (nanos <= 0) ? 0 : (rows.sum() - loadStartRows) * 1e9 / nanos;
+	}
+
+	/**
+	 * Adds what a loader counted since it last reported.
+	 *
+	 * @param lineCount lines with a tree id that were parsed (or rejected)
+	 * @param rowCount rows that were added
+	 * @param sampledLineCount lines whose phases were timed
+	 * @param tokenize
+	 * @param construct
+	 * @param add nanoseconds spent in each phase of the timed lines
+	 */
+	static void recordLines(long lineCount, long rowCount, long sampledLineCount, long tokenize, long construct, long add) {
+		lines.add(lineCount);
+		rows.add(rowCount);
+		if (sampledLineCount > 0) {
+			sampledLines.add(sampledLineCount);
+			tokenizeNanos.add(tokenize);
+			constructNanos.add(construct);
+			addNanos.add(add);
+		}
+	}
+
+	/**
+	 * Adds bytes that were read (or memory mapped) and the time it took.
+	 *
+	 * @param byteCount
+	 * @param nanos
+	 */
+	static void recordRead(long byteCount, long nanos) {
+		bytes.add(byteCount);
+		readNanos.add(nanos);
+	}
+
+	/**
+	 * Adds the time it took to put the stores parsed on different threads together.
+	 *
+	 * @param nanos
+	 */
+	static void recordMerge(long nanos) {
+		mergeNanos.add(nanos);
+	}
+
+	/**
+	 * Adds the time the stages of a PipelinedTreeLoader waited for each other.
+	 *
+	 * @param decompressorWait nanoseconds the decompressing thread waited for a free buffer
+	 * @param parserWait nanoseconds the parsing threads together waited for data
+	 */
+	static void recordPipelineWaits(long decompressorWait, long parserWait) {
+		decompressorWaitNanos.add(decompressorWait);
+		parserWaitNanos.add(parserWait);
+	}
+
+	/**
+	 * Counts a rejected line.
+	 *
+	 * @param reason one of the positions in REJECT_REASONS
+	 */
+	static void recordRejected(int reason) {
+		rejected[reason].increment();
+	}
+
+	/**
+	 * Returns the estimated total time of a phase that is only timed for a sample of the lines.
+	 */
+	private static double estimatedMillis(LongAdder sampledNanos) {
+		long sampled = sampledLines.sum();
+		return (sampled == 0) ? 0 : sampledNanos.sum() / 1e6 * lines.sum() / sampled;
+	}
+
+	@Override
+	public long getLoads() {
+		return loads.sum();
+	}
+
+	@Override
+	public boolean isLoading() {
+		return loadStartNanos != 0;
+	}
+
+	@Override
+	public long getLinesParsed() {
+		return lines.sum();
+	}
+
+	@Override
+	public long getRowsLoaded() {
+		return rows.sum();
+	}
+
+	@Override
+	public long getBytesRead() {
+		return bytes.sum();
+	}
+
+	/**
+	 * Getter that returns the rows per second of the load that is running, or of the last one if none is.
+	 *
+	 * @return double
+	 */
+	@Override
+	public double getRowsPerSecond() {
+		long start = loadStartNanos;
+		return (start != 0) ? rowsPerSecond(start) : lastRowsPerSecond;
+	}
+
+	@Override
+	public double getReadMillis() {
+		return readNanos.sum() / 1e6;
+	}
+
+	@Override
+	public double getTokenizeMillis() {
+		return estimatedMillis(tokenizeNanos);
+	}
+
+	@Override
+	public double getConstructMillis() {
+		return estimatedMillis(constructNanos);
+	}
+
+	@Override
+	public double getAddMillis() {
+		return estimatedMillis(addNanos);
+	}
+
+	@Override
+	public double getMergeMillis() {
+		return mergeNanos.sum() / 1e6;
+	}
+
+	@Override
+	public double getDecompressorWaitMillis() {
+		return decompressorWaitNanos.sum() / 1e6;
+	}
+
+	@Override
+	public double getParserWaitMillis() {
+		return parserWaitNanos.sum() / 1e6;
+	}
+
+	/**
+	 * Getter that returns the number of rejected lines for every reason together.
+	 *
+	 * @return long
+	 */
+	@Override
+	public long getRowsRejected() {
+		long total = 0;
+		for (LongAdder count : rejected) {
+			total += count.sum();
+		}
+		return total;
+	}
+
+	@Override
+	public long getRejectedTooFewColumns() {
+		return rejected[TOO_FEW_COLUMNS].sum();
+	}
+
+	@Override
+	public long getRejectedNotANumber() {
+		return rejected[NOT_A_NUMBER].sum();
+	}
+
+	@Override
+	public long getRejectedBadTreeId() {
+		return rejected[INVALID_FIELD].sum();
+	}
+
+	@Override
+	public long getRejectedBadDiameter() {
+		return rejected[INVALID_FIELD + 1].sum();
+	}
+
+	@Override
+	public long getRejectedBadStatus() {
+		return rejected[INVALID_FIELD + 2].sum();
+	}
+
+	@Override
+	public long getRejectedBadHealth() {
+		return rejected[INVALID_FIELD + 3].sum();
+	}
+
+	@Override
+	public long getRejectedBadBorough() {
+		return rejected[INVALID_FIELD + 4].sum();
+	}
+
+	/**
+	 * Sets every loading statistic back to zero. The latency histograms are reset one by one.
+	 */
+	@Override
+	public void reset() {
+		for (LongAdder count : new LongAdder[] { loads, lines, rows, bytes, readNanos, mergeNanos, decompressorWaitNanos,
+				parserWaitNanos, sampledLines, tokenizeNanos, constructNanos, addNanos }) {
+			count.reset();
+		}
+		for (LongAdder count : rejected) {
+			count.reset();
+		}
+		lastRowsPerSecond = 0;
+	}
+
+	/**
+	 * Getter that returns the number of lines rejected so far.
+	 *
+	 * @return long
+	 */
+	static long getRejectedCount() {
+		return INSTANCE.getRowsRejected();
+	}
+
+	/**
+	 * Returns every statistic as text: the loading statistics, the rejected lines by reason and one line for every
+	 * query method that was called.
+	 *
+	 * @return String
+	 */
+	static String report() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format("Loaded %,d rows from %,d lines (%,d bytes) in %,d loads, last at %,.0f rows/s%n",
+				INSTANCE.getRowsLoaded(), INSTANCE.getLinesParsed(), INSTANCE.getBytesRead(), INSTANCE.getLoads(),
+				INSTANCE.getRowsPerSecond()));
+		text.append(String.format("Phases: read %,.1f ms, tokenize %,.1f ms, construct %,.1f ms, add %,.1f ms, merge %,.1f ms "
+				+ "(tokenize, construct and add estimated from %,d lines)%n",
+				INSTANCE.getReadMillis(), INSTANCE.getTokenizeMillis(), INSTANCE.getConstructMillis(),
+				INSTANCE.getAddMillis(), INSTANCE.getMergeMillis(), sampledLines.sum()));
+		if (decompressorWaitNanos.sum() + parserWaitNanos.sum() > 0) {
+			text.append(String.format("Pipeline: decompressing waited %,.1f ms for free buffers, parsing waited %,.1f ms for data%n",
+					INSTANCE.getDecompressorWaitMillis(), INSTANCE.getParserWaitMillis()));
+		}
+		text.append(String.format("Rejected %,d lines", INSTANCE.getRowsRejected()));
+		String separator = ": ";
+		for (int reason = 0; reason < REJECT_REASONS.length; reason++) {
+			if (rejected[reason].sum() > 0) {
+				text.append(String.format("%s%,d %s", separator, rejected[reason].sum(), REJECT_REASONS[reason]));
+				separator = ", ";
+			}
+		}
+		text.append(System.lineSeparator());
+		ArrayList<LatencyHistogram> histograms;
+		synchronized (TreeMetrics.class) {
+			histograms = new ArrayList<LatencyHistogram>(latencies.values());
+		}
+		for (LatencyHistogram histogram : histograms) {
+			if (histogram.getCount() > 0) {
+				text.append(histogram).append(System.lineSeparator());
+			}
+		}
+		return text.toString();
+	}
+
+} // class
@@ -0,0 +1,62 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+/**
+ * The loading statistics of TreeMetrics that are published over JMX.
+ * The times of the tokenize, construct and add phases are estimated from a sample of the lines. The wait times are
+ * those of the stages of PipelinedTreeLoader, which loads compressed files.
+ */
+public interface TreeMetricsMBean {
+
+	long getLoads();
+
+	boolean isLoading();
+
+	long getLinesParsed();
+
+	long getRowsLoaded();
+
+	long getBytesRead();
+
+	double getRowsPerSecond();
+
+	double getReadMillis();
+
+	double getTokenizeMillis();
+
+	double getConstructMillis();
+
+	double getAddMillis();
+
+	double getMergeMillis();
+
+	double getDecompressorWaitMillis();
+
+	double getParserWaitMillis();
+
+	long getRowsRejected();
+
+	long getRejectedTooFewColumns();
+
+	long getRejectedNotANumber();
+
+	long getRejectedBadTreeId();
+
+	long getRejectedBadDiameter();
+
+	long getRejectedBadStatus();
+
+	long getRejectedBadHealth();
+
+	long getRejectedBadBorough();
+
+	void reset();
+
+} // interface
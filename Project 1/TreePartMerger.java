@@ -0,0 +1,97 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+/**
+ * Parses the parts of a census that ParallelTreeLoader and PipelinedTreeLoader hand to several threads (chunks of a
+ * file, or blocks of a stream) into a store each, and appends those to the store being loaded in the order of the data.
+ * A part is appended as soon as it and every part before it are parsed, so only the parts that are parsed ahead of an
+ * earlier one are kept in memory, instead of every part until the end of the load.
+ */
+final class TreePartMerger {
+
+	private TreeStore store;
+	// Parsed parts that wait for an earlier part, by their position in the data.
+	private HashMap<Integer, TreeStore> waiting = new HashMap<Integer, TreeStore>();
+	// Position of the next part to append.
+	private int next;
+	private int rows;
+	private long mergeNanos;
+
+	/**
+	 * TreePartMerger constructor.
+	 * Creates a merger that appends the parts to the given store, starting with part 0.
+	 *
+	 * @param store
+	 */
+	TreePartMerger(TreeStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Parses the census lines in the first length bytes of buf into a new store.
+	 *
+	 * @param buf
+	 * @param length
+	 * @param schema
+	 * @param skipInvalid
+	 * @return TreeStore
+	 */
+	static TreeStore parse(ByteBuffer buf, int length, CensusSchema schema, boolean skipInvalid) {
+		// Guess the number of rows from the typical length of a census line.
+		TreeStore part = new TreeStore(length / 512);
+		TreeLoader loader = new TreeLoader(part);
+		loader.setSchema(schema);
+		loader.setSkipInvalid(skipInvalid);
+		loader.parseLines(buf, 0, length);
+		return part;
+	}
+
+	/**
+	 * Hands over the parsed part at the given position in the data. If it is the next one, it is appended along with
+	 * the parts after it that are already waiting; otherwise it waits for the parts before it.
+	 *
+	 * @param sequence
+	 * @param part
+	 */
+	synchronized void add(int sequence, TreeStore part) {
+		if (sequence != next) {
+			waiting.put(sequence, part);
+			return;
+		}
+		long mergeStart = System.nanoTime();
+		while (part != null) {
+			store.append(part);
+			// Rows that repeated a tree id of their own part were parsed like any other row, so count them too.
+			rows += part.size() + part.getDuplicateCount();
+			next++;
+			part = waiting.remove(next);
+		}
+		mergeNanos += System.nanoTime() - mergeStart;
+	}
+
+	/**
+	 * Records the time spent appending in TreeMetrics once every one of the given number of parts is handed over.
+	 *
+	 * @param parts
+	 * @return number of rows parsed
+	 * @throws IllegalStateException if a part is missing
+	 */
+	synchronized int finish(int parts) throws IllegalStateException {
+		if (next != parts)
+			throw new IllegalStateException("Part " + next + " of the census was not parsed.");
+		TreeMetrics.recordMerge(mergeNanos);
+		return rows;
+	}
+
+} // class
@@ -0,0 +1,235 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+
+public class TreeQuery {
+
+	// The values each field has to match. An empty list means the field is not filtered on.
+	// A tree matches the query if it matches at least one value of every filtered field.
+	private ArrayList<String> species = new ArrayList<String>();
+	private ArrayList<String> boroughs = new ArrayList<String>();
+	private ArrayList<String> statuses = new ArrayList<String>();
+	private ArrayList<String> healths = new ArrayList<String>();
+	private ArrayList<Integer> zipcodes = new ArrayList<Integer>();
+	private int minDiameter = 0;
+	private int maxDiameter = Integer.MAX_VALUE;
+
+	/**
+	 * TreeQuery constructor.
+	 * Initializes a query that matches every tree.
+	 */
+	public TreeQuery() {
+	}
+
+	/**
+	 * Only matches trees whose species name contains one of the given names (ignoring case).
+	 *
+	 * @param names
+	 * @return this query
+	 */
+	public TreeQuery species(String... names) {
+		for (String name : names) {
+			species.add(name);
+		}
+		return this;
+	}
+
+	/**
+	 * Only matches trees in one of the given boroughs.
+	 *
+	 * @param names
+	 * @return this query
+	 */
+	public TreeQuery borough(String... names) {
+		for (String name : names) {
+			boroughs.add(name);
+		}
+		return this;
+	}
+
+	/**
+	 * Only matches trees with one of the given statuses (i.e.: "Alive").
+	 *
+	 * @param names
+	 * @return this query
+	 */
+	public TreeQuery status(String... names) {
+		for (String name : names) {
+			statuses.add(name);
+		}
+		return this;
+	}
+
+	/**
+	 * Only matches trees with one of the given health values (i.e.: "Good").
+	 *
+	 * @param names
+	 * @return this query
+	 */
+	public TreeQuery health(String... names) {
+		for (String name : names) {
+			healths.add(name);
+		}
+		return this;
+	}
+
+	/**
+	 * Only matches trees in one of the given zip codes.
+	 *
+	 * @param zips
+	 * @return this query
+	 */
+	public TreeQuery zipcode(int... zips) {
+		for (int zip : zips) {
+			zipcodes.add(zip);
+		}
+		return this;
+	}
+
+	/**
+	 * Only matches trees whose diameter is between min and max (both included).
+	 *
+	 * @param min
+	 * @param max
+	 * @return this query
+	 */
+	public TreeQuery diameterBetween(int min, int max) {
+		minDiameter = min;
+		maxDiameter = max;
+		return this;
+	}
+
+	/**
+	 * Parses a query written as comma separated field=value pairs, with values of the same field separated by '|'
+	 * (i.e.: "species=oak|maple,borough=Queens,status=Alive,health=Good|Fair,dbh=10-30,zipcode=11375|11201").
+	 *
+	 * @param text
+	 * @return TreeQuery
+	 * @throws IllegalArgumentException if a field is unknown or a number cannot be parsed
+	 */
+	public static TreeQuery parse(String text) throws IllegalArgumentException {
+		TreeQuery query = new TreeQuery();
+		for (String part : text.split(",")) {
+			if (part.trim().isEmpty()) {
+				continue;
+			}
+			int equals = part.indexOf('=');
+			if (equals < 0)
+				throw new IllegalArgumentException("Expected field=value but found \"" + part + "\".");
+			String field = part.substring(0, equals).trim().toLowerCase();
+			String[] values = part.substring(equals + 1).trim().split("\\|");
+			try {
+				if (field.equals("species") || field.equals("spc_common")) {
+					query.species(values);
+				}
+				else if (field.equals("borough") || field.equals("boroname")) {
+					query.borough(values);
+				}
+				else if (field.equals("status")) {
+					query.status(values);
+				}
+				else if (field.equals("health")) {
+					query.health(values);
+				}
+				else if (field.equals("zipcode") || field.equals("zip")) {
+					for (String value : values) {
+						query.zipcode(Integer.parseInt(value.trim()));
+					}
+				}
+				else if (field.equals("dbh") || field.equals("tree_dbh") || field.equals("diameter")) {
+					// A single number or an inclusive range "min-max" where either end can be left out.
+					String range = values[0].trim();
+					int dash = range.indexOf('-');
+					if (dash < 0) {
+						int diam = Integer.parseInt(range);
+						query.diameterBetween(diam, diam);
+					}
+					else {
+						String min = range.substring(0, dash).trim();
+						String max = range.substring(dash + 1).trim();
+						query.diameterBetween(min.isEmpty() ? 0 : Integer.parseInt(min),
+											  max.isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(max));
+					}
+				}
+				else {
+					throw new IllegalArgumentException("Unknown query field \"" + field + "\".");
+				}
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number in \"" + part + "\".");
+			}
+		}
+		return query;
+	} // parse method
+
+	ArrayList<String> getSpecies() {
+		return species;
+	}
+
+	ArrayList<String> getBoroughs() {
+		return boroughs;
+	}
+
+	ArrayList<String> getStatuses() {
+		return statuses;
+	}
+
+	ArrayList<String> getHealths() {
+		return healths;
+	}
+
+	ArrayList<Integer> getZipcodes() {
+		return zipcodes;
+	}
+
+	int getMinDiameter() {
+		return minDiameter;
+	}
+
+	int getMaxDiameter() {
+		return maxDiameter;
+	}
+
+	/**
+	 * Overriding the toString method.
+	 * Returns the query in the form parse reads.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		appendField(text, "species", species);
+		appendField(text, "borough", boroughs);
+		appendField(text, "status", statuses);
+		appendField(text, "health", healths);
+		appendField(text, "zipcode", zipcodes);
+		if (minDiameter != 0 || maxDiameter != Integer.MAX_VALUE) {
+			text.append(text.length() == 0 ? "" : ",").append("dbh=").append(minDiameter).append('-');
+			if (maxDiameter != Integer.MAX_VALUE) {
+				text.append(maxDiameter);
+			}
+		}
+		return text.toString();
+	}
+
+	private static void appendField(StringBuilder text, String field, ArrayList<?> values) {
+		if (values.isEmpty()) {
+			return;
+		}
+		text.append(text.length() == 0 ? "" : ",").append(field).append('=');
+		for (int i = 0; i < values.size(); i++) {
+			text.append(i == 0 ? "" : "|").append(values.get(i));
+		}
+	}
+
+} // class
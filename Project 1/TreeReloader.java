@@ -0,0 +1,172 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the census file a server was started with and, when the file changes, loads it again in the background and
+ * publishes the new store to the server. Requests that are running when the new dataset is published finish on the
+ * old one, and if loading fails the old dataset simply stays published.
+ */
+public class TreeReloader {
+
+	private TreeServer server;
+	private File csv;
+	// The command line arguments, so a reload reads the file the same way (snapshot, threads) the first load did.
+	private String[] args;
+	private long intervalMillis;
+
+	private ScheduledExecutorService scheduler;
+
+	// Modification time and length of the file when it was last loaded.
+	private long loadedModified;
+	private long loadedLength;
+	// Modification time and length of the file at the previous check. A changed file is only loaded once it looks
+	// the same at two checks in a row, so a file that is still being written is not loaded half way.
+	private long seenModified;
+	private long seenLength;
+
+	// Only written by the scheduler's thread and read by request threads.
+	private volatile int reloads;
+	private volatile int failedReloads;
+	private volatile long lastReloadMillis = -1;
+	private volatile String lastError;
+
+	/**
+	 * TreeReloader constructor.
+	 * Creates a reloader that checks the census file for changes every intervalMillis milliseconds.
+	 *
+	 * @param server
+	 * @param csv
+	 * @param args
+	 * @param intervalMillis
+	 */
+	public TreeReloader(TreeServer server, File csv, String[] args, long intervalMillis) {
+		if (intervalMillis < 1)
+			throw new IllegalArgumentException("The reload interval must be a positive integer.");
+		this.server = server;
+		this.csv = csv;
+		this.args = args;
+		this.intervalMillis = intervalMillis;
+		this.loadedModified = csv.lastModified();
+		this.loadedLength = csv.length();
+		this.seenModified = loadedModified;
+		this.seenLength = loadedLength;
+	}
+
+	/**
+	 * Starts checking the file on a background thread.
+	 */
+	public void start() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "tree-reloader");
+			// The server's threads keep the program running, not this one.
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::check, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops checking the file.
+	 */
+	public void stop() {
+		scheduler.shutdown();
+	}
+
+	/**
+	 * Loads the file again if it changed since it was last loaded and has not changed since the previous check.
+	 */
+	void check() {
+		long modified = csv.lastModified();
+		long length = csv.length();
+		boolean settled = (modified == seenModified && length == seenLength);
+		seenModified = modified;
+		seenLength = length;
+		// A missing file (modified is 0) is left alone until it is back.
+		if (modified == 0 || !settled || (modified == loadedModified && length == loadedLength)) {
+			return;
+		}
+		reload();
+		// Whether it worked or not, this version of the file is not tried again.
+		loadedModified = modified;
+		loadedLength = length;
+	}
+
+	/**
+	 * Loads the file into a new store the way the server was started (see NYCStreetTrees.prepareTrees, which applies
+	 * the --delta change sets and --cluster) and publishes it to the server.
+	 *
+	 * @return true if the new store was published
+	 */
+	boolean reload() {
+		long start = System.nanoTime();
+		try {
+			TreeStore store = NYCStreetTrees.prepareTrees(csv, args);
+			// Publishing builds the new dataset's indexes, which is part of the time it takes until the new data is live.
+			TreeDataset dataset = server.publish(store);
+			lastReloadMillis = (System.nanoTime() - start) / 1000000;
+			lastError = null;
+			reloads++;
+			System.err.println(String.format("Reloaded %,d trees from %s in %,d ms (generation %d)",
+					store.size(), csv, lastReloadMillis, dataset.getGeneration()));
+			return true;
+		}
+		// A file that is cut short while it is mapped fails with an InternalError rather than an IOException.
+		catch (IOException | RuntimeException | InternalError e) {
+			lastError = e.toString();
+			failedReloads++;
+			System.err.println("Could not reload " + csv + ", still serving generation " + server.getDataset().getGeneration() + ": " + e);
+			return false;
+		}
+	} // reload method
+
+	/**
+	 * Getter that returns the number of times the file was reloaded and published.
+	 *
+	 * @return integer
+	 */
+	public int getReloads() {
+		return reloads;
+	}
+
+	/**
+	 * Getter that returns the number of times reloading the file failed.
+	 *
+	 * @return integer
+	 */
+	public int getFailedReloads() {
+		return failedReloads;
+	}
+
+	/**
+	 * Getter that returns how many milliseconds the last successful reload took from reading the file until the new
+	 * data was published, or -1 if there was none yet.
+	 *
+	 * @return long
+	 */
+	public long getLastReloadMillis() {
+		return lastReloadMillis;
+	}
+
+	/**
+	 * Getter that returns the error of the last reload if it failed, or null.
+	 *
+	 * @return String
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+} // class
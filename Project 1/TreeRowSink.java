@@ -0,0 +1,43 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+/**
+ * Something a TreeLoader can hand the rows it parses to.
+ * The loader validates every row and encodes its status, health and borough before passing it on.
+ */
+public interface TreeRowSink {
+
+	/**
+	 * Returns the species code of the name in the given field of the tokenizer's current line,
+	 * adding the name to the sink's species dictionary if it is new.
+	 *
+	 * @param tokenizer
+	 * @param field
+	 * @return integer code
+	 */
+	int encodeSpecies(CSVTokenizer tokenizer, int field);
+
+	/**
+	 * Takes one validated and encoded row.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param statusCode
+	 * @param healthCode
+	 * @param speciesCode
+	 * @param zip
+	 * @param boroughCode
+	 * @param x
+	 * @param y
+	 */
+	void addRow(int id, int diam, int statusCode, int healthCode, int speciesCode,
+				int zip, int boroughCode, double x, double y);
+
+} // interface
@@ -0,0 +1,379 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class TreeServer {
+
+	// Most trees a radius, box or nearest query lists when the request does not ask for a different limit.
+	private static final int DEFAULT_LIMIT = 100;
+
+	// The dataset every request is answered from. A request reads it once and works on that snapshot until it is done,
+	// so publishing a new dataset never blocks or disturbs requests that are running.
+	private AtomicReference<TreeDataset> current = new AtomicReference<TreeDataset>();
+	private AtomicLong generations = new AtomicLong();
+
+	private HttpServer server;
+	private ExecutorService executor;
+	// Reloads the census file when it changes, or null.
+	private volatile TreeReloader reloader;
+
+	/**
+	 * TreeServer constructor.
+	 * Creates a server that answers queries about the given store, which is frozen.
+	 *
+	 * @param store
+	 */
+	public TreeServer(TreeStore store) {
+		publish(store);
+	}
+
+	/**
+	 * Makes the given store the one new requests are answered from. The store is frozen and indexed first.
+	 *
+	 * @param store
+	 * @return the new dataset
+	 */
+	public TreeDataset publish(TreeStore store) {
+		TreeDataset dataset = new TreeDataset(store, generations.incrementAndGet());
+		current.set(dataset);
+		return dataset;
+	}
+
+	/**
+	 * Getter that returns the dataset new requests are answered from.
+	 *
+	 * @return TreeDataset
+	 */
+	public TreeDataset getDataset() {
+		return current.get();
+	}
+
+	/**
+	 * Sets the reloader whose counters /status reports.
+	 *
+	 * @param reloader
+	 */
+	public void setReloader(TreeReloader reloader) {
+		this.reloader = reloader;
+	}
+
+	/**
+	 * Starts answering HTTP requests on the given address and port.
+	 *
+	 * @param host
+	 * @param port
+	 * @throws IOException
+	 */
+	public void start(String host, int port) throws IOException {
+		server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+		executor = newRequestExecutor();
+		server.setExecutor(executor);
+		server.createContext("/status", handler("/status", this::status));
+		server.createContext("/species", handler("/species", this::species));
+		server.createContext("/diameters", handler("/diameters", this::diameters));
+		server.createContext("/borough", handler("/borough", this::borough));
+		server.createContext("/count", handler("/count", this::count));
+		server.createContext("/radius", handler("/radius", this::radius));
+		server.createContext("/box", handler("/box", this::box));
+		server.createContext("/nearest", handler("/nearest", this::nearest));
+		server.createContext("/tree", handler("/tree", this::tree));
+		// Every other path.
+		server.createContext("/", handler("/", this::unknown));
+		server.start();
+	}
+
+	/**
+	 * Returns the port the server listens on.
+	 *
+	 * @return integer
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Stops the server, waiting at most the given number of seconds for running requests.
+	 *
+	 * @param seconds
+	 */
+	public void stop(int seconds) {
+		server.stop(seconds);
+		executor.shutdown();
+	}
+
+	/**
+	 * Returns an executor that runs every request on its own virtual thread if the JVM has them (Java 21 and later),
+	 * or otherwise on a pool of platform threads that grows with the number of requests.
+	 * The method is looked up by reflection so the code still compiles and runs on older JVMs.
+	 *
+	 * @return ExecutorService
+	 */
+	static ExecutorService newRequestExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * A query that turns the request parameters and a dataset into a JSON response.
+	 */
+	private interface Query {
+		String answer(HashMap<String, String> params, TreeDataset dataset);
+	}
+
+	/**
+	 * Wraps a query into an HTTP handler that parses the parameters, takes the current dataset and sends the answer,
+	 * or a JSON error with status 400 if a parameter is missing or wrong and 404 if there is nothing to answer with.
+	 * The time every request takes is recorded in the latency histogram of its path.
+	 *
+	 * @param path
+	 * @param query
+	 * @return HttpHandler
+	 */
+	private HttpHandler handler(String path, Query query) {
+		LatencyHistogram latency = TreeMetrics.latency("GET " + path);
+		return new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				long start = System.nanoTime();
+				int status = 200;
+				String body;
+				try {
+					if (!exchange.getRequestMethod().equals("GET")) {
+						status = 405;
+						body = error("Only GET requests are supported.");
+					}
+					else {
+						body = query.answer(parseQuery(exchange.getRequestURI().getRawQuery()), current.get());
+					}
+				}
+				catch (NoSuchElementException e) {
+					status = 404;
+					body = error(e.getMessage());
+				}
+				catch (IllegalArgumentException e) {
+					status = 400;
+					body = error(e.getMessage());
+				}
+				catch (RuntimeException e) {
+					status = 500;
+					body = error(e.toString());
+				}
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+				exchange.sendResponseHeaders(status, bytes.length);
+				OutputStream out = exchange.getResponseBody();
+				try {
+					out.write(bytes);
+				}
+				finally {
+					out.close();
+					latency.recordSince(start);
+				}
+			}
+		};
+	}
+
+	private static String error(String message) {
+		return "{\"error\": " + NYCStreetTrees.jsonString(String.valueOf(message)) + "}";
+	}
+
+	/**
+	 * Splits a URL query string (i.e.: "q=oak&borough=Queens") into decoded names and values.
+	 *
+	 * @param rawQuery
+	 * @return HashMap<String, String>
+	 */
+	static HashMap<String, String> parseQuery(String rawQuery) {
+		HashMap<String, String> params = new HashMap<String, String>();
+		if (rawQuery == null) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) {
+			if (pair.isEmpty()) {
+				continue;
+			}
+			int equals = pair.indexOf('=');
+			String name = (equals < 0) ? pair : pair.substring(0, equals);
+			String value = (equals < 0) ? "" : pair.substring(equals + 1);
+			params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+		}
+		return params;
+	}
+
+	private static String required(HashMap<String, String> params, String name) {
+		String value = params.get(name);
+		if (value == null)
+			throw new IllegalArgumentException("Missing parameter " + name + ".");
+		return value;
+	}
+
+	private static double number(HashMap<String, String> params, String name) {
+		try {
+			return Double.parseDouble(required(params, name));
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " is not a number.");
+		}
+	}
+
+	private static int integer(HashMap<String, String> params, String name, int defaultValue) {
+		String value = params.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Parameter " + name + " is not an integer.");
+		}
+	}
+
+	// GET /status
+	private String status(HashMap<String, String> params, TreeDataset dataset) {
+		StringBuilder json = new StringBuilder("{\"generation\": ").append(dataset.getGeneration());
+		json.append(", \"trees\": ").append(dataset.getStore().size());
+		json.append(", \"species\": ").append(dataset.getStore().getSpeciesNames().size());
+		json.append(", \"published\": ").append(dataset.getCreatedMillis());
+		// Whether prefix queries read only the rows of the matching species (see TreeStore.cluster).
+		json.append(", \"clustered\": ").append(dataset.getStore().isClustered());
+		TreeReloader reloader = this.reloader;
+		if (reloader != null) {
+			json.append(", \"reloads\": ").append(reloader.getReloads());
+			json.append(", \"failedReloads\": ").append(reloader.getFailedReloads());
+			json.append(", \"lastReloadMillis\": ").append(reloader.getLastReloadMillis());
+			String error = reloader.getLastError();
+			json.append(", \"lastReloadError\": ").append(error == null ? "null" : NYCStreetTrees.jsonString(error));
+		}
+		return json.append('}').toString();
+	}
+
+	// GET /species?q=oak
+	private String species(HashMap<String, String> params, TreeDataset dataset) {
+		return SpeciesReport.forQuery(dataset.getStore().getCounts(), required(params, "q")).toJson();
+	}
+
+	// GET /diameters?q=oak[&borough=Queens]
+	private String diameters(HashMap<String, String> params, TreeDataset dataset) {
+		String query = required(params, "q");
+		String borough = params.get("borough");
+		if (borough != null && TreeStore.codeOf(TreeStore.BOROUGHS, borough) < 0)
+			throw new IllegalArgumentException("Not a valid borough name: " + borough + ".");
+		return "{\"query\": " + NYCStreetTrees.jsonString(query)
+				+ ", \"borough\": " + ((borough == null) ? "null" : NYCStreetTrees.jsonString(borough))
+				+ ", \"diameters\": " + dataset.getStore().getDiameters(query, borough).toJson() + "}";
+	}
+
+	// GET /borough?name=Queens
+	private String borough(HashMap<String, String> params, TreeDataset dataset) {
+		String name = required(params, "name");
+		return "{\"borough\": " + NYCStreetTrees.jsonString(name) + ", \"count\": " + dataset.getStore().getCountByBorough(name) + "}";
+	}
+
+	// GET /count?q=species=oak,borough=Queens,dbh=10-20
+	private String count(HashMap<String, String> params, TreeDataset dataset) {
+		TreeQuery query = TreeQuery.parse(params.containsKey("q") ? params.get("q") : "");
+		int[] boroughCounts = dataset.getBitmapIndex().countByBorough(query);
+		StringBuilder json = new StringBuilder("{\"query\": ").append(NYCStreetTrees.jsonString(query.toString()));
+		int total = 0;
+		for (int boroughCode = 0; boroughCode < boroughCounts.length; boroughCode++) {
+			json.append(", ").append(NYCStreetTrees.jsonString(TreeStore.BOROUGHS[boroughCode])).append(": ").append(boroughCounts[boroughCode]);
+			total += boroughCounts[boroughCode];
+		}
+		return json.append(", \"NYC\": ").append(total).append('}').toString();
+	}
+
+	// GET /radius?x=1000000&y=200000&r=500&species=oak&limit=100
+	private String radius(HashMap<String, String> params, TreeDataset dataset) {
+		int[] rows = dataset.getSpatialIndex().withinRadius(number(params, "x"), number(params, "y"), number(params, "r"), params.get("species"));
+		return trees(dataset.getStore(), rows, integer(params, "limit", DEFAULT_LIMIT));
+	}
+
+	// GET /box?minX=...&minY=...&maxX=...&maxY=...&species=oak&limit=100
+	private String box(HashMap<String, String> params, TreeDataset dataset) {
+		int[] rows = dataset.getSpatialIndex().withinBox(number(params, "minX"), number(params, "minY"),
+				number(params, "maxX"), number(params, "maxY"), params.get("species"));
+		return trees(dataset.getStore(), rows, integer(params, "limit", DEFAULT_LIMIT));
+	}
+
+	// GET /nearest?x=1000000&y=200000&k=10&species=oak
+	private String nearest(HashMap<String, String> params, TreeDataset dataset) {
+		int k = integer(params, "k", 10);
+		int[] rows = dataset.getSpatialIndex().nearest(number(params, "x"), number(params, "y"), k, params.get("species"));
+		return trees(dataset.getStore(), rows, k);
+	}
+
+	// GET /tree?id=180683
+	private String tree(HashMap<String, String> params, TreeDataset dataset) {
+		int row = dataset.getStore().findRow(integer(params, "id", -1));
+		if (row < 0)
+			throw new NoSuchElementException("No tree with id " + params.get("id") + ".");
+		StringBuilder json = new StringBuilder();
+		appendTree(json, dataset.getStore(), row);
+		return json.toString();
+	}
+
+	private String unknown(HashMap<String, String> params, TreeDataset dataset) {
+		throw new NoSuchElementException("Unknown path. Try /status, /species, /borough, /count, /radius, /box, /nearest or /tree.");
+	}
+
+	/**
+	 * Returns the number of rows and the first limit of them as JSON trees.
+	 *
+	 * @param store
+	 * @param rows
+	 * @param limit
+	 * @return String
+	 */
+	private static String trees(TreeStore store, int[] rows, int limit) {
+		StringBuilder json = new StringBuilder("{\"count\": ").append(rows.length).append(", \"trees\": [");
+		for (int i = 0; i < rows.length && i < limit; i++) {
+			if (i > 0) {
+				json.append(", ");
+			}
+			appendTree(json, store, rows[i]);
+		}
+		return json.append("]}").toString();
+	}
+
+	private static void appendTree(StringBuilder json, TreeStore store, int row) {
+		json.append("{\"tree_id\": ").append(store.getTreeId(row));
+		json.append(", \"species\": ").append(NYCStreetTrees.jsonString(store.getSpeciesNames().decode(store.getSpeciesCode(row))));
+		json.append(", \"borough\": ").append(NYCStreetTrees.jsonString(TreeStore.BOROUGHS[store.getBoroughCode(row)]));
+		json.append(", \"status\": ").append(NYCStreetTrees.jsonString(TreeStore.STATUSES[store.getStatusCode(row)]));
+		json.append(", \"health\": ").append(NYCStreetTrees.jsonString(TreeStore.HEALTHS[store.getHealthCode(row)]));
+		json.append(", \"tree_dbh\": ").append(store.getDiameter(row));
+		json.append(", \"zipcode\": ").append(store.getZipcode(row));
+		json.append(", \"x_sp\": ").append(store.getX(row));
+		json.append(", \"y_sp\": ").append(store.getY(row)).append('}');
+	}
+
+} // class
@@ -0,0 +1,120 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class TreeSnapshot {
+
+	// "NYCT" in ASCII, followed by the version of the layout below.
+	private static final int MAGIC = 0x4E594354;
+	private static final int VERSION = 5;
+
+	// Header: magic, version, length and last modified time of the CSV file the snapshot was made from, payload length,
+	// the CRC32 checksum of the payload and the flags of the load. The payload is what TreeStore.writeSnapshot writes.
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 8 + 4;
+	// Flag of a snapshot of a load that skipped the lines that are not valid (--skip-invalid).
+	private static final int SKIP_INVALID = 1;
+
+	/**
+	 * Writes the store to a snapshot file, remembering which CSV file it was loaded from and whether the load skipped
+	 * the lines that are not valid.
+	 * The snapshot is written to a temporary file first and then renamed, so a reader never sees half a snapshot.
+	 *
+	 * @param store
+	 * @param snapshot
+	 * @param source
+	 * @param skipInvalid
+	 * @throws IOException
+	 */
+	public static void write(TreeStore store, File snapshot, File source, boolean skipInvalid) throws IOException {
+		long payloadSize = store.snapshotSize();
+		if (HEADER_SIZE + payloadSize > Integer.MAX_VALUE)
+			throw new IOException("The data set is too large for a snapshot.");
+
+		File temp = new File(snapshot.getPath() + ".tmp");
+		FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + payloadSize);
+			buf.position(HEADER_SIZE);
+			store.writeSnapshot(buf);
+
+			// Checksum the payload and fill in the header.
+			CRC32 crc = new CRC32();
+			buf.position(HEADER_SIZE);
+			crc.update(buf);
+			buf.putInt(0, MAGIC);
+			buf.putInt(4, VERSION);
+			buf.putLong(8, source.length());
+			buf.putLong(16, source.lastModified());
+			buf.putLong(24, payloadSize);
+			buf.putLong(32, crc.getValue());
+			buf.putInt(40, skipInvalid ? SKIP_INVALID : 0);
+			buf.force();
+		}
+		finally {
+			channel.close();
+		}
+		Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	} // write method
+
+	/**
+	 * Reads a store back from a snapshot file.
+	 * The file is memory mapped and its columns are copied into the store in bulk.
+	 *
+	 * @param snapshot
+	 * @param source the CSV file the snapshot has to match, or null to skip that check
+	 * @param skipInvalid whether the snapshot has to be of a load that skipped the lines that are not valid
+	 * @return TreeStore
+	 * @throws IOException if the snapshot is not a valid snapshot, is corrupt, or is older than the source file or of
+	 *         a load with another skipInvalid setting
+	 */
+	public static TreeStore read(File snapshot, File source, boolean skipInvalid) throws IOException {
+		FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ);
+		try {
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException(snapshot + " is not a tree snapshot.");
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buf.getInt(0) != MAGIC)
+				throw new IOException(snapshot + " is not a tree snapshot.");
+			if (buf.getInt(4) != VERSION)
+				throw new IOException(snapshot + " was written by a different version (" + buf.getInt(4) + ").");
+			// The snapshot is stale if the CSV file changed after it was written.
+			if (source != null && (buf.getLong(8) != source.length() || buf.getLong(16) != source.lastModified()))
+				throw new IOException(snapshot + " is out of date with " + source + ".");
+			// A snapshot of a load that skipped the lines that are not valid would hide them from a load that does not.
+			if (((buf.getInt(40) & SKIP_INVALID) != 0) != skipInvalid)
+				throw new IOException(snapshot + " was written " + (skipInvalid ? "without" : "with") + " --skip-invalid.");
+			long payloadSize = buf.getLong(24);
+			if (HEADER_SIZE + payloadSize != channel.size())
+				throw new IOException(snapshot + " is truncated.");
+
+			CRC32 crc = new CRC32();
+			buf.position(HEADER_SIZE);
+			crc.update(buf);
+			if (crc.getValue() != buf.getLong(32))
+				throw new IOException(snapshot + " is corrupt (checksum mismatch).");
+
+			buf.position(HEADER_SIZE);
+			return TreeStore.readSnapshot(buf);
+		}
+		finally {
+			channel.close();
+		}
+	} // read method
+
+} // class
@@ -0,0 +1,1083 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class TreeStore implements TreeCounts, TreeRowSink {
+
+	// The only values the Tree class accepts for the borough, status and health fields.
+	// A row stores the position of its value in these arrays instead of the String itself.
+	static final String[] BOROUGHS = { "Manhattan", "Bronx", "Brooklyn", "Queens", "Staten Island" };
+	static final String[] STATUSES = { "", "Alive", "Dead", "Stump" };
+	static final String[] HEALTHS = { "", "Good", "Fair", "Poor" };
+
+	// What is wrong with a row, by the codes checkRow returns (in the order the Tree constructor checks).
+	static final String[] INVALID_ROW_MESSAGES = {
+			"The tree id number must be a non-negative integer.",
+			"The tree diameter must be a non-negative integer.",
+			"Not a valid tree status.",
+			"Not a valid tree health.",
+			"Not a valid borough name." };
+
+	// Number of rows the columns start out with before they need to grow.
+	private static final int INITIAL_CAPACITY = 1024;
+	// At most this many conflict messages are kept, the rest are only counted.
+	private static final int MAX_CONFLICT_MESSAGES = 100;
+
+	// Latency of the species queries (getCountByBorough is a single lookup and not worth timing).
+	private static final LatencyHistogram COUNT_BY_SPECIES_LATENCY = TreeMetrics.latency("TreeStore.getCountByTreeSpecies");
+	private static final LatencyHistogram COUNT_BY_SPECIES_BOROUGH_LATENCY = TreeMetrics.latency("TreeStore.getCountByTreeSpeciesBorough");
+	private static final LatencyHistogram MATCHING_SPECIES_LATENCY = TreeMetrics.latency("TreeStore.getMatchingSpecies");
+	private static final LatencyHistogram DIAMETERS_LATENCY = TreeMetrics.latency("TreeStore.getDiameters");
+	private static final LatencyHistogram PREFIX_LATENCY = TreeMetrics.latency("TreeStore.getDiametersByPrefix");
+
+	// Create one primitive array (column) per Tree data field.
+	// Row i of the store is made up of element i of every column.
+	private int size;
+	private int[] treeIds;
+	private int[] diameters;
+	private int[] zipcodes;
+	private double[] xs;
+	private double[] ys;
+	private short[] speciesCodes;
+	private byte[] boroughCodes;
+	private byte[] statusCodes;
+	private byte[] healthCodes;
+
+	// Species dictionary (each row keeps the code of its species name) and species x borough count cube that is
+	// filled in as rows are added. The counting queries are answered from the cube instead of scanning the columns.
+	private TreeCountCube counts = new TreeCountCube();
+
+	// Row of every tree id. A row whose id is already in the store replaces the earlier row instead of being added again,
+	// unless the two rows name different species, which is reported as a conflict and the later row is dropped.
+	private TreeIdIndex ids;
+	private int duplicates;
+	private int conflicts;
+	private ArrayList<String> conflictMessages = new ArrayList<String>();
+
+	// Incremented by every change to the rows, so the indexes below know when they have to be rebuilt.
+	// Indexes that are up to date are kept up to date row by row as the store changes (see unindexRow and indexRow).
+	private int version;
+	// A frozen store refuses every change, so it can be shared between threads without locks.
+	private boolean frozen;
+
+	// k-d tree over the coordinates, built the first time it is needed and again after the rows changed.
+	private SpatialIndex spatialIndex;
+	private int spatialIndexVersion;
+	// Bitmap indexes over the low cardinality columns, built the same way.
+	private BitmapIndex bitmapIndex;
+	private int bitmapIndexVersion;
+
+	// After cluster the rows are sorted by species name (ignoring case) and tree id, the order of Tree.compareTo.
+	// clusterNames are the species names in that order (one for names that only differ in case) and the rows of
+	// clusterNames[i] are clusterStarts[i] to clusterStarts[i + 1] - 1. They only hold while clusterVersion is version.
+	private String[] clusterNames;
+	private int[] clusterStarts;
+	private int clusterVersion;
+
+	/**
+	 * TreeStore constructor.
+	 * Initializes an empty store.
+	 */
+	public TreeStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * TreeStore constructor.
+	 * Initializes an empty store with room for the given number of rows.
+	 *
+	 * @param capacity
+	 */
+	public TreeStore(int capacity) {
+		capacity = Math.max(capacity, 16);
+		treeIds = new int[capacity];
+		diameters = new int[capacity];
+		zipcodes = new int[capacity];
+		xs = new double[capacity];
+		ys = new double[capacity];
+		speciesCodes = new short[capacity];
+		boroughCodes = new byte[capacity];
+		statusCodes = new byte[capacity];
+		healthCodes = new byte[capacity];
+		ids = new TreeIdIndex(capacity);
+	}
+
+	/**
+	 * Adds a Tree object to the store by copying its data fields into the columns.
+	 *
+	 * @param tree
+	 */
+	public void add(Tree tree) {
+		add(tree.getID(tree), tree.getDiameter(tree), tree.getStatus(tree), tree.getHealth(tree), tree.getSpecies(tree),
+			tree.getZipcode(tree), tree.getBorough(tree), tree.getX(tree), tree.getY(tree));
+	}
+
+	/**
+	 * Adds a tree to the store from its data fields, or replaces the tree that has the same id, whatever its species.
+	 * The fields are validated the same way the Tree constructor validates them.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param status
+	 * @param health
+	 * @param spc
+	 * @param zip
+	 * @param boro
+	 * @param x
+	 * @param y
+	 * @return true if a tree was replaced, false if it was added
+	 * @throws IllegalArgumentException
+	 */
+	public boolean upsert(int id, int diam, String status, String health, String spc,
+						  int zip, String boro, double x, double y) throws IllegalArgumentException {
+		// tree species exception
+		if (spc == null)
+			throw new IllegalArgumentException("Not a valid tree species.");
+		int statusCode = (status == null) ? 0 : codeOf(STATUSES, status);
+		int healthCode = (health == null) ? 0 : codeOf(HEALTHS, health);
+		int boroughCode = (boro == null) ? -1 : codeOf(BOROUGHS, boro);
+		validate(id, diam, statusCode, healthCode, boroughCode);
+
+		return upsertRow(id, diam, statusCode, healthCode, encodeSpecies(spc), zip, boroughCode, x, y);
+	}
+
+	/**
+	 * Adds a tree to the store from its data fields (id, diam, status, health, spc, zip, boro, x, y).
+	 * The fields are validated the same way the Tree constructor validates them.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param status
+	 * @param health
+	 * @param spc
+	 * @param zip
+	 * @param boro
+	 * @param x
+	 * @param y
+	 * @throws IllegalArgumentException
+	 */
+	public void add(int id, int diam, String status, String health, String spc,
+					int zip, String boro, double x, double y) throws IllegalArgumentException {
+		// tree species exception
+		if (spc == null)
+			throw new IllegalArgumentException("Not a valid tree species.");
+		int statusCode = (status == null) ? 0 : codeOf(STATUSES, status);
+		int healthCode = (health == null) ? 0 : codeOf(HEALTHS, health);
+		int boroughCode = (boro == null) ? -1 : codeOf(BOROUGHS, boro);
+		validate(id, diam, statusCode, healthCode, boroughCode);
+
+		addRow(id, diam, statusCode, healthCode, encodeSpecies(spc), zip, boroughCode, x, y);
+	}
+
+	/**
+	 * Validates the fields of a row whose status, health and borough have already been turned into codes (-1 for a value
+	 * that is not allowed). Throws the same exceptions, in the same order, as the Tree constructor.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param statusCode
+	 * @param healthCode
+	 * @param boroughCode
+	 * @throws IllegalArgumentException
+	 */
+	static void validate(int id, int diam, int statusCode, int healthCode, int boroughCode) throws IllegalArgumentException {
+		int problem = checkRow(id, diam, statusCode, healthCode, boroughCode);
+		if (problem >= 0)
+			throw new IllegalArgumentException(INVALID_ROW_MESSAGES[problem]);
+	}
+
+	/**
+	 * Checks the fields of a row in the same order as validate, without throwing.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param statusCode
+	 * @param healthCode
+	 * @param boroughCode
+	 * @return -1 if the row is valid, otherwise the position of the first problem in INVALID_ROW_MESSAGES
+	 */
+	static int checkRow(int id, int diam, int statusCode, int healthCode, int boroughCode) {
+		// tree id exception
+		if (id < 0)
+			return 0;
+		// tree diameter exception
+		if (diam < 0)
+			return 1;
+		// tree status exception
+		if (statusCode < 0)
+			return 2;
+		// tree health exception
+		if (healthCode < 0)
+			return 3;
+		// tree borough exception
+		if (boroughCode < 0)
+			return 4;
+		return -1;
+	}
+
+	/**
+	 * Appends an already validated and encoded row to the end of every column.
+	 * If a row with the same tree id is already in the store, the earlier row is replaced instead (an upsert), or the new
+	 * row is dropped and reported as a conflict if it names a different species.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param statusCode
+	 * @param healthCode
+	 * @param speciesCode
+	 * @param zip
+	 * @param boroughCode
+	 * @param x
+	 * @param y
+	 */
+	@Override
+	public void addRow(int id, int diam, int statusCode, int healthCode, int speciesCode,
+					   int zip, int boroughCode, double x, double y) {
+		checkNotFrozen();
+		int row = ids.get(id);
+		if (row >= 0) {
+			duplicates++;
+			if (isConflict(row, speciesCode)) {
+				return;
+			}
+		}
+		setRow(row, id, diam, statusCode, healthCode, speciesCode, zip, boroughCode, x, y);
+	} // addRow method
+
+	/**
+	 * Appends an already validated and encoded row, or replaces the row with the same tree id whatever its species.
+	 * Unlike addRow this is not counted as a duplicate, it is meant for applying corrections.
+	 *
+	 * @param id
+	 * @param diam
+	 * @param statusCode
+	 * @param healthCode
+	 * @param speciesCode
+	 * @param zip
+	 * @param boroughCode
+	 * @param x
+	 * @param y
+	 * @return true if a row was replaced, false if it was appended
+	 */
+	public boolean upsertRow(int id, int diam, int statusCode, int healthCode, int speciesCode,
+							 int zip, int boroughCode, double x, double y) {
+		checkNotFrozen();
+		int row = ids.get(id);
+		setRow(row, id, diam, statusCode, healthCode, speciesCode, zip, boroughCode, x, y);
+		return row >= 0;
+	}
+
+	/**
+	 * Writes a row into the columns: over the given row, or at the end if row is -1.
+	 * The count cube and the indexes are updated for the old and the new values.
+	 *
+	 * @param row
+	 * @param id
+	 * @param diam
+	 * @param statusCode
+	 * @param healthCode
+	 * @param speciesCode
+	 * @param zip
+	 * @param boroughCode
+	 * @param x
+	 * @param y
+	 */
+	private void setRow(int row, int id, int diam, int statusCode, int healthCode, int speciesCode,
+						int zip, int boroughCode, double x, double y) {
+		if (row >= 0) {
+			// Take the earlier row out of the count cube and the indexes, it is overwritten below.
+			counts.add(speciesCodes[row], boroughCodes[row], diameters[row], -1);
+			unindexRow(row);
+		}
+		else {
+			// Grow the columns if they are full.
+			if (size == treeIds.length) {
+				grow(size * 2);
+			}
+			row = size++;
+			ids.put(id, row);
+		}
+		treeIds[row] = id;
+		diameters[row] = diam;
+		statusCodes[row] = (byte) statusCode;
+		healthCodes[row] = (byte) healthCode;
+		speciesCodes[row] = (short) speciesCode;
+		zipcodes[row] = zip;
+		boroughCodes[row] = (byte) boroughCode;
+		xs[row] = x;
+		ys[row] = y;
+		// Keep the count cube up to date.
+		counts.add(speciesCode, boroughCode, diam, 1);
+		indexRow(row);
+	} // setRow method
+
+	/**
+	 * Deletes the tree with the given id. The last row is moved into its place so the columns stay without gaps,
+	 * which means the deleted tree's row now holds a different tree.
+	 *
+	 * @param treeId
+	 * @return false if there was no tree with the id
+	 */
+	public boolean delete(int treeId) {
+		checkNotFrozen();
+		int row = ids.get(treeId);
+		if (row < 0) {
+			return false;
+		}
+		int last = size - 1;
+		counts.add(speciesCodes[row], boroughCodes[row], diameters[row], -1);
+		unindexRow(row);
+		ids.remove(treeId);
+		if (row != last) {
+			unindexRow(last);
+			treeIds[row] = treeIds[last];
+			diameters[row] = diameters[last];
+			statusCodes[row] = statusCodes[last];
+			healthCodes[row] = healthCodes[last];
+			speciesCodes[row] = speciesCodes[last];
+			zipcodes[row] = zipcodes[last];
+			boroughCodes[row] = boroughCodes[last];
+			xs[row] = xs[last];
+			ys[row] = ys[last];
+			ids.put(treeIds[row], row);
+		}
+		size--;
+		indexRow((row != last) ? row : -1);
+		return true;
+	} // delete method
+
+	/**
+	 * Takes a row out of the indexes that are up to date, before the row is overwritten or deleted.
+	 *
+	 * @param row
+	 */
+	private void unindexRow(int row) {
+		if (spatialIndex != null && spatialIndexVersion == version) {
+			spatialIndex.remove(row);
+		}
+		if (bitmapIndex != null && bitmapIndexVersion == version) {
+			bitmapIndex.remove(row);
+		}
+	}
+
+	/**
+	 * Counts a change to the rows and puts the given new or changed row (or none if it is -1) into the indexes that were
+	 * up to date, so they stay up to date without being rebuilt. An index that has taken in so many changes that it
+	 * has become slow is dropped instead and built again the next time it is needed.
+	 *
+	 * @param row
+	 */
+	private void indexRow(int row) {
+		boolean spatialIndexCurrent = (spatialIndex != null && spatialIndexVersion == version);
+		boolean bitmapIndexCurrent = (bitmapIndex != null && bitmapIndexVersion == version);
+		version++;
+		if (spatialIndexCurrent) {
+			if (row >= 0) {
+				spatialIndex.add(row);
+			}
+			spatialIndexVersion = version;
+			if (spatialIndex.needsRebuild()) {
+				spatialIndex = null;
+			}
+		}
+		if (bitmapIndexCurrent) {
+			if (row >= 0) {
+				bitmapIndex.add(row);
+			}
+			bitmapIndexVersion = version;
+			if (bitmapIndex.needsRebuild()) {
+				bitmapIndex = null;
+			}
+		}
+	} // indexRow method
+
+	/**
+	 * Checks whether a row with the species code would conflict with the given row that has the same tree id, which
+	 * the Tree class does not allow (see Tree.equals), and records the conflict if it does.
+	 *
+	 * @param row
+	 * @param speciesCode
+	 * @return boolean
+	 */
+	private boolean isConflict(int row, int speciesCode) {
+		if (speciesCodes[row] == speciesCode) {
+			return false;
+		}
+		String earlier = counts.getSpeciesNames().decode(speciesCodes[row]);
+		String later = counts.getSpeciesNames().decode(speciesCode);
+		if (earlier.equalsIgnoreCase(later)) {
+			return false;
+		}
+		conflicts++;
+		if (conflictMessages.size() < MAX_CONFLICT_MESSAGES) {
+			conflictMessages.add("Tree " + treeIds[row] + " is listed as both " + earlier + " and " + later + ", keeping " + earlier + ".");
+		}
+		return true;
+	}
+
+	/**
+	 * Appends all rows of another store to the end of this one, keeping their order.
+	 * The other store has its own species dictionary so its species codes are translated to this store's codes.
+	 *
+	 * @param other
+	 */
+	public void append(TreeStore other) {
+		checkNotFrozen();
+		duplicates += other.duplicates;
+		conflicts += other.conflicts;
+		for (String message : other.conflictMessages) {
+			if (conflictMessages.size() < MAX_CONFLICT_MESSAGES) {
+				conflictMessages.add(message);
+			}
+		}
+		// If some of the other store's trees are already in this one, add its rows one by one so they are upserted.
+		if (size > 0) {
+			for (int i = 0; i < other.size; i++) {
+				if (ids.get(other.treeIds[i]) >= 0) {
+					appendRows(other);
+					return;
+				}
+			}
+		}
+
+		// Add the other store's counts, which also translates its species codes to this store's codes.
+		int[] speciesMap = counts.addAll(other.counts);
+		if (size + other.size > treeIds.length) {
+			grow(Math.max(size + other.size, treeIds.length * 2));
+		}
+		// Copy the columns in bulk, only the species codes need to be rewritten one by one.
+		System.arraycopy(other.treeIds, 0, treeIds, size, other.size);
+		System.arraycopy(other.diameters, 0, diameters, size, other.size);
+		System.arraycopy(other.zipcodes, 0, zipcodes, size, other.size);
+		System.arraycopy(other.xs, 0, xs, size, other.size);
+		System.arraycopy(other.ys, 0, ys, size, other.size);
+		System.arraycopy(other.boroughCodes, 0, boroughCodes, size, other.size);
+		System.arraycopy(other.statusCodes, 0, statusCodes, size, other.size);
+		System.arraycopy(other.healthCodes, 0, healthCodes, size, other.size);
+		for (int i = 0; i < other.size; i++) {
+			speciesCodes[size + i] = (short) speciesMap[other.speciesCodes[i]];
+			ids.put(other.treeIds[i], size + i);
+		}
+		size += other.size;
+		version++;
+	} // append method
+
+	/**
+	 * Adds the rows of another store one at a time, for when some of them have to replace rows of this store.
+	 *
+	 * @param other
+	 */
+	private void appendRows(TreeStore other) {
+		StringDictionary otherNames = other.counts.getSpeciesNames();
+		int[] speciesMap = new int[otherNames.size()];
+		for (int code = 0; code < speciesMap.length; code++) {
+			speciesMap[code] = encodeSpecies(otherNames.decode(code));
+		}
+		for (int i = 0; i < other.size; i++) {
+			addRow(other.treeIds[i], other.diameters[i], other.statusCodes[i], other.healthCodes[i], speciesMap[other.speciesCodes[i]],
+				   other.zipcodes[i], other.boroughCodes[i], other.xs[i], other.ys[i]);
+		}
+	}
+
+	/**
+	 * Freezes the store: from now on every attempt to change its rows throws an IllegalStateException.
+	 */
+	public void freeze() {
+		frozen = true;
+	}
+
+	/**
+	 * Getter that returns whether the store is frozen.
+	 *
+	 * @return boolean
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void checkNotFrozen() {
+		if (frozen)
+			throw new IllegalStateException("The store is frozen and cannot be changed.");
+	}
+
+	/**
+	 * Returns the dictionary code of the given species name, adding it to the dictionary if it is new.
+	 *
+	 * @param spc
+	 * @return integer code
+	 */
+	int encodeSpecies(String spc) {
+		checkNotFrozen();
+		return counts.encodeSpecies(spc);
+	}
+
+	@Override
+	public int encodeSpecies(CSVTokenizer tokenizer, int field) {
+		checkNotFrozen();
+		return counts.encodeSpecies(tokenizer, field);
+	}
+
+	/**
+	 * Grows every column to the given capacity.
+	 *
+	 * @param capacity
+	 */
+	private void grow(int capacity) {
+		treeIds = Arrays.copyOf(treeIds, capacity);
+		diameters = Arrays.copyOf(diameters, capacity);
+		zipcodes = Arrays.copyOf(zipcodes, capacity);
+		xs = Arrays.copyOf(xs, capacity);
+		ys = Arrays.copyOf(ys, capacity);
+		speciesCodes = Arrays.copyOf(speciesCodes, capacity);
+		boroughCodes = Arrays.copyOf(boroughCodes, capacity);
+		statusCodes = Arrays.copyOf(statusCodes, capacity);
+		healthCodes = Arrays.copyOf(healthCodes, capacity);
+	}
+
+	/**
+	 * Returns the position of value in the given array of allowed values (ignoring case) or -1 if it is not allowed.
+	 *
+	 * @param allowed
+	 * @param value
+	 * @return integer code
+	 */
+	static int codeOf(String[] allowed, String value) {
+		for (int i = 0; i < allowed.length; i++) {
+			if (allowed[i].equalsIgnoreCase(value)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of bytes writeSnapshot needs for this store.
+	 *
+	 * @return long
+	 */
+	long snapshotSize() {
+		StringDictionary speciesNames = counts.getSpeciesNames();
+		long bytes = 8;
+		for (int code = 0; code < speciesNames.size(); code++) {
+			bytes += 4 + speciesNames.decode(code).getBytes(StandardCharsets.UTF_8).length;
+		}
+		// Three int columns, two double columns, one short column and three byte columns.
+		bytes += (long) size * (3 * 4 + 2 * 8 + 2 + 3);
+		// The count cube, its diameter distributions and the table of the id index.
+		bytes += 4L * speciesNames.size() * BOROUGHS.length;
+		bytes += counts.diametersSnapshotSize();
+		bytes += ids.snapshotSize();
+		return bytes;
+	}
+
+	/**
+	 * Writes the species dictionary, the columns, the count cube with its diameter distributions and the id index to
+	 * out, each column, the buckets of each distribution and the table of the id index as one block of primitives.
+	 *
+	 * @param out
+	 */
+	void writeSnapshot(ByteBuffer out) {
+		StringDictionary speciesNames = counts.getSpeciesNames();
+		out.putInt(size);
+		out.putInt(speciesNames.size());
+		for (int code = 0; code < speciesNames.size(); code++) {
+			byte[] name = speciesNames.decode(code).getBytes(StandardCharsets.UTF_8);
+			out.putInt(name.length);
+			out.put(name);
+		}
+		// Bulk copy every column through a view of the buffer.
+		out.asIntBuffer().put(treeIds, 0, size);
+		out.position(out.position() + 4 * size);
+		out.asIntBuffer().put(diameters, 0, size);
+		out.position(out.position() + 4 * size);
+		out.asIntBuffer().put(zipcodes, 0, size);
+		out.position(out.position() + 4 * size);
+		out.asDoubleBuffer().put(xs, 0, size);
+		out.position(out.position() + 8 * size);
+		out.asDoubleBuffer().put(ys, 0, size);
+		out.position(out.position() + 8 * size);
+		out.asShortBuffer().put(speciesCodes, 0, size);
+		out.position(out.position() + 2 * size);
+		out.put(boroughCodes, 0, size);
+		out.put(statusCodes, 0, size);
+		out.put(healthCodes, 0, size);
+		for (int code = 0; code < speciesNames.size(); code++) {
+			for (int boroughCode = 0; boroughCode < BOROUGHS.length; boroughCode++) {
+				out.putInt(counts.getCount(code, boroughCode));
+			}
+		}
+		counts.writeDiameters(out);
+		ids.writeSnapshot(out);
+	} // writeSnapshot method
+
+	/**
+	 * Creates a store from data written by writeSnapshot.
+	 * The columns, the count cube with its diameter distributions and the id index are copied in bulk, nothing is parsed
+	 * or recounted row by row.
+	 *
+	 * @param in
+	 * @return TreeStore
+	 */
+	static TreeStore readSnapshot(ByteBuffer in) {
+		int rows = in.getInt();
+		int speciesCount = in.getInt();
+		TreeStore store = new TreeStore(rows);
+		for (int code = 0; code < speciesCount; code++) {
+			byte[] name = new byte[in.getInt()];
+			in.get(name);
+			store.encodeSpecies(new String(name, StandardCharsets.UTF_8));
+		}
+		in.asIntBuffer().get(store.treeIds, 0, rows);
+		in.position(in.position() + 4 * rows);
+		in.asIntBuffer().get(store.diameters, 0, rows);
+		in.position(in.position() + 4 * rows);
+		in.asIntBuffer().get(store.zipcodes, 0, rows);
+		in.position(in.position() + 4 * rows);
+		in.asDoubleBuffer().get(store.xs, 0, rows);
+		in.position(in.position() + 8 * rows);
+		in.asDoubleBuffer().get(store.ys, 0, rows);
+		in.position(in.position() + 8 * rows);
+		in.asShortBuffer().get(store.speciesCodes, 0, rows);
+		in.position(in.position() + 2 * rows);
+		in.get(store.boroughCodes, 0, rows);
+		in.get(store.statusCodes, 0, rows);
+		in.get(store.healthCodes, 0, rows);
+		// The count cube only has a handful of cells per species so it is simply added up cell by cell.
+		for (int code = 0; code < speciesCount; code++) {
+			for (int boroughCode = 0; boroughCode < BOROUGHS.length; boroughCode++) {
+				store.counts.add(code, boroughCode, in.getInt());
+			}
+		}
+		store.counts.readDiameters(in);
+		store.ids = TreeIdIndex.readSnapshot(in);
+		store.size = rows;
+		return store;
+	} // readSnapshot method
+
+	/**
+	 * Getter that returns the number of rows in the store.
+	 *
+	 * @return integer
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Creates a Tree object from the given row.
+	 *
+	 * @param row
+	 * @return Tree
+	 */
+	public Tree get(int row) {
+		if (row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("Row " + row + " is out of range for a store of size " + size + ".");
+		return new Tree(treeIds[row], diameters[row], STATUSES[statusCodes[row]], HEALTHS[healthCodes[row]],
+						counts.getSpeciesNames().decode(speciesCodes[row]), zipcodes[row], BOROUGHS[boroughCodes[row]], xs[row], ys[row]);
+	}
+
+	/**
+	 * Getter that returns a number that changes every time the rows of the store change.
+	 *
+	 * @return integer
+	 */
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * Returns the row of the tree with the given tree id, or -1 if there is none.
+	 *
+	 * @param treeId
+	 * @return integer
+	 */
+	public int findRow(int treeId) {
+		return ids.get(treeId);
+	}
+
+	/**
+	 * Creates a Tree object for the tree with the given tree id, or returns null if there is none.
+	 *
+	 * @param treeId
+	 * @return Tree
+	 */
+	public Tree getById(int treeId) {
+		int row = ids.get(treeId);
+		return (row < 0) ? null : get(row);
+	}
+
+	/**
+	 * Getter that returns how many added rows had a tree id that was already in the store, conflicting ones included.
+	 *
+	 * @return integer
+	 */
+	public int getDuplicateCount() {
+		return duplicates;
+	}
+
+	/**
+	 * Getter that returns how many added rows were dropped because their tree id was already in the store with a
+	 * different species.
+	 *
+	 * @return integer
+	 */
+	public int getConflictCount() {
+		return conflicts;
+	}
+
+	/**
+	 * Getter that returns a description of (at most the first 100) conflicting rows.
+	 *
+	 * @return ArrayList<String>
+	 */
+	public ArrayList<String> getConflicts() {
+		return conflictMessages;
+	}
+
+	// Getters for single cells of the columns.
+
+	int getTreeId(int row) {
+		return treeIds[row];
+	}
+
+	int getDiameter(int row) {
+		return diameters[row];
+	}
+
+	int getZipcode(int row) {
+		return zipcodes[row];
+	}
+
+	double getX(int row) {
+		return xs[row];
+	}
+
+	double getY(int row) {
+		return ys[row];
+	}
+
+	int getSpeciesCode(int row) {
+		return speciesCodes[row];
+	}
+
+	int getBoroughCode(int row) {
+		return boroughCodes[row];
+	}
+
+	int getStatusCode(int row) {
+		return statusCodes[row];
+	}
+
+	int getHealthCode(int row) {
+		return healthCodes[row];
+	}
+
+	/**
+	 * Returns the spatial index over the coordinates of every row, building it if the rows have changed since it was
+	 * last built.
+	 *
+	 * @return SpatialIndex
+	 */
+	public synchronized SpatialIndex getSpatialIndex() {
+		if (spatialIndex == null || spatialIndexVersion != version) {
+			spatialIndex = new SpatialIndex(this);
+			spatialIndexVersion = version;
+		}
+		return spatialIndex;
+	}
+
+	/**
+	 * Returns the bitmap index over the species, borough, status, health, zip code and diameter columns, building it if
+	 * the rows have changed since it was last built.
+	 *
+	 * @return BitmapIndex
+	 */
+	public synchronized BitmapIndex getBitmapIndex() {
+		if (bitmapIndex == null || bitmapIndexVersion != version) {
+			bitmapIndex = new BitmapIndex(this);
+			bitmapIndexVersion = version;
+		}
+		return bitmapIndex;
+	}
+
+	StringDictionary getSpeciesNames() {
+		return counts.getSpeciesNames();
+	}
+
+	TreeCountCube getCounts() {
+		return counts;
+	}
+
+	@Override
+	public int getTotalNumberOfTrees() {
+		return size;
+	}
+
+	/**
+	 * Returns the codes of the species whose name contains speciesName (ignoring case), in increasing order.
+	 *
+	 * @param speciesName
+	 * @return int array of species codes
+	 */
+	int[] matchSpecies(String speciesName) {
+		return counts.matchSpecies(speciesName);
+	}
+
+	/**
+	 * Counts the trees of the given species codes in every borough by reading the species and borough columns, without
+	 * the count cube (see CodeCounter).
+	 *
+	 * @param speciesCodes
+	 * @param totals number of trees per borough code, filled in
+	 * @return number of trees of the species per borough code
+	 */
+	int[] scanCountByBorough(int[] speciesCodes, int[] totals) {
+		return CodeCounter.countByBorough(this.speciesCodes, boroughCodes, size, speciesCodes, totals);
+	}
+
+	/**
+	 * Getter that returns the number of trees of the given species code in the given borough, read from the count cube.
+	 *
+	 * @param speciesCode
+	 * @param boroughCode
+	 * @return integer
+	 */
+	int getCount(int speciesCode, int boroughCode) {
+		return counts.getCount(speciesCode, boroughCode);
+	}
+
+	@Override
+	public int getCountByTreeSpecies(String speciesName) {
+		long start = System.nanoTime();
+		int count = counts.getCountByTreeSpecies(speciesName);
+		COUNT_BY_SPECIES_LATENCY.recordSince(start);
+		return count;
+	}
+
+	@Override
+	public int getCountByBorough(String boroName) {
+		return counts.getCountByBorough(boroName);
+	}
+
+	@Override
+	public int getCountByTreeSpeciesBorough(String speciesName, String boroName) {
+		long start = System.nanoTime();
+		int count = counts.getCountByTreeSpeciesBorough(speciesName, boroName);
+		COUNT_BY_SPECIES_BOROUGH_LATENCY.recordSince(start);
+		return count;
+	}
+
+	@Override
+	public ArrayList<String> getMatchingSpecies(String speciesName) {
+		long start = System.nanoTime();
+		ArrayList<String> matches = counts.getMatchingSpecies(speciesName);
+		MATCHING_SPECIES_LATENCY.recordSince(start);
+		return matches;
+	}
+
+	/**
+	 * Returns the trunk diameter distribution of the trees of every species whose name contains speciesName (ignoring
+	 * case), in the whole city if boroName is null and otherwise in that borough. It is read from the distributions
+	 * the count cube keeps per species and borough.
+	 *
+	 * @param speciesName
+	 * @param boroName
+	 * @return DiameterDistribution
+	 */
+	public DiameterDistribution getDiameters(String speciesName, String boroName) {
+		long start = System.nanoTime();
+		DiameterDistribution distribution = counts.getDiameters(speciesName, boroName);
+		DIAMETERS_LATENCY.recordSince(start);
+		return distribution;
+	}
+
+	/**
+	 * Sorts the rows by species name (ignoring case) and then by tree id, the order of Tree.compareTo, so the trees of
+	 * every species are next to each other and the species whose names start with the same letters are too. Queries by
+	 * the start of a species name (see getDiametersByPrefix) then only read the rows of the matching species, one after
+	 * another. The rows are sorted on all cores; the indexes are built again the next time they are needed, and a change
+	 * to the rows afterwards undoes the clustering until cluster is called again.
+	 */
+	public void cluster() {
+		checkNotFrozen();
+		StringDictionary speciesNames = counts.getSpeciesNames();
+		// Rank every species code by its name. Names that only differ in case get the same rank.
+		String[] names = new String[speciesNames.size()];
+		for (int code = 0; code < names.length; code++) {
+			names[code] = speciesNames.decode(code);
+		}
+		String[] sortedNames = names.clone();
+		Arrays.sort(sortedNames, String.CASE_INSENSITIVE_ORDER);
+		int distinct = 0;
+		for (String name : sortedNames) {
+			if (distinct == 0 || !sortedNames[distinct - 1].equalsIgnoreCase(name)) {
+				sortedNames[distinct++] = name;
+			}
+		}
+		sortedNames = Arrays.copyOf(sortedNames, distinct);
+		int[] ranks = new int[names.length];
+		for (int code = 0; code < names.length; code++) {
+			ranks[code] = Arrays.binarySearch(sortedNames, names[code], String.CASE_INSENSITIVE_ORDER);
+		}
+
+		// Sort one key per row, the rank in the upper half and the tree id (never negative) in the lower half. Tree ids
+		// are unique, so the row of a key is found again through the id index.
+		long[] keys = new long[size];
+		for (int row = 0; row < size; row++) {
+			keys[row] = ((long) ranks[speciesCodes[row]] << 32) | treeIds[row];
+		}
+		Arrays.parallelSort(keys);
+		int[] order = new int[size];
+		for (int row = 0; row < size; row++) {
+			order[row] = ids.get((int) keys[row]);
+		}
+		treeIds = gather(treeIds, order);
+		diameters = gather(diameters, order);
+		zipcodes = gather(zipcodes, order);
+		xs = gather(xs, order);
+		ys = gather(ys, order);
+		short[] sortedSpeciesCodes = new short[treeIds.length];
+		byte[] sortedBoroughCodes = new byte[treeIds.length];
+		byte[] sortedStatusCodes = new byte[treeIds.length];
+		byte[] sortedHealthCodes = new byte[treeIds.length];
+		for (int row = 0; row < size; row++) {
+			sortedSpeciesCodes[row] = speciesCodes[order[row]];
+			sortedBoroughCodes[row] = boroughCodes[order[row]];
+			sortedStatusCodes[row] = statusCodes[order[row]];
+			sortedHealthCodes[row] = healthCodes[order[row]];
+			ids.put(treeIds[row], row);
+		}
+		speciesCodes = sortedSpeciesCodes;
+		boroughCodes = sortedBoroughCodes;
+		statusCodes = sortedStatusCodes;
+		healthCodes = sortedHealthCodes;
+
+		// Find where the rows of every name start.
+		int[] starts = new int[distinct + 1];
+		int row = 0;
+		for (int rank = 0; rank < distinct; rank++) {
+			starts[rank] = row;
+			while (row < size && (int) (keys[row] >>> 32) == rank) {
+				row++;
+			}
+		}
+		starts[distinct] = size;
+		version++;
+		clusterNames = sortedNames;
+		clusterStarts = starts;
+		clusterVersion = version;
+	} // cluster method
+
+	/**
+	 * Returns a copy of a column with the values in the given order of rows.
+	 */
+	private static int[] gather(int[] column, int[] order) {
+		int[] sorted = new int[column.length];
+		for (int row = 0; row < order.length; row++) {
+			sorted[row] = column[order[row]];
+		}
+		return sorted;
+	}
+
+	private static double[] gather(double[] column, int[] order) {
+		double[] sorted = new double[column.length];
+		for (int row = 0; row < order.length; row++) {
+			sorted[row] = column[order[row]];
+		}
+		return sorted;
+	}
+
+	/**
+	 * Getter that returns whether the rows are sorted by species, because cluster was called and the rows have not
+	 * changed since.
+	 *
+	 * @return boolean
+	 */
+	public boolean isClustered() {
+		return clusterNames != null && clusterVersion == version;
+	}
+
+	/**
+	 * Returns the rows of the species whose names start with prefix (ignoring case) in a clustered store, found by
+	 * binary search over the sorted names.
+	 *
+	 * @param prefix
+	 * @return the first row and the row after the last one
+	 */
+	int[] clusterRange(String prefix) {
+		int first = Arrays.binarySearch(clusterNames, prefix, String.CASE_INSENSITIVE_ORDER);
+		if (first < 0) {
+			first = -first - 1;
+		}
+		int last = first;
+		while (last < clusterNames.length && clusterNames[last].regionMatches(true, 0, prefix, 0, prefix.length())) {
+			last++;
+		}
+		return new int[] { clusterStarts[first], clusterStarts[last] };
+	}
+
+	/**
+	 * Returns the trunk diameter distribution of the trees in every borough (by borough code) of the species whose
+	 * names start with prefix (ignoring case), which also gives the number of trees.
+	 * A clustered store (see cluster) reads the rows of those species only, one after another; otherwise every row is
+	 * checked.
+	 *
+	 * @param prefix
+	 * @return DiameterDistribution array indexed by borough code
+	 */
+	public DiameterDistribution[] getDiametersByPrefix(String prefix) {
+		long start = System.nanoTime();
+		DiameterDistribution[] distributions = new DiameterDistribution[BOROUGHS.length];
+		for (int boroughCode = 0; boroughCode < distributions.length; boroughCode++) {
+			distributions[boroughCode] = new DiameterDistribution();
+		}
+		if (isClustered()) {
+			int[] range = clusterRange(prefix);
+			for (int row = range[0]; row < range[1]; row++) {
+				distributions[boroughCodes[row]].add(diameters[row], 1);
+			}
+		}
+		else {
+			StringDictionary speciesNames = counts.getSpeciesNames();
+			boolean[] matches = new boolean[speciesNames.size()];
+			for (int code = 0; code < matches.length; code++) {
+				matches[code] = speciesNames.decode(code).regionMatches(true, 0, prefix, 0, prefix.length());
+			}
+			for (int row = 0; row < size; row++) {
+				if (matches[speciesCodes[row]]) {
+					distributions[boroughCodes[row]].add(diameters[row], 1);
+				}
+			}
+		}
+		PREFIX_LATENCY.recordSince(start);
+		return distributions;
+	} // getDiametersByPrefix method
+
+	/**
+	 * Overriding the toString method.
+	 * Returns all of the trees stored in the columns as Tree objects.
+	 *
+	 * @return String
+	 */
+	@Override
+	public String toString() {
+		StringBuilder treeObjects = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			treeObjects.append(get(i));
+		}
+		return "Tree Objects: " + treeObjects;
+	}
+
+} // class
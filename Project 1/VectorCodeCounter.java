@@ -0,0 +1,78 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SIMD version of CodeCounter.countByBorough, using the Vector API of the jdk.incubator.vector module. Only
+ * CodeCounter uses it, and only once it has checked that the module is there.
+ * The species codes of as many rows as fit in the widest vector of the CPU (i.e.: 32 rows with AVX-512) are checked
+ * against every run of target codes with one subtraction and one unsigned comparison, which gives a mask of the
+ * matching rows. The borough codes of the same rows are widened to shorts and compared with each borough code, and
+ * the number of set lanes of each borough's mask, alone and together with the matching rows, is added to its total and
+ * its count.
+ */
+final class VectorCodeCounter {
+
+	private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+	// Byte vectors with as many lanes as SHORTS, widened to SHORTS so every mask has the same shape: comparing them as
+	// bytes and casting the masks is not compiled to vector instructions by JDK 17, and is slower than the scalar loop.
+	private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class, VectorShape.forBitSize(SHORTS.length() * Byte.SIZE));
+
+	private VectorCodeCounter() {
+	}
+
+	/**
+	 * Adds the rows whose species code is in one of the runs lows[i] to highs[i] to the counts of their boroughs, and
+	 * every row to the total of its borough, for as many whole vectors of rows as there are in [0, size).
+	 *
+	 * @param speciesCodes
+	 * @param boroughCodes
+	 * @param size
+	 * @param lows
+	 * @param highs
+	 * @param counts
+	 * @param totals
+	 * @return the first row that was not counted
+	 */
+	static int count(short[] speciesCodes, byte[] boroughCodes, int size, int[] lows, int[] highs, int[] counts, int[] totals) {
+		int boroughs = totals.length;
+		short[] starts = new short[lows.length];
+		short[] widths = new short[lows.length];
+		for (int run = 0; run < lows.length; run++) {
+			starts[run] = (short) lows[run];
+			widths[run] = (short) (highs[run] - lows[run]);
+		}
+		int bound = SHORTS.loopBound(size);
+		int row = 0;
+		for (; row < bound; row += SHORTS.length()) {
+			ShortVector codes = ShortVector.fromArray(SHORTS, speciesCodes, row);
+			VectorMask<Short> matches = SHORTS.maskAll(false);
+			for (int run = 0; run < starts.length; run++) {
+				// A code is in the run if code - start, read as unsigned, is at most the width of the run.
+				matches = matches.or(codes.sub(starts[run]).compare(VectorOperators.UNSIGNED_LE, widths[run]));
+			}
+			ShortVector boroughVector = (ShortVector) ByteVector.fromArray(BYTES, boroughCodes, row).convertShape(VectorOperators.B2S, SHORTS, 0);
+			for (int boroughCode = 0; boroughCode < boroughs; boroughCode++) {
+				VectorMask<Short> inBorough = boroughVector.compare(VectorOperators.EQ, (short) boroughCode);
+				totals[boroughCode] += inBorough.trueCount();
+				counts[boroughCode] += inBorough.and(matches).trueCount();
+			}
+		}
+		return row;
+	} // count method
+
+} // class
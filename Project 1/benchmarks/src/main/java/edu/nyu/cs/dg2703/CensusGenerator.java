@@ -0,0 +1,167 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+public class CensusGenerator {
+
+	// Header of the 2015 Street Tree Census, the generated lines have the same 41 columns.
+	static final String HEADER = "tree_id,block_id,created_at,tree_dbh,stump_diam,curb_loc,status,health,spc_latin,spc_common,"
+			+ "steward,guards,sidewalk,user_type,problems,root_stone,root_grate,root_other,trunk_wire,trnk_light,trnk_other,"
+			+ "brch_light,brch_shoe,brch_other,address,zipcode,zip_city,cb_num,borocode,boroname,cncldist,st_assem,st_senate,"
+			+ "nta,nta_name,boro_ct,state,latitude,longitude,x_sp,y_sp";
+
+	// The most common species of the real census, most common first. Species are drawn with a Zipf-like skew so a few
+	// of them make up most of the trees, like in the real data.
+	static final String[] SPECIES = { "London planetree", "honeylocust", "Callery pear", "pin oak", "Norway maple",
+			"littleleaf linden", "cherry", "Japanese zelkova", "ginkgo", "Sophora", "red maple", "green ash", "American linden",
+			"silver maple", "sweetgum", "northern red oak", "silver linden", "American elm", "maple", "purple-leaf plum",
+			"swamp white oak", "crab apple", "eastern redbud", "willow oak", "golden raintree", "Chinese elm",
+			"'Schubert' chokecherry", "hedge maple", "Amur maple", "white oak", "black locust", "sawtooth oak",
+			"American hornbeam", "mulberry", "tulip-poplar", "crimson king maple", "Kentucky coffeetree", "scarlet oak",
+			"Japanese tree lilac", "Siberian elm" };
+
+	// Boroughs with their share of the real census.
+	static final String[] BOROUGHS = { "Queens", "Brooklyn", "Staten Island", "Bronx", "Manhattan" };
+	private static final double[] BOROUGH_SHARES = { 0.37, 0.26, 0.16, 0.12, 0.09 };
+	private static final int[] ZIPCODES = { 11375, 11201, 10314, 10463, 10001 };
+
+	private Random random;
+	private double[] speciesCumulative;
+
+	/**
+	 * CensusGenerator constructor.
+	 * The same seed always generates the same census.
+	 *
+	 * @param seed
+	 */
+	public CensusGenerator(long seed) {
+		random = new Random(seed);
+		// Cumulative Zipf weights for picking a species.
+		speciesCumulative = new double[SPECIES.length];
+		double sum = 0;
+		for (int i = 0; i < SPECIES.length; i++) {
+			sum += 1.0 / (i + 1);
+			speciesCumulative[i] = sum;
+		}
+		for (int i = 0; i < SPECIES.length; i++) {
+			speciesCumulative[i] /= sum;
+		}
+	}
+
+	/**
+	 * Returns the next generated census line (without a line break) for a tree with the given id.
+	 *
+	 * @param treeId
+	 * @return String
+	 */
+	public String nextLine(int treeId) {
+		String species = SPECIES[pick(speciesCumulative)];
+		int borough = pickBorough();
+		int roll = random.nextInt(100);
+		String status = (roll < 95) ? "Alive" : (roll < 98) ? "Stump" : "Dead";
+		String health = status.equals("Alive") ? new String[] { "Good", "Good", "Good", "Fair", "Poor" }[random.nextInt(5)] : "";
+		int dbh = status.equals("Stump") ? 0 : 1 + (int) Math.abs(random.nextGaussian() * 10);
+		double x = 913000 + random.nextDouble() * 154000;
+		double y = 120000 + random.nextDouble() * 152000;
+
+		StringBuilder line = new StringBuilder(320);
+		line.append(treeId).append(",348711,08/27/2015,").append(dbh).append(",0,OnCurb,").append(status).append(',')
+			.append(health).append(",Quercus palustris,").append(species)
+			.append(",None,None,NoDamage,TreesCount Staff,\"Stones,Other\",Yes,No,No,No,No,No,No,No,No,108-005 70 AVENUE,")
+			.append(ZIPCODES[borough]).append(",Forest Hills,406,").append(borough + 1).append(',').append(BOROUGHS[borough])
+			.append(",29,28,16,QN17,Forest Hills,4073900,New York,40.72309177,-73.84421522,")
+			.append(String.format(Locale.ROOT, "%.3f", x)).append(',').append(String.format(Locale.ROOT, "%.3f", y));
+		return line.toString();
+	} // nextLine method
+
+	private int pick(double[] cumulative) {
+		double roll = random.nextDouble();
+		for (int i = 0; i < cumulative.length; i++) {
+			if (roll < cumulative[i]) {
+				return i;
+			}
+		}
+		return cumulative.length - 1;
+	}
+
+	private int pickBorough() {
+		double roll = random.nextDouble();
+		for (int i = 0; i < BOROUGH_SHARES.length; i++) {
+			roll -= BOROUGH_SHARES[i];
+			if (roll < 0) {
+				return i;
+			}
+		}
+		return BOROUGH_SHARES.length - 1;
+	}
+
+	/**
+	 * Writes a census file with a header line and the given number of trees.
+	 *
+	 * @param file
+	 * @param rows
+	 * @throws IOException
+	 */
+	public void write(File file, int rows) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+		try {
+			out.write(HEADER);
+			out.write('\n');
+			for (int i = 0; i < rows; i++) {
+				out.write(nextLine(100000 + i));
+				out.write('\n');
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns a generated census file with the given number of trees in the temporary directory,
+	 * generating it only if an earlier run has not done so already.
+	 *
+	 * @param rows
+	 * @param seed
+	 * @return File
+	 * @throws IOException
+	 */
+	public static File cachedFile(int rows, long seed) throws IOException {
+		File file = new File(System.getProperty("java.io.tmpdir"), "census-" + rows + "-" + seed + ".csv");
+		if (!file.exists()) {
+			File temp = new File(file.getPath() + ".tmp");
+			new CensusGenerator(seed).write(temp, rows);
+			if (!temp.renameTo(file))
+				throw new IOException("Could not create " + file);
+		}
+		return file;
+	}
+
+	/**
+	 * Main method.
+	 * Writes a generated census file: CensusGenerator <rows> <seed> <output file>
+	 *
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage Error: CensusGenerator <rows> <seed> <output file>");
+			return;
+		}
+		new CensusGenerator(Long.parseLong(args[1])).write(new File(args[2]), Integer.parseInt(args[0]));
+	}
+
+} // class
@@ -0,0 +1,85 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.github.luben.zstd.ZstdOutputStream;
+
+// Time to load a compressed generated census file into a TreeStore: only decompressing it (the least a load can take),
+// decompressing and parsing on one thread, and decompressing on one thread while the others parse.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@State(Scope.Benchmark)
+public class CompressedLoadBenchmark {
+
+	@Param({ "1000000" })
+	public int rows;
+
+	@Param({ "gzip", "zstd" })
+	public String compression;
+
+	private File file;
+
+	@Setup
+	public void setUp() throws IOException {
+		File csv = CensusGenerator.cachedFile(rows, 42);
+		file = new File(csv.getPath() + (compression.equals("gzip") ? ".gz" : ".zst"));
+		if (!file.exists()) {
+			File temp = new File(file.getPath() + ".tmp");
+			try (InputStream in = new FileInputStream(csv);
+				 OutputStream out = compression.equals("gzip") ? new GZIPOutputStream(new FileOutputStream(temp), 1 << 16)
+						 : new ZstdOutputStream(new FileOutputStream(temp), 3)) {
+				in.transferTo(out);
+			}
+			if (!temp.renameTo(file))
+				throw new IOException("Could not create " + file);
+		}
+	}
+
+	@Benchmark
+	public long decompressOnly() throws IOException {
+		byte[] buffer = new byte[1 << 20];
+		long bytes = 0;
+		try (InputStream in = CompressedInput.open(file)) {
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				bytes += read;
+			}
+		}
+		return bytes;
+	}
+
+	@Benchmark
+	public TreeStore sequential() throws IOException {
+		TreeStore store = new TreeStore();
+		try (InputStream in = CompressedInput.open(file)) {
+			new TreeLoader(store).load(in);
+		}
+		return store;
+	}
+
+	@Benchmark
+	public TreeStore pipelined() throws IOException {
+		TreeStore store = new TreeStore();
+		PipelinedTreeLoader loader = new PipelinedTreeLoader(Runtime.getRuntime().availableProcessors());
+		loader.load(file, store);
+		loader.shutdown();
+		return store;
+	}
+
+} // class
@@ -0,0 +1,52 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Time to load a whole generated census file into a TreeStore, single threaded and on every core.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+	@Param({ "10000", "1000000", "10000000" })
+	public int rows;
+
+	private File file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = CensusGenerator.cachedFile(rows, 42);
+	}
+
+	@Benchmark
+	public TreeStore sequential() throws IOException {
+		TreeStore store = new TreeStore();
+		new TreeLoader(store).load(file);
+		return store;
+	}
+
+	@Benchmark
+	public TreeStore parallel() throws IOException {
+		TreeStore store = new TreeStore();
+		ParallelTreeLoader loader = new ParallelTreeLoader(Runtime.getRuntime().availableProcessors());
+		loader.load(file, store);
+		loader.shutdown();
+		return store;
+	}
+
+} // class
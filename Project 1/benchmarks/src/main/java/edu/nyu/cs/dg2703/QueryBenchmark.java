@@ -0,0 +1,84 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Latency of the query methods, and of the full report main prints for one species, on a TreeList and on a TreeStore.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@State(Scope.Benchmark)
+public class QueryBenchmark {
+
+	@Param({ "10000", "1000000", "10000000" })
+	public int rows;
+
+	@Param({ "TreeList", "TreeStore" })
+	public String layout;
+
+	@Param({ "oak" })
+	public String species;
+
+	private TreeCounts trees;
+	private PrintStream systemOut;
+
+	@Setup
+	public void setUp() throws IOException {
+		TreeStore store = new TreeStore();
+		ParallelTreeLoader loader = new ParallelTreeLoader(Runtime.getRuntime().availableProcessors());
+		loader.load(CensusGenerator.cachedFile(rows, 42), store);
+		loader.shutdown();
+		if (layout.equals("TreeList")) {
+			TreeList list = new TreeList();
+			for (int i = 0; i < store.size(); i++) {
+				list.add(store.get(i));
+			}
+			trees = list;
+		}
+		else {
+			trees = store;
+		}
+		// The full query benchmark prints its report, throw the output away.
+		systemOut = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(systemOut);
+	}
+
+	@Benchmark
+	public int getCountByTreeSpecies() {
+		return trees.getCountByTreeSpecies(species);
+	}
+
+	@Benchmark
+	public int getCountByTreeSpeciesBorough() {
+		return trees.getCountByTreeSpeciesBorough(species, "Queens");
+	}
+
+	@Benchmark
+	public Object getMatchingSpecies() {
+		return trees.getMatchingSpecies(species);
+	}
+
+	@Benchmark
+	public boolean fullQuery() {
+		return NYCStreetTrees.printSpeciesReport(trees, species);
+	}
+
+} // class
@@ -0,0 +1,73 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Time of writing the report of every species, with CensusReport and with one printSpeciesReport per species.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+
+	@Param({ "1000000" })
+	public int rows;
+
+	@Param({ "text", "csv", "json" })
+	public String format;
+
+	private TreeCountCube counts;
+	private ArrayList<String> species;
+	private PrintStream systemOut;
+
+	@Setup
+	public void setUp() throws IOException {
+		TreeStore store = new TreeStore();
+		ParallelTreeLoader loader = new ParallelTreeLoader(Runtime.getRuntime().availableProcessors());
+		loader.load(CensusGenerator.cachedFile(rows, 42), store);
+		loader.shutdown();
+		counts = store.getCounts();
+		species = counts.getMatchingSpecies("");
+		// The per species reports print their output, throw it away.
+		systemOut = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.setOut(systemOut);
+	}
+
+	@Benchmark
+	public CensusReport censusReport() throws IOException {
+		CensusReport report = new CensusReport(counts);
+		report.write(new BufferedWriter(Writer.nullWriter(), 1 << 16), format);
+		return report;
+	}
+
+	@Benchmark
+	public int perSpeciesReports() {
+		int printed = 0;
+		for (String name : species) {
+			if (NYCStreetTrees.printSpeciesReport(counts, name)) {
+				printed++;
+			}
+		}
+		return printed;
+	}
+
+} // class
@@ -0,0 +1,65 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Time of counting the trees of the species matching a query in every borough with one pass over the species and borough
+// code columns, one row at a time and with the Vector API.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "--add-modules=jdk.incubator.vector" })
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+
+	@Param({ "10000", "1000000", "10000000" })
+	public int rows;
+
+	@Param({ "oak", "maple", "a" })
+	public String species;
+
+	private short[] speciesCodes;
+	private byte[] boroughCodes;
+	private int[] targets;
+	private int[] totals = new int[TreeStore.BOROUGHS.length];
+
+	@Setup
+	public void setUp() throws IOException {
+		TreeStore store = new TreeStore();
+		ParallelTreeLoader loader = new ParallelTreeLoader(Runtime.getRuntime().availableProcessors());
+		loader.load(CensusGenerator.cachedFile(rows, 42), store);
+		loader.shutdown();
+		speciesCodes = new short[store.size()];
+		boroughCodes = new byte[store.size()];
+		for (int row = 0; row < store.size(); row++) {
+			speciesCodes[row] = (short) store.getSpeciesCode(row);
+			boroughCodes[row] = (byte) store.getBoroughCode(row);
+		}
+		targets = store.matchSpecies(species);
+		if (!CodeCounter.isVectorized(targets))
+			throw new IllegalStateException("The query " + species + " would not be counted with the Vector API.");
+	}
+
+	@Benchmark
+	public int[] scalar() {
+		return CodeCounter.countByBoroughScalar(speciesCodes, boroughCodes, speciesCodes.length, targets, totals);
+	}
+
+	@Benchmark
+	public int[] vectorized() {
+		return CodeCounter.countByBorough(speciesCodes, boroughCodes, speciesCodes.length, targets, totals);
+	}
+
+} // class
@@ -0,0 +1,90 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Time to split one census line and read the nine columns a Tree needs, with the old splitCSVLine and with CSVTokenizer.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(TokenizerBenchmark.LINES)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+
+	static final int LINES = 10000;
+
+	private String[] lines;
+	private ByteBuffer bytes;
+	private int[] lineStarts;
+	private CSVTokenizer tokenizer;
+
+	@Setup
+	public void setUp() {
+		CensusGenerator generator = new CensusGenerator(42);
+		lines = new String[LINES];
+		StringBuilder all = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			lines[i] = generator.nextLine(100000 + i);
+			all.append(lines[i]).append('\n');
+		}
+		// The same lines as one block of UTF-8 bytes, the way the loader sees a file.
+		byte[] raw = all.toString().getBytes(StandardCharsets.UTF_8);
+		bytes = ByteBuffer.wrap(raw);
+		lineStarts = new int[LINES + 1];
+		int line = 1;
+		for (int i = 0; i < raw.length; i++) {
+			if (raw[i] == '\n') {
+				lineStarts[line++] = i + 1;
+			}
+		}
+		tokenizer = new CSVTokenizer();
+	}
+
+	@Benchmark
+	public void splitCSVLine(Blackhole blackhole) {
+		for (String line : lines) {
+			java.util.ArrayList<String> fields = NYCStreetTrees.splitCSVLine(line);
+			blackhole.consume(Integer.parseInt(fields.get(TreeLoader.TREE_ID)));
+			blackhole.consume(Integer.parseInt(fields.get(TreeLoader.TREE_DBH)));
+			blackhole.consume(fields.get(TreeLoader.STATUS));
+			blackhole.consume(fields.get(TreeLoader.HEALTH));
+			blackhole.consume(fields.get(TreeLoader.SPC_COMMON));
+			blackhole.consume(Integer.parseInt(fields.get(TreeLoader.ZIPCODE)));
+			blackhole.consume(fields.get(TreeLoader.BORONAME));
+			blackhole.consume(Double.parseDouble(fields.get(TreeLoader.X_SP)));
+			blackhole.consume(Double.parseDouble(fields.get(TreeLoader.Y_SP)));
+		}
+	}
+
+	@Benchmark
+	public void csvTokenizer(Blackhole blackhole) {
+		for (int i = 0; i < LINES; i++) {
+			tokenizer.tokenize(bytes, lineStarts[i], lineStarts[i + 1] - 1, TreeLoader.Y_SP + 1);
+			blackhole.consume(tokenizer.parseInt(TreeLoader.TREE_ID));
+			blackhole.consume(tokenizer.parseInt(TreeLoader.TREE_DBH));
+			blackhole.consume(tokenizer.codeOf(TreeLoader.STATUS, TreeStore.STATUSES));
+			blackhole.consume(tokenizer.codeOf(TreeLoader.HEALTH, TreeStore.HEALTHS));
+			blackhole.consume(tokenizer.isEmpty(TreeLoader.SPC_COMMON));
+			blackhole.consume(tokenizer.parseInt(TreeLoader.ZIPCODE));
+			blackhole.consume(tokenizer.codeOf(TreeLoader.BORONAME, TreeStore.BOROUGHS));
+			blackhole.consume(tokenizer.parseDouble(TreeLoader.X_SP));
+			blackhole.consume(tokenizer.parseDouble(TreeLoader.Y_SP));
+		}
+	}
+
+} // class
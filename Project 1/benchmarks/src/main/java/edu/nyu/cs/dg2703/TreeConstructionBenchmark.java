@@ -0,0 +1,76 @@
+/**
+ * @author Disha Gupta
+ *
+ * This program analyzes a data file from NYCOpenData about registered trees throughout the city.
+ * The user can enter the name of a specific tree and the program will give them data about that tree for the entire city and
+ * all five boroughs.
+ */
+
+package edu.nyu.cs.dg2703;
+
+// Import necessary packages.
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Time to validate and store one already parsed row: as a Tree object in a TreeList and as a row of a TreeStore.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(TreeConstructionBenchmark.ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TreeConstructionBenchmark {
+
+	static final int ROWS = 10000;
+
+	// The parsed fields of every row.
+	private int[] ids = new int[ROWS];
+	private int[] diameters = new int[ROWS];
+	private String[] statuses = new String[ROWS];
+	private String[] healths = new String[ROWS];
+	private String[] species = new String[ROWS];
+	private int[] zipcodes = new int[ROWS];
+	private String[] boroughs = new String[ROWS];
+	private double[] xs = new double[ROWS];
+	private double[] ys = new double[ROWS];
+
+	@Setup
+	public void setUp() {
+		CensusGenerator generator = new CensusGenerator(42);
+		for (int i = 0; i < ROWS; i++) {
+			ArrayList<String> fields = NYCStreetTrees.splitCSVLine(generator.nextLine(100000 + i));
+			ids[i] = Integer.parseInt(fields.get(TreeLoader.TREE_ID));
+			diameters[i] = Integer.parseInt(fields.get(TreeLoader.TREE_DBH));
+			statuses[i] = fields.get(TreeLoader.STATUS);
+			healths[i] = fields.get(TreeLoader.HEALTH);
+			species[i] = fields.get(TreeLoader.SPC_COMMON);
+			zipcodes[i] = Integer.parseInt(fields.get(TreeLoader.ZIPCODE));
+			boroughs[i] = fields.get(TreeLoader.BORONAME);
+			xs[i] = Double.parseDouble(fields.get(TreeLoader.X_SP));
+			ys[i] = Double.parseDouble(fields.get(TreeLoader.Y_SP));
+		}
+	}
+
+	@Benchmark
+	public void treeList(Blackhole blackhole) {
+		TreeList list = new TreeList();
+		for (int i = 0; i < ROWS; i++) {
+			list.add(new Tree(ids[i], diameters[i], statuses[i], healths[i], species[i], zipcodes[i], boroughs[i], xs[i], ys[i]));
+		}
+		blackhole.consume(list);
+	}
+
+	@Benchmark
+	public void treeStore(Blackhole blackhole) {
+		TreeStore store = new TreeStore();
+		for (int i = 0; i < ROWS; i++) {
+			store.add(ids[i], diameters[i], statuses[i], healths[i], species[i], zipcodes[i], boroughs[i], xs[i], ys[i]);
+		}
+		blackhole.consume(store);
+	}
+
+} // class